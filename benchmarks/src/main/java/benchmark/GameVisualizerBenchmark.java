@@ -0,0 +1,94 @@
+package benchmark;
+
+import game.GameVisualizer;
+import game.RobotFleet;
+import game.RobotModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отрисовка игрового поля в невидимое изображение {@link BufferedImage}
+ * без окна и дисплея ({@code java.awt.headless=true}).
+ * Парк из многих роботов разбрасывается с постоянной плотностью (один робот на 100x100)
+ * по квадратному миру, поэтому в окно попадает одно и то же число роботов
+ * при любом размере парка.
+ * <p>
+ * Запуск: {@code java -jar benchmarks/target/benchmarks.jar GameVisualizerBenchmark -rf json -rff paint.json}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GameVisualizerBenchmark {
+    @Param({"640x480", "1920x1080"})
+    public String size;
+
+    @Param({"1", "100000"})
+    public int robots;
+
+    private GameVisualizer visualizer;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] dimensions = size.split("x");
+        int width = Integer.parseInt(dimensions[0]);
+        int height = Integer.parseInt(dimensions[1]);
+        List<RobotModel> robotModels = new ArrayList<>();
+        if (robots == 1) {
+            RobotModel robotModel = new RobotModel(width / 3.0, height / 3.0);
+            robotModel.setTargetPosition(width * 2 / 3, height * 2 / 3);
+            // Применяет цель и поворачивает робота, чтобы рисовался повернутый корпус
+            for (int i = 0; i < 50; i++) {
+                robotModel.step();
+            }
+            robotModels.add(robotModel);
+        } else {
+            RobotFleet fleet = new RobotFleet(robots);
+            Random random = new Random(42);
+            double side = Math.sqrt(robots) * 100;
+            for (int i = 0; i < robots; i++) {
+                int index = fleet.add(random.nextDouble() * side, random.nextDouble() * side);
+                fleet.setPosition(index, fleet.getPositionX(index), fleet.getPositionY(index),
+                        random.nextDouble() * 2 * Math.PI);
+                robotModels.add(new RobotModel(fleet, index));
+            }
+        }
+        visualizer = new GameVisualizer(robotModels);
+        visualizer.setSize(width, height);
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paint() {
+        visualizer.paint(graphics);
+        return image;
+    }
+}
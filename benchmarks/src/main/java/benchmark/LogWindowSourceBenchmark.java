@@ -0,0 +1,95 @@
+package benchmark;
+
+import log.LogEntry;
+import log.LogLevel;
+import log.LogWindowSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Источник протокола под нагрузкой: одиночная запись и смешанная нагрузка,
+ * в которой несколько потоков пишут, а окно протокола читает диапазон и весь протокол.
+ * Протокол заполнен до емкости, поэтому каждая запись вытесняет самую старую.
+ * <p>
+ * Запуск: {@code java -jar benchmarks/target/benchmarks.jar LogWindowSourceBenchmark -rf json -rff log.json}
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogWindowSourceBenchmark {
+    /**
+     * Количество записей, читаемых окном протокола за раз.
+     */
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"100", "10000"})
+    public int capacity;
+
+    @Param({"0", "1"})
+    public int listeners;
+
+    private LogWindowSource source;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        source = new LogWindowSource(capacity);
+        for (int i = 0; i < listeners; i++) {
+            source.registerListener(() -> { });
+        }
+        for (int i = 0; i < capacity; i++) {
+            source.append(LogLevel.Debug, "warm-up entry " + i);
+        }
+    }
+
+    // Состояние общее на группу, поэтому одиночная запись тоже оформлена группой из одного потока
+    @Benchmark
+    @Group("append")
+    @GroupThreads(1)
+    public void append() {
+        source.append(LogLevel.Debug, "benchmark entry");
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public void contendedAppend() {
+        source.append(LogLevel.Debug, "benchmark entry");
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void contendedRange(Blackhole blackhole) {
+        int start = Math.max(0, source.size() - PAGE_SIZE);
+        for (LogEntry entry : source.range(start, PAGE_SIZE)) {
+            blackhole.consume(entry);
+        }
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void contendedAll(Blackhole blackhole) {
+        for (LogEntry entry : source.all()) {
+            blackhole.consume(entry);
+        }
+    }
+}
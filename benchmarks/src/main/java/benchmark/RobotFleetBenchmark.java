@@ -0,0 +1,85 @@
+package benchmark;
+
+import game.CollisionAvoidance;
+import game.MathBackend;
+import game.ParallelFleetStepper;
+import game.RobotFleet;
+import game.Simulated;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Шаг всего парка роботов: последовательно ({@code parallelism = 1})
+ * или через {@link ParallelFleetStepper}, с объездом соседей {@link CollisionAvoidance} или без него.
+ * <p>
+ * Запуск: {@code java -jar benchmarks/target/benchmarks.jar RobotFleetBenchmark -p robots=100000 -rf json -rff fleet.json}
+ * <p>
+ * Масштабирование по числу потоков: {@code java -jar benchmarks/target/benchmarks.jar RobotFleetBenchmark
+ * -p robots=100000 -p parallelism=1,2,4,8 -p avoidance=false -rf json -rff fleet-scaling.json}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RobotFleetBenchmark {
+    @Param({"1000", "100000"})
+    public int robots;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    @Param({"EXACT", "FAST"})
+    public MathBackend math;
+
+    @Param({"false", "true"})
+    public boolean avoidance;
+
+    private Simulated stepper;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        Random random = new Random(42);
+        RobotFleet fleet = new RobotFleet(robots);
+        fleet.setMathBackend(math);
+        for (int i = 0; i < robots; i++) {
+            fleet.add(random.nextDouble() * 1000, random.nextDouble() * 1000);
+            // Дальние цели: роботы не останавливаются до конца итерации
+            fleet.setTargetPosition(i, random.nextInt(2_000_000_000) - 1_000_000_000,
+                    random.nextInt(2_000_000_000) - 1_000_000_000);
+        }
+        if (avoidance) {
+            CollisionAvoidance collisionAvoidance = new CollisionAvoidance(fleet);
+            stepper = parallelism == 1 ? collisionAvoidance : new ParallelFleetStepper(collisionAvoidance, parallelism);
+        } else {
+            stepper = parallelism == 1 ? fleet : new ParallelFleetStepper(fleet, parallelism);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        if (stepper instanceof ParallelFleetStepper parallel) {
+            parallel.close();
+        }
+    }
+
+    @Benchmark
+    public boolean step() {
+        return stepper.step();
+    }
+}
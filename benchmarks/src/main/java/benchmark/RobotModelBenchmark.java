@@ -0,0 +1,53 @@
+package benchmark;
+
+import game.MathBackend;
+import game.RobotModel;
+import game.RobotSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Шаг кинематики одного робота через {@link RobotModel#moveRobot()}:
+ * расчет движения, публикация снимка и оповещение шины событий.
+ * Цель удалена настолько, что робот не достигает ее за итерацию.
+ * <p>
+ * Запуск: {@code java -jar benchmarks/target/benchmarks.jar RobotModelBenchmark -rf json -rff robot-model.json}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RobotModelBenchmark {
+    @Param({"EXACT", "FAST"})
+    public MathBackend math;
+
+    private RobotModel robotModel;
+    private final RobotSnapshot snapshot = new RobotSnapshot();
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        robotModel = new RobotModel(100, 100);
+        robotModel.getFleet().setMathBackend(math);
+        robotModel.setTargetPosition(1_000_000_000, 700_000_000);
+    }
+
+    @Benchmark
+    public double moveRobot() {
+        robotModel.moveRobot();
+        return robotModel.readSnapshot(snapshot).getPositionX();
+    }
+}
@@ -0,0 +1,70 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import state.StateManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сохранение и восстановление состояния окон через файл, как в
+ * {@link StateManager#saveState()} и {@link StateManager#restoreState()}.
+ * Пишется во временный файл, а не в домашний каталог пользователя.
+ * Приложение сохраняет около двадцати параметров; большие размеры показывают рост с числом окон.
+ * <p>
+ * Запуск: {@code java -jar benchmarks/target/benchmarks.jar StateManagerBenchmark -rf json -rff state.json}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateManagerBenchmark {
+    @Param({"20", "1000"})
+    public int entries;
+
+    private Map<String, String> state;
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        state = new HashMap<>();
+        for (int i = 0; i < entries; i++) {
+            state.put("window" + i / 5 + "Property" + i % 5, Integer.toString(i * 37));
+        }
+        file = Files.createTempFile("state", ".dat").toFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Benchmark
+    public void save() throws IOException {
+        StateManager.writeState(state, file);
+    }
+
+    @Benchmark
+    public Map<String, String> roundTrip() throws IOException, ClassNotFoundException {
+        StateManager.writeState(state, file);
+        return StateManager.readState(file);
+    }
+}
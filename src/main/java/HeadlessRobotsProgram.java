@@ -0,0 +1,112 @@
+import game.HeadlessSimulation;
+import game.JournalReplay;
+import game.MathBackend;
+import game.SimulationScheduler;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Консольная точка входа для прогона симуляции без графического интерфейса.
+ * Используется для регрессионных и нагрузочных прогонов на серверах без дисплея.
+ */
+public class HeadlessRobotsProgram
+{
+  /**
+   * Точка входа.
+   *
+   * @param args Путь к файлу сценария и необязательные параметры {@code --max-steps N},
+   *             {@code --exact} (считать каждый шаг без перемотки), {@code --math exact|fast}
+   *             (реализация математики кинематики) и {@code --drift} (сравнить траекторию
+   *             с эталонной математикой вместо обычного отчета; код выхода 3, если отклонение
+   *             превышает пределы из {@link MathBackend}); либо {@code --replay <journal-file>}
+   *             и необязательный {@code --speed X} (темп воспроизведения журнала, 0 - без ожидания).
+   */
+    public static void main(String[] args) {
+      if (args.length == 0) {
+        System.err.println("Usage: HeadlessRobotsProgram <scenario-file> [--max-steps N] [--exact]"
+                + " [--math exact|fast] [--drift]");
+        System.err.println("       HeadlessRobotsProgram --replay <journal-file> [--speed X]");
+        System.exit(2);
+      }
+      if ("--replay".equals(args[0])) {
+        replay(args);
+        return;
+      }
+      long maxSteps = HeadlessSimulation.DEFAULT_MAX_STEPS_PER_TARGET;
+      boolean exact = false;
+      boolean drift = false;
+      MathBackend math = MathBackend.EXACT;
+      for (int i = 1; i < args.length; i++) {
+        if ("--max-steps".equals(args[i]) && i + 1 < args.length) {
+          maxSteps = Long.parseLong(args[++i]);
+        } else if ("--exact".equals(args[i])) {
+          exact = true;
+        } else if ("--drift".equals(args[i])) {
+          drift = true;
+        } else if ("--math".equals(args[i]) && i + 1 < args.length) {
+          try {
+            math = MathBackend.valueOf(args[++i].toUpperCase(Locale.ROOT));
+          } catch (IllegalArgumentException e) {
+            System.err.println("Unknown math backend: " + args[i]);
+            System.exit(2);
+          }
+        } else {
+          System.err.println("Unknown argument: " + args[i]);
+          System.exit(2);
+        }
+      }
+      try {
+        HeadlessSimulation simulation = new HeadlessSimulation(
+                HeadlessSimulation.Scenario.load(Path.of(args[0])),
+                maxSteps,
+                SimulationScheduler.DEFAULT_STEPS_PER_SECOND,
+                exact,
+                math);
+        if (drift) {
+          HeadlessSimulation.Drift result = simulation.measureDrift();
+          simulation.print(result, System.out);
+          if (!simulation.isWithinBounds(result)) {
+            System.exit(3);
+          }
+        } else {
+          simulation.print(simulation.run(), System.out);
+        }
+      } catch (IOException e) {
+        System.err.println(e.getMessage());
+        System.exit(1);
+      }
+    }
+
+  /**
+   * Воспроизводит журнал входных воздействий и печатает итог.
+   *
+   * @param args Аргументы командной строки, начиная с {@code --replay}.
+   */
+    private static void replay(String[] args) {
+      if (args.length < 2) {
+        System.err.println("Usage: HeadlessRobotsProgram --replay <journal-file> [--speed X]");
+        System.exit(2);
+      }
+      double speed = 0;
+      for (int i = 2; i < args.length; i++) {
+        if ("--speed".equals(args[i]) && i + 1 < args.length) {
+          speed = Double.parseDouble(args[++i]);
+        } else {
+          System.err.println("Unknown argument: " + args[i]);
+          System.exit(2);
+        }
+      }
+      try {
+        JournalReplay replay = new JournalReplay(Path.of(args[1]));
+        JournalReplay.Result result = replay.run(speed);
+        replay.print(result, System.out);
+        if (result.mismatches() > 0) {
+          System.exit(3);
+        }
+      } catch (IOException e) {
+        System.err.println(e.getMessage());
+        System.exit(1);
+      }
+    }}
@@ -0,0 +1,144 @@
+package game;
+
+/**
+ * Камера игрового поля: переводит мировые координаты в координаты панели и обратно.
+ * Задается мировой точкой, которая видна в левом верхнем углу панели, и масштабом
+ * (сколько пикселей панели приходится на единицу мира). Используется одним потоком отрисовки.
+ */
+public final class Camera {
+    /**
+     * Наименьший масштаб.
+     */
+    public static final double MIN_ZOOM = 0.02;
+
+    /**
+     * Наибольший масштаб.
+     */
+    public static final double MAX_ZOOM = 20;
+
+    private double originX;
+    private double originY;
+    private double zoom = 1;
+
+    /**
+     * Получает мировую координату X левого края панели.
+     *
+     * @return Координата X.
+     */
+    public double getOriginX() {
+        return originX;
+    }
+
+    /**
+     * Получает мировую координату Y верхнего края панели.
+     *
+     * @return Координата Y.
+     */
+    public double getOriginY() {
+        return originY;
+    }
+
+    /**
+     * Получает масштаб.
+     *
+     * @return Число пикселей панели на единицу мира.
+     */
+    public double getZoom() {
+        return zoom;
+    }
+
+    /**
+     * Переводит мировую координату X в координату панели.
+     *
+     * @param worldX Мировая координата X.
+     * @return Координата X на панели.
+     */
+    public double toScreenX(double worldX) {
+        return (worldX - originX) * zoom;
+    }
+
+    /**
+     * Переводит мировую координату Y в координату панели.
+     *
+     * @param worldY Мировая координата Y.
+     * @return Координата Y на панели.
+     */
+    public double toScreenY(double worldY) {
+        return (worldY - originY) * zoom;
+    }
+
+    /**
+     * Переводит координату X панели в мировую.
+     *
+     * @param screenX Координата X на панели.
+     * @return Мировая координата X.
+     */
+    public double toWorldX(double screenX) {
+        return originX + screenX / zoom;
+    }
+
+    /**
+     * Переводит координату Y панели в мировую.
+     *
+     * @param screenY Координата Y на панели.
+     * @return Мировая координата Y.
+     */
+    public double toWorldY(double screenY) {
+        return originY + screenY / zoom;
+    }
+
+    /**
+     * Сдвигает камеру так, чтобы изображение сместилось на указанное число пикселей.
+     *
+     * @param screenDeltaX Сдвиг изображения по X в пикселях панели.
+     * @param screenDeltaY Сдвиг изображения по Y в пикселях панели.
+     */
+    public void pan(double screenDeltaX, double screenDeltaY) {
+        originX -= screenDeltaX / zoom;
+        originY -= screenDeltaY / zoom;
+    }
+
+    /**
+     * Меняет масштаб, оставляя мировую точку под указанной точкой панели на месте.
+     *
+     * @param factor  Во сколько раз увеличить масштаб.
+     * @param screenX Координата X неподвижной точки на панели.
+     * @param screenY Координата Y неподвижной точки на панели.
+     */
+    public void zoomAt(double factor, double screenX, double screenY) {
+        double worldX = toWorldX(screenX);
+        double worldY = toWorldY(screenY);
+        zoom = clampZoom(zoom * factor);
+        originX = worldX - screenX / zoom;
+        originY = worldY - screenY / zoom;
+    }
+
+    /**
+     * Подбирает масштаб и положение так, чтобы мировой прямоугольник целиком
+     * поместился в панель и оказался в ее центре.
+     *
+     * @param minX   Левая граница прямоугольника.
+     * @param minY   Верхняя граница прямоугольника.
+     * @param maxX   Правая граница прямоугольника.
+     * @param maxY   Нижняя граница прямоугольника.
+     * @param width  Ширина панели.
+     * @param height Высота панели.
+     */
+    public void fit(double minX, double minY, double maxX, double maxY, int width, int height) {
+        if (width <= 0 || height <= 0 || !(maxX >= minX) || !(maxY >= minY)) {
+            return;
+        }
+        double worldWidth = Math.max(maxX - minX, 1);
+        double worldHeight = Math.max(maxY - minY, 1);
+        zoom = clampZoom(Math.min(width / worldWidth, height / worldHeight));
+        originX = (minX + maxX) / 2 - width / 2.0 / zoom;
+        originY = (minY + maxY) / 2 - height / 2.0 / zoom;
+    }
+
+    /**
+     * Ограничивает масштаб допустимым диапазоном.
+     */
+    private static double clampZoom(double zoom) {
+        return Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom));
+    }
+}
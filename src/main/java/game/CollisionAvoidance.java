@@ -0,0 +1,385 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Обнаружение столкновений роботов парка и объезд соседей.
+ * <p>
+ * Шаг выполняется в две фазы. Фаза восприятия ({@link #sense}) только читает позиции:
+ * широкая фаза находит соседей по сетке с ячейками размером {@value #CELL_SIZE},
+ * узкая проверяет пересечение корпусов для каждой пары роботов из соседних ячеек,
+ * а для движущихся роботов вычисляются поправки объезда {@link RobotFleet#setAvoidance}
+ * по ближайшим {@value #MAX_NEIGHBORS} соседям. Затем парк выполняет обычный шаг движения.
+ * Поскольку восприятие не меняет позиций, обе фазы можно делить на блоки роботов
+ * и выполнять параллельно (см. {@link ParallelFleetStepper}), а результат не зависит
+ * от числа потоков.
+ * <p>
+ * Корпус робота, нарисованный эллипсом 30x10, заменяется капсулой: отрезком вдоль курса
+ * длиной {@value #CAPSULE_HALF_LENGTH} в обе стороны от центра с радиусом
+ * {@value #BODY_RADIUS}. Робот отталкивается от соседей в радиусе
+ * {@value #SENSE_RADIUS} и отклоняется вправо, чтобы встречные роботы расходились,
+ * а перед соседом впереди сбавляет скорость.
+ * <p>
+ * Все роботы движутся каждый шаг, поэтому сетка не поддерживается изменениями,
+ * а строится заново перед восприятием: ячейки хешируются в корзины, и роботы
+ * раскладываются по корзинам сортировкой подсчетом вместе с координатами. Запрос
+ * соседей читает непрерывные отрезки массива вместо обхода связных списков.
+ * <p>
+ * В приложении подсистему шагает {@link RobotGroup}, зарегистрированная в планировщике
+ * симуляции; парки без моделей шагаются через нее напрямую или через
+ * {@link ParallelFleetStepper}.
+ */
+public class CollisionAvoidance implements Simulated {
+    /**
+     * Половина длины корпуса робота.
+     */
+    public static final double BODY_HALF_LENGTH = 15;
+
+    /**
+     * Половина ширины корпуса робота и радиус капсулы.
+     */
+    public static final double BODY_RADIUS = 5;
+
+    /**
+     * Половина длины осевого отрезка капсулы.
+     */
+    public static final double CAPSULE_HALF_LENGTH = BODY_HALF_LENGTH - BODY_RADIUS;
+
+    /**
+     * Радиус, в котором робот замечает соседей: два корпуса.
+     */
+    public static final double SENSE_RADIUS = 4 * BODY_HALF_LENGTH;
+
+    /**
+     * Наибольшее число соседей, учитываемых одним роботом при объезде. На поиск
+     * соприкосновений ограничение не влияет.
+     */
+    public static final int MAX_NEIGHBORS = 16;
+
+    /**
+     * Размер ячейки сетки: наибольшее расстояние между центрами соприкасающихся корпусов.
+     * Все соприкосновения робота лежат в девяти ячейках вокруг него, соседи для объезда -
+     * в двадцати пяти.
+     */
+    public static final double CELL_SIZE = 2 * BODY_HALF_LENGTH;
+
+    /**
+     * Длина буфера соседей, передаваемого в {@link #sense}: соседи и корзины
+     * двадцати пяти ячеек вокруг робота.
+     */
+    static final int NEIGHBOR_BUFFER_SIZE = MAX_NEIGHBORS + 25;
+
+    /**
+     * Вес отталкивания относительно единичного направления на цель.
+     */
+    private static final double REPULSION_WEIGHT = 1.5;
+
+    /**
+     * Вес отклонения вправо относительно отталкивания.
+     */
+    private static final double SIDESTEP_WEIGHT = 0.5;
+
+    /**
+     * Косинус половины угла сектора впереди робота, в котором сосед замедляет робота (±60°).
+     */
+    private static final double AHEAD_COSINE = 0.5;
+
+    /**
+     * Смещения ячеек вокруг ячейки робота парами X, Y: своя ячейка, затем первое и второе
+     * кольцо. При ограничении {@link #MAX_NEIGHBORS} в толпе учитываются ближние соседи,
+     * и второе кольцо не просматривается.
+     */
+    private static final int[] CELL_OFFSETS = {
+            0, 0, -1, 0, 1, 0, 0, -1, 0, 1, -1, -1, 1, -1, -1, 1, 1, 1,
+            -2, 0, 2, 0, 0, -2, 0, 2, -2, -1, -2, 1, 2, -1, 2, 1,
+            -1, -2, 1, -2, -1, 2, 1, 2, -2, -2, 2, -2, -2, 2, 2, 2};
+
+    /**
+     * Количество ячеек в начале {@link #CELL_OFFSETS}, в которых ищутся соприкосновения.
+     */
+    private static final int CONTACT_CELLS = 9;
+
+    private final RobotFleet fleet;
+    private final int[] neighbors = new int[NEIGHBOR_BUFFER_SIZE];
+    // Начало отрезка каждой корзины в упорядоченных массивах; последний элемент - число роботов
+    private int[] bucketStart = new int[2];
+    private int bucketMask;
+    private int[] bucketOf = new int[0];
+    // Роботы и их координаты парами X, Y в порядке корзин
+    private int[] sortedIds = new int[0];
+    private double[] sortedPoints = new double[0];
+    // Косинус и синус курса каждого робота, вычисленные один раз за шаг
+    private double[] cosines = new double[0];
+    private double[] sines = new double[0];
+    private long contacts;
+
+    /**
+     * Конструктор класса CollisionAvoidance.
+     *
+     * @param fleet Парк роботов.
+     */
+    public CollisionAvoidance(RobotFleet fleet) {
+        this.fleet = fleet;
+    }
+
+    /**
+     * Получает парк роботов.
+     *
+     * @return Парк роботов.
+     */
+    public RobotFleet getFleet() {
+        return fleet;
+    }
+
+    /**
+     * Получает количество пар соприкоснувшихся роботов, найденных последним шагом.
+     * Проверяются все пары, в том числе пары стоящих роботов, без ограничения числа соседей.
+     *
+     * @return Количество пар.
+     */
+    public long getContacts() {
+        return contacts;
+    }
+
+    /**
+     * Выполняет шаг последовательно: обновляет индекс, вычисляет поправки объезда
+     * и шагает парк.
+     *
+     * @return true, если хотя бы один робот продолжает движение.
+     */
+    @Override
+    public boolean step() {
+        updateIndex();
+        contacts = sense(0, fleet.size(), neighbors);
+        return fleet.step();
+    }
+
+    /**
+     * Устанавливает обработчик пробуждения парка.
+     *
+     * @param handler Обработчик пробуждения.
+     */
+    @Override
+    public void setWakeUpHandler(Runnable handler) {
+        fleet.setWakeUpHandler(handler);
+    }
+
+    /**
+     * Раскладывает роботов по корзинам ячеек сортировкой подсчетом и вычисляет
+     * направления их курсов. Выполняется одним потоком перед {@link #sense}.
+     */
+    void updateIndex() {
+        int size = fleet.size();
+        if (size > bucketOf.length) {
+            bucketOf = new int[size];
+            sortedIds = new int[size];
+            sortedPoints = new double[2 * size];
+            cosines = new double[size];
+            sines = new double[size];
+            // Вдвое больше корзин, чем роботов, чтобы в корзину редко попадали чужие ячейки
+            int buckets = Integer.highestOneBit(Math.max(size, 8) * 2 - 1) << 1;
+            bucketStart = new int[buckets + 1];
+            bucketMask = buckets - 1;
+        }
+        Arrays.fill(bucketStart, 0);
+        MathBackend math = fleet.getMathBackend();
+        for (int i = 0; i < size; i++) {
+            double heading = fleet.getDirection(i);
+            cosines[i] = math.cos(heading);
+            sines[i] = math.sin(heading);
+            int bucket = bucket(cell(fleet.getPositionX(i)), cell(fleet.getPositionY(i)));
+            bucketOf[i] = bucket;
+            bucketStart[bucket]++;
+        }
+        // Накопленные суммы дают концы отрезков; раскладка с конца сдвигает их к началам
+        int end = 0;
+        for (int bucket = 0; bucket <= bucketMask; bucket++) {
+            end += bucketStart[bucket];
+            bucketStart[bucket] = end;
+        }
+        bucketStart[bucketMask + 1] = size;
+        for (int i = size - 1; i >= 0; i--) {
+            int position = --bucketStart[bucketOf[i]];
+            sortedIds[position] = i;
+            sortedPoints[2 * position] = fleet.getPositionX(i);
+            sortedPoints[2 * position + 1] = fleet.getPositionY(i);
+        }
+    }
+
+    /**
+     * Устанавливает количество соприкосновений, найденных фазой восприятия по блокам.
+     *
+     * @param contacts Количество пар.
+     */
+    void setContacts(long contacts) {
+        this.contacts = contacts;
+    }
+
+    /**
+     * Фаза восприятия для диапазона роботов: находит соприкосновения роботов диапазона
+     * с роботами с большими индексами и назначает поправки объезда движущимся роботам;
+     * у стоящих роботов поправки сбрасываются. Позиции и состояния не меняет, поэтому диапазоны
+     * можно обрабатывать параллельно, каждый со своим буфером соседей.
+     *
+     * @param from      Индекс первого робота (включительно).
+     * @param to        Индекс последнего робота (не включительно).
+     * @param neighbors Буфер соседей длиной {@link #NEIGHBOR_BUFFER_SIZE}, принадлежащий
+     *                  вызывающему потоку.
+     * @return Количество пар соприкоснувшихся роботов, отнесенных к диапазону.
+     */
+    int sense(int from, int to, int[] neighbors) {
+        int[] starts = bucketStart;
+        int[] ids = sortedIds;
+        double[] points = sortedPoints;
+        double contactSquared = CELL_SIZE * CELL_SIZE;
+        double senseSquared = SENSE_RADIUS * SENSE_RADIUS;
+        int contacts = 0;
+        for (int i = from; i < to; i++) {
+            double x = fleet.getPositionX(i);
+            double y = fleet.getPositionY(i);
+            double cos = cosines[i];
+            double sin = sines[i];
+            boolean steering = fleet.isActive(i);
+            // Стоящему роботу соседи для объезда не нужны
+            int limit = steering ? MAX_NEIGHBORS : 0;
+            int cellX = cell(x);
+            int cellY = cell(y);
+            int found = 0;
+            int visited = MAX_NEIGHBORS;
+            for (int k = 0; k < CELL_OFFSETS.length; k += 2) {
+                // Соприкосновения найдены в девяти ближних ячейках; дальние нужны только для объезда
+                if (k >= 2 * CONTACT_CELLS && found == limit) {
+                    break;
+                }
+                int bucket = bucket(cellX + CELL_OFFSETS[k], cellY + CELL_OFFSETS[k + 1]);
+                // Соседние ячейки могут попасть в одну корзину; она просматривается один раз
+                boolean seen = false;
+                for (int v = MAX_NEIGHBORS; v < visited && !seen; v++) {
+                    seen = neighbors[v] == bucket;
+                }
+                if (seen) {
+                    continue;
+                }
+                neighbors[visited++] = bucket;
+                for (int position = starts[bucket], end = starts[bucket + 1]; position < end; position++) {
+                    double dx = points[2 * position] - x;
+                    double dy = points[2 * position + 1] - y;
+                    double distanceSquared = dx * dx + dy * dy;
+                    if (distanceSquared < contactSquared) {
+                        int j = ids[position];
+                        // Каждая пара проверяется один раз, у робота с меньшим индексом. Центры лежат
+                        // на осевых отрезках: ближе двух радиусов капсулы корпуса пересекаются
+                        if (j > i && (distanceSquared < 4 * BODY_RADIUS * BODY_RADIUS
+                                || capsulesOverlap(x, y, cos, sin, x + dx, y + dy, cosines[j], sines[j]))) {
+                            contacts++;
+                        }
+                    }
+                    // Сам робот и соседи в той же точке направления отталкивания не дают
+                    if (found < limit && distanceSquared <= senseSquared && distanceSquared > 0) {
+                        neighbors[found++] = position;
+                    }
+                }
+            }
+            if (!steering) {
+                fleet.setAvoidance(i, 0, 0, 1);
+                continue;
+            }
+            double awayX = 0;
+            double awayY = 0;
+            double speedLimit = 1;
+            for (int k = 0; k < found; k++) {
+                int position = neighbors[k];
+                double dx = points[2 * position] - x;
+                double dy = points[2 * position + 1] - y;
+                double distanceSquared = dx * dx + dy * dy;
+                // Одно деление на соседа: остальные делители заменены умножением
+                double inverseDistance = 1 / Math.sqrt(distanceSquared);
+                double distance = distanceSquared * inverseDistance;
+                double weight = (SENSE_RADIUS - distance) * (1 / SENSE_RADIUS) * inverseDistance;
+                awayX -= dx * weight;
+                awayY -= dy * weight;
+                double ahead = (dx * cos + dy * sin) * inverseDistance;
+                if (ahead > AHEAD_COSINE) {
+                    // Впереди сосед: останавливаемся к моменту касания носами
+                    double gap = (distance - 2 * BODY_HALF_LENGTH) * (1 / (SENSE_RADIUS - 2 * BODY_HALF_LENGTH));
+                    speedLimit = Math.min(speedLimit, Math.max(0, gap));
+                }
+            }
+            double targetX = fleet.getTargetPositionX(i) - x;
+            double targetY = fleet.getTargetPositionY(i) - y;
+            // У цели объезд ослабевает, иначе соседи, уже стоящие рядом с ней, не дают подъехать
+            double fade = Math.min(1, Math.sqrt(targetX * targetX + targetY * targetY) / SENSE_RADIUS);
+            if (awayX == 0 && awayY == 0 || fade == 0) {
+                fleet.setAvoidance(i, 0, 0, 1);
+            } else {
+                // Отклонение вправо от направления на соседа (ось Y экрана направлена вниз)
+                double avoidX = (awayX + awayY * SIDESTEP_WEIGHT) * REPULSION_WEIGHT * fade;
+                double avoidY = (awayY - awayX * SIDESTEP_WEIGHT) * REPULSION_WEIGHT * fade;
+                fleet.setAvoidance(i, avoidX, avoidY, 1 - (1 - speedLimit) * fade);
+            }
+        }
+        return contacts;
+    }
+
+    /**
+     * Проверяет, пересекаются ли корпуса двух роботов.
+     *
+     * @param x1   Координата X центра первого робота.
+     * @param y1   Координата Y центра первого робота.
+     * @param cos1 Косинус курса первого робота.
+     * @param sin1 Синус курса первого робота.
+     * @param x2   Координата X центра второго робота.
+     * @param y2   Координата Y центра второго робота.
+     * @param cos2 Косинус курса второго робота.
+     * @param sin2 Синус курса второго робота.
+     * @return true, если капсулы корпусов пересекаются.
+     */
+    public static boolean capsulesOverlap(double x1, double y1, double cos1, double sin1,
+                                          double x2, double y2, double cos2, double sin2) {
+        // Ближайшие точки осевых отрезков p1 + s * u1 и p2 + t * u2, s и t из [-h, h]
+        // (Ericson, Real-Time Collision Detection, 5.1.9, для единичных направлений)
+        double h = CAPSULE_HALF_LENGTH;
+        double rx = x1 - x2;
+        double ry = y1 - y2;
+        // Центр одной капсулы дальше от оси другой, чем полуотрезок и два радиуса: пересечения нет
+        double reach = h + 2 * BODY_RADIUS;
+        if (Math.abs(rx * sin1 - ry * cos1) >= reach || Math.abs(rx * sin2 - ry * cos2) >= reach) {
+            return false;
+        }
+        double b = cos1 * cos2 + sin1 * sin2;
+        double c = cos1 * rx + sin1 * ry;
+        double f = cos2 * rx + sin2 * ry;
+        double denominator = 1 - b * b;
+        // Для параллельных отрезков берется любая точка первого
+        double s = denominator > 1e-12 ? clamp((b * f - c) / denominator, h) : 0;
+        double t = b * s + f;
+        if (t < -h || t > h) {
+            t = clamp(t, h);
+            s = clamp(b * t - c, h);
+        }
+        double dx = rx + cos1 * s - cos2 * t;
+        double dy = ry + sin1 * s - sin2 * t;
+        return dx * dx + dy * dy < 4 * BODY_RADIUS * BODY_RADIUS;
+    }
+
+    /**
+     * Вычисляет номер ячейки сетки по координате.
+     */
+    private static int cell(double coordinate) {
+        return (int) Math.floor(coordinate * (1 / CELL_SIZE));
+    }
+
+    /**
+     * Вычисляет корзину ячейки.
+     */
+    private int bucket(int cx, int cy) {
+        return (cx * 0x9E3779B1 ^ cy * 0x85EBCA77) & bucketMask;
+    }
+
+    /**
+     * Ограничивает значение отрезком [-limit, limit].
+     */
+    private static double clamp(double value, double limit) {
+        return Math.max(-limit, Math.min(limit, value));
+    }
+}
@@ -0,0 +1,139 @@
+package game;
+
+import java.awt.Rectangle;
+
+/**
+ * Набор прямоугольников, которые нужно перерисовать.
+ * Пересекающиеся и близкие прямоугольники сливаются: два прямоугольника объединяются,
+ * если их общий охватывающий прямоугольник ненамного больше суммы их площадей.
+ * Если прямоугольников становится больше {@link #MAX_REGIONS}, они сворачиваются
+ * в один охватывающий, чтобы число вызовов отрисовки оставалось ограниченным.
+ * Прямоугольники берутся из внутреннего пула, поэтому после первого кадра набор
+ * не выделяет память. Используется одним потоком отрисовки.
+ */
+final class DirtyRegions {
+    /**
+     * Наибольшее число отдельно перерисовываемых прямоугольников.
+     */
+    static final int MAX_REGIONS = 16;
+
+    /**
+     * Во сколько раз площадь объединения может превышать сумму площадей,
+     * чтобы объединение все еще было выгоднее двух отдельных перерисовок.
+     */
+    private static final double MERGE_SLACK = 1.5;
+
+    private final Rectangle[] regions = new Rectangle[MAX_REGIONS + 1];
+    private final Rectangle candidate = new Rectangle();
+    private int count;
+
+    /**
+     * Конструктор класса DirtyRegions.
+     */
+    DirtyRegions() {
+        for (int i = 0; i < regions.length; i++) {
+            regions[i] = new Rectangle();
+        }
+    }
+
+    /**
+     * Добавляет прямоугольник, сливая его с уже добавленными, если это выгодно.
+     *
+     * @param x      Координата X левого верхнего угла.
+     * @param y      Координата Y левого верхнего угла.
+     * @param width  Ширина.
+     * @param height Высота.
+     */
+    void add(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        candidate.setBounds(x, y, width, height);
+        // Выросший после слияния прямоугольник может поглотить и другие
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (int i = 0; i < count; i++) {
+                if (shouldMerge(regions[i], candidate)) {
+                    candidate.add(regions[i]);
+                    remove(i);
+                    merged = true;
+                    break;
+                }
+            }
+        }
+        regions[count++].setBounds(candidate);
+        if (count > MAX_REGIONS) {
+            collapse();
+        }
+    }
+
+    /**
+     * Добавляет прямоугольник.
+     *
+     * @param rectangle Прямоугольник.
+     */
+    void add(Rectangle rectangle) {
+        add(rectangle.x, rectangle.y, rectangle.width, rectangle.height);
+    }
+
+    /**
+     * Возвращает количество прямоугольников.
+     *
+     * @return Количество прямоугольников.
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Возвращает прямоугольник по индексу. Экземпляр принадлежит набору
+     * и переиспользуется после {@link #clear()}.
+     *
+     * @param index Индекс прямоугольника.
+     * @return Прямоугольник.
+     */
+    Rectangle get(int index) {
+        return regions[index];
+    }
+
+    /**
+     * Очищает набор.
+     */
+    void clear() {
+        count = 0;
+    }
+
+    /**
+     * Решает, выгоднее ли перерисовать два прямоугольника одним.
+     */
+    private static boolean shouldMerge(Rectangle a, Rectangle b) {
+        if (a.intersects(b)) {
+            return true;
+        }
+        long unionWidth = Math.max(a.x + a.width, b.x + b.width) - Math.min(a.x, b.x);
+        long unionHeight = Math.max(a.y + a.height, b.y + b.height) - Math.min(a.y, b.y);
+        double areas = (double) a.width * a.height + (double) b.width * b.height;
+        return unionWidth * unionHeight <= areas * MERGE_SLACK;
+    }
+
+    /**
+     * Удаляет прямоугольник, перенося на его место последний; экземпляр остается в пуле.
+     */
+    private void remove(int index) {
+        Rectangle removed = regions[index];
+        regions[index] = regions[--count];
+        regions[count] = removed;
+    }
+
+    /**
+     * Сворачивает все прямоугольники в один охватывающий.
+     */
+    private void collapse() {
+        Rectangle union = regions[0];
+        for (int i = 1; i < count; i++) {
+            union.add(regions[i]);
+        }
+        count = 1;
+    }
+}
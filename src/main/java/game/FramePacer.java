@@ -0,0 +1,161 @@
+package game;
+
+import log.Logger;
+
+import java.awt.DisplayMode;
+import java.awt.EventQueue;
+import java.awt.GraphicsConfiguration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Задает темп кадров активной отрисовки независимо от частоты шагов симуляции.
+ * Фоновый поток в начале каждого интервала кадра ставит кадр в очередь событий Swing.
+ * Если предыдущий кадр к этому моменту еще не отрисован или поток проснулся
+ * с опозданием больше чем на интервал, кадр считается пропущенным.
+ * Раз в секунду новые пропуски пишутся в протокол.
+ */
+public class FramePacer {
+    /**
+     * Частота кадров, если частоту обновления дисплея определить не удалось.
+     */
+    public static final double DEFAULT_FRAME_RATE = 60;
+
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Runnable frameTask;
+    private final long frameNanos;
+    private final AtomicBoolean framePending = new AtomicBoolean();
+    private volatile long renderedFrames;
+    private volatile long droppedFrames;
+    private volatile Thread thread;
+
+    /**
+     * Конструктор класса FramePacer.
+     *
+     * @param frame           Отрисовка кадра; вызывается в потоке событий Swing.
+     * @param framesPerSecond Частота кадров.
+     */
+    public FramePacer(Runnable frame, double framesPerSecond) {
+        if (!(framesPerSecond > 0)) {
+            throw new IllegalArgumentException("framesPerSecond must be positive: " + framesPerSecond);
+        }
+        this.frameNanos = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / framesPerSecond));
+        this.frameTask = () -> {
+            try {
+                frame.run();
+            } finally {
+                renderedFrames++;
+                framePending.set(false);
+            }
+        };
+    }
+
+    /**
+     * Определяет частоту обновления дисплея, на котором находится компонент.
+     *
+     * @param configuration Графическая конфигурация компонента или null.
+     * @param maxFrameRate  Ограничение частоты кадров; 0 - без ограничения.
+     * @return Частота обновления дисплея, не больше ограничения, или
+     * {@link #DEFAULT_FRAME_RATE}, если она неизвестна.
+     */
+    public static double displayFrameRate(GraphicsConfiguration configuration, double maxFrameRate) {
+        double rate = DEFAULT_FRAME_RATE;
+        if (configuration != null) {
+            int refreshRate = configuration.getDevice().getDisplayMode().getRefreshRate();
+            if (refreshRate != DisplayMode.REFRESH_RATE_UNKNOWN) {
+                rate = refreshRate;
+            }
+        }
+        return maxFrameRate > 0 ? Math.min(rate, maxFrameRate) : rate;
+    }
+
+    /**
+     * Запускает поток темпа кадров. Повторный вызов ничего не делает.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        Thread pacer = new Thread(this::run, "frame-pacer");
+        pacer.setDaemon(true);
+        thread = pacer;
+        pacer.start();
+    }
+
+    /**
+     * Останавливает поток темпа кадров. Уже поставленный в очередь кадр будет отрисован.
+     */
+    public synchronized void stop() {
+        Thread pacer = thread;
+        if (pacer != null) {
+            thread = null;
+            LockSupport.unpark(pacer);
+        }
+    }
+
+    /**
+     * Возвращает количество отрисованных кадров.
+     *
+     * @return Количество кадров.
+     */
+    public long getRenderedFrames() {
+        return renderedFrames;
+    }
+
+    /**
+     * Возвращает количество пропущенных кадров.
+     *
+     * @return Количество кадров.
+     */
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * Возвращает длительность интервала кадра.
+     *
+     * @return Длительность кадра в наносекундах.
+     */
+    public long getFrameNanos() {
+        return frameNanos;
+    }
+
+    /**
+     * Основной цикл: ждет начала очередного интервала и ставит кадр в очередь.
+     */
+    private void run() {
+        long deadline = System.nanoTime();
+        long reportDeadline = deadline + REPORT_INTERVAL_NANOS;
+        long reportedDrops = 0;
+        // Поток завершается, как только перестает быть текущим потоком темпа
+        while (thread == Thread.currentThread()) {
+            long now = System.nanoTime();
+            if (now < deadline) {
+                LockSupport.parkNanos(this, deadline - now);
+                continue;
+            }
+            long missed = (now - deadline) / frameNanos;
+            if (missed > 0) {
+                droppedFrames += missed;
+                deadline += missed * frameNanos;
+            }
+            deadline += frameNanos;
+            if (framePending.compareAndSet(false, true)) {
+                EventQueue.invokeLater(frameTask);
+            } else {
+                droppedFrames++;
+            }
+            if (now >= reportDeadline) {
+                long drops = droppedFrames;
+                if (drops != reportedDrops) {
+                    Logger.debug("Пропущено кадров: {} (всего {} из {})",
+                            drops - reportedDrops, drops, renderedFrames + drops);
+                    reportedDrops = drops;
+                }
+                reportDeadline = now + REPORT_INTERVAL_NANOS;
+            }
+        }
+    }
+}
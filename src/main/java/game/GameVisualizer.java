@@ -2,91 +2,806 @@ package game;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.awt.geom.AffineTransform;
-import java.util.Observable;
-import java.util.Observer;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.VolatileImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Панель для визуализации игровых объектов.
+ * <p>
+ * Мир рисуется через камеру {@link Camera}: колесо мыши меняет масштаб вокруг курсора,
+ * перетаскивание мышью сдвигает изображение, клавиша Home показывает весь парк.
+ * Щелчок по роботу выбирает его, щелчок по пустому месту задает выбранному роботу
+ * цель в мировых координатах, а щелчок с Shift добавляет точку в конец его маршрута.
+ * Перетаскивание правой кнопкой добавляет прямоугольное препятствие в {@link ObstacleMap};
+ * препятствия рисуются под роботами, а после их изменения изображение перерисовывается целиком.
+ * Рисуются только роботы и цели, попадающие в видимую часть мира; их находит
+ * пространственный индекс {@link SpatialGrid}. Индекс обновляется только для роботов,
+ * оповестивших об изменении, поэтому отрисовка кадра зависит от числа видимых
+ * и движущихся объектов, а не от размера парка.
+ * <p>
+ * В активном режиме ({@link RenderMode#ACTIVE}) кадры задает {@link FramePacer} с частотой
+ * обновления дисплея: в каждом кадре в ускоренном буфере {@link VolatileImage} перерисовываются
+ * только области вокруг старого и нового положения роботов и целей ({@link DirtyRegions}),
+ * и только они немедленно копируются на экран.
+ * Частота кадров не зависит от частоты шагов симуляции: между шагами роботы рисуются
+ * в промежуточном положении ({@link RobotInterpolator}), поэтому движение плавное
+ * и при частоте шагов ниже частоты кадров.
+ * В пассивном режиме ({@link RenderMode#PASSIVE}) по событиям моделей так же
+ * перерисовываются только изменившиеся области. Он же используется, когда ускоренный
+ * буфер недоступен.
+ * Роботы рисуются одним изображением из атласа {@link RobotSpriteAtlas}.
+ * Режим по умолчанию задается системным свойством {@value #RENDER_MODE_PROPERTY},
+ * ограничение частоты кадров - свойством {@value #MAX_FRAME_RATE_PROPERTY}.
  */
-public class GameVisualizer extends JPanel implements Observer {
-    private final RobotModel robotModel;
+public class GameVisualizer extends JPanel {
+    /**
+     * Системное свойство с режимом отрисовки: {@code active} или {@code passive}.
+     */
+    public static final String RENDER_MODE_PROPERTY = "robots.render";
+
+    /**
+     * Системное свойство с ограничением частоты кадров активного режима.
+     */
+    public static final String MAX_FRAME_RATE_PROPERTY = "robots.render.fps";
+
+    /**
+     * Изменение масштаба за один щелчок колеса мыши.
+     */
+    private static final double ZOOM_STEP = 1.25;
+
+    /**
+     * Отступ вокруг парка при показе всего парка, в мировых единицах.
+     */
+    private static final double FIT_MARGIN = RobotSpriteAtlas.CELL_SIZE;
+
+    /**
+     * Радиус изображения цели в пикселях панели; цель не масштабируется.
+     */
+    private static final int TARGET_RADIUS = 3;
+
+    /**
+     * Наименьший радиус выбора робота щелчком в пикселях панели, чтобы при малом
+     * масштабе в робота можно было попасть.
+     */
+    private static final double MIN_PICK_RADIUS = 8;
+
+    /**
+     * Наименьший размер нового препятствия на панели в пикселях.
+     */
+    private static final int MIN_OBSTACLE_SIZE = 3;
+
+    /**
+     * Режим отрисовки панели.
+     */
+    public enum RenderMode {
+        /**
+         * Собственный темп кадров и ускоренный буфер.
+         */
+        ACTIVE,
+        /**
+         * Перерисовка средствами Swing по событиям модели.
+         */
+        PASSIVE
+    }
+
+    private final RobotModel[] robotModels;
+    private final RenderMode renderMode;
+    private final double maxFrameRate;
+    private final Camera camera = new Camera();
+    private final SpatialGrid robotIndex = new SpatialGrid(SpatialGrid.DEFAULT_CELL_SIZE);
+    private final SpatialGrid targetIndex = new SpatialGrid(SpatialGrid.DEFAULT_CELL_SIZE);
+    // Роботы, изменившиеся с последнего обновления индекса: по биту на робота
+    private final AtomicLongArray changedRobots;
+    // Подписки на события моделей; действуют, пока панель отображается
+    private final List<SimulationEventBus<RobotModel>.Subscription> subscriptions = new ArrayList<>();
+    private final RobotSnapshot indexSnapshot = new RobotSnapshot();
+    // Сглаженное состояние роботов, принадлежащее потоку отрисовки; создается при первом показе робота
+    private final RobotInterpolator[] interpolators;
+    private final DirtyRegions dirtyRegions = new DirtyRegions();
+    private final AtomicBoolean repaintPending = new AtomicBoolean();
+    private final Runnable repaintTask = () -> {
+        repaintPending.set(false);
+        repaintDirtyRegions();
+    };
+    // Выбранный робот, которому щелчок мыши задает цель
+    private int selectedRobot;
+    private ObstacleMap obstacleMap = new ObstacleMap();
+    private ObstacleMap.Snapshot drawnObstacles = obstacleMap.snapshot();
+    private int[] obstacleXs = new int[4];
+    private int[] obstacleYs = new int[4];
+    // Прямоугольник нового препятствия на панели, пока его растягивают правой кнопкой
+    private Point draftStart;
+    private final Rectangle draft = new Rectangle();
+    private FramePacer framePacer;
+    private VolatileImage backBuffer;
+    // false - буфер нужно перерисовать целиком
+    private boolean bufferValid;
+    // false - камера или размер панели изменились, видимые объекты нужно найти заново
+    private boolean viewValid;
+    private int viewWidth;
+    private int viewHeight;
+    private RobotSpriteAtlas spriteAtlas;
+
+    // Номер обновления видимых объектов; 0 и 1 в массивах отметок значат "никогда"
+    private int frame = 1;
+    private final int[] visibleFrame;
+    private final int[] drawnFrame;
+    private final int[] queryResult;
+    private int[] visibleRobots;
+    private int[] drawnRobots;
+    private int drawnCount;
+
+    // Состояние, нарисованное на экране (в активном режиме - в буфере), в координатах панели
+    private final int[] drawnX;
+    private final int[] drawnY;
+    private final double[] drawnDirection;
+    private final int[] drawnTargetX;
+    private final int[] drawnTargetY;
+    private int robotSize;
+    private final Rectangle bounds = new Rectangle();
+    private final Rectangle clipBounds = new Rectangle();
 
     /**
      * Конструктор класса GameVisualizer.
-     * Создает панель для визуализации игровых объектов и добавляет в нее слушателя мыши.
+     * Режим отрисовки и ограничение частоты кадров берутся из системных свойств.
      *
      * @param robotModel Модель робота для визуализации.
      */
     public GameVisualizer(RobotModel robotModel) {
-        this.robotModel = robotModel;
-        robotModel.addObserver(this);
-        addMouseListener(new MouseAdapter() {
+        this(List.of(robotModel));
+    }
+
+    /**
+     * Конструктор класса GameVisualizer.
+     * Режим отрисовки и ограничение частоты кадров берутся из системных свойств.
+     *
+     * @param robotModels Модели роботов для визуализации; сначала выбран первый.
+     */
+    public GameVisualizer(List<RobotModel> robotModels) {
+        this(robotModels, renderModeProperty(), maxFrameRateProperty());
+    }
+
+    /**
+     * Конструктор класса GameVisualizer для одного робота.
+     *
+     * @param robotModel   Модель робота для визуализации.
+     * @param renderMode   Режим отрисовки.
+     * @param maxFrameRate Ограничение частоты кадров активного режима; 0 - частота дисплея.
+     */
+    public GameVisualizer(RobotModel robotModel, RenderMode renderMode, double maxFrameRate) {
+        this(List.of(robotModel), renderMode, maxFrameRate);
+    }
+
+    /**
+     * Конструктор класса GameVisualizer.
+     * Создает панель для визуализации игровых объектов и добавляет в нее слушателей мыши.
+     * Движение роботов выполняют часы симуляции {@link SimulationScheduler},
+     * щелчок мыши только меняет цель.
+     *
+     * @param robotModels  Модели роботов для визуализации; сначала выбран первый.
+     * @param renderMode   Режим отрисовки.
+     * @param maxFrameRate Ограничение частоты кадров активного режима; 0 - частота дисплея.
+     */
+    public GameVisualizer(List<RobotModel> robotModels, RenderMode renderMode, double maxFrameRate) {
+        if (robotModels.isEmpty()) {
+            throw new IllegalArgumentException("robotModels must not be empty");
+        }
+        this.robotModels = robotModels.toArray(new RobotModel[0]);
+        this.renderMode = renderMode;
+        this.maxFrameRate = maxFrameRate;
+        int count = this.robotModels.length;
+        interpolators = new RobotInterpolator[count];
+        visibleFrame = new int[count];
+        drawnFrame = new int[count];
+        queryResult = new int[count];
+        visibleRobots = new int[count];
+        drawnRobots = new int[count];
+        drawnX = new int[count];
+        drawnY = new int[count];
+        drawnDirection = new double[count];
+        drawnTargetX = new int[count];
+        drawnTargetY = new int[count];
+        changedRobots = new AtomicLongArray((count + Long.SIZE - 1) / Long.SIZE);
+        robotIndex.clear(count);
+        targetIndex.clear(count);
+        for (int i = 0; i < count; i++) {
+            updateIndex(i);
+        }
+        MouseAdapter mouseHandler = new MouseAdapter() {
+            private Point dragPoint;
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (SwingUtilities.isRightMouseButton(e)) {
+                    draftStart = e.getPoint();
+                    draft.setBounds(draftStart.x, draftStart.y, 0, 0);
+                } else {
+                    dragPoint = e.getPoint();
+                }
+                requestFocusInWindow();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (draftStart != null) {
+                    draft.setFrameFromDiagonal(draftStart, e.getPoint());
+                    invalidateView();
+                } else if (dragPoint != null) {
+                    camera.pan(e.getX() - dragPoint.x, e.getY() - dragPoint.y);
+                    dragPoint = e.getPoint();
+                    invalidateView();
+                }
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                dragPoint = null;
+                if (draftStart != null && SwingUtilities.isRightMouseButton(e)) {
+                    draftStart = null;
+                    if (draft.width >= MIN_OBSTACLE_SIZE && draft.height >= MIN_OBSTACLE_SIZE) {
+                        obstacleMap.add(Obstacle.rectangle(
+                                camera.toWorldX(draft.x), camera.toWorldY(draft.y),
+                                camera.toWorldX(draft.x + draft.width), camera.toWorldY(draft.y + draft.height)));
+                    }
+                    invalidateView();
+                }
+            }
+
             @Override
             public void mouseClicked(MouseEvent e) {
-                setTargetPosition(e.getPoint());
-                moveRobot();
-                repaint();
+                if (!SwingUtilities.isLeftMouseButton(e)) {
+                    return;
+                }
+                int picked = pickRobot(e.getPoint());
+                if (picked == SpatialGrid.NONE) {
+                    if (e.isShiftDown()) {
+                        appendWaypoint(e.getPoint());
+                    } else {
+                        setTargetPosition(e.getPoint());
+                    }
+                } else if (picked != selectedRobot) {
+                    selectedRobot = picked;
+                    invalidateView();
+                }
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                camera.zoomAt(Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+                invalidateView();
+            }
+        };
+        addMouseListener(mouseHandler);
+        addMouseMotionListener(mouseHandler);
+        addMouseWheelListener(mouseHandler);
+        setFocusable(true);
+        getInputMap(WHEN_ANCESTOR_OF_FOCUSED_COMPONENT).put(KeyStroke.getKeyStroke(KeyEvent.VK_HOME, 0), "fitToFleet");
+        getActionMap().put("fitToFleet", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                fitToFleet();
             }
         });
     }
 
     /**
-     * Устанавливает позицию цели на основе координат указанной точки.
+     * Получает режим отрисовки панели.
+     *
+     * @return Режим отрисовки.
+     */
+    public RenderMode getRenderMode() {
+        return renderMode;
+    }
+
+    /**
+     * Получает количество кадров, пропущенных активной отрисовкой.
+     *
+     * @return Количество пропущенных кадров; 0 в пассивном режиме.
+     */
+    public long getDroppedFrames() {
+        FramePacer pacer = framePacer;
+        return pacer == null ? 0 : pacer.getDroppedFrames();
+    }
+
+    /**
+     * Получает выбранного робота, которому щелчок мыши задает цель.
+     *
+     * @return Модель выбранного робота.
+     */
+    public RobotModel getSelectedRobot() {
+        return robotModels[selectedRobot];
+    }
+
+    /**
+     * Получает набор препятствий, которые рисует панель и в который она добавляет новые.
+     *
+     * @return Набор препятствий.
+     */
+    public ObstacleMap getObstacleMap() {
+        return obstacleMap;
+    }
+
+    /**
+     * Устанавливает набор препятствий; обычно тот же, по которому планируются пути роботов.
+     *
+     * @param obstacleMap Набор препятствий.
+     */
+    public void setObstacleMap(ObstacleMap obstacleMap) {
+        this.obstacleMap = obstacleMap;
+        invalidateView();
+    }
+
+    /**
+     * Подбирает масштаб и положение камеры так, чтобы были видны все роботы и их цели.
+     */
+    public void fitToFleet() {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        // Позиция и цель робота берутся из одного согласованного снимка
+        RobotSnapshot snapshot = new RobotSnapshot();
+        for (RobotModel robotModel : robotModels) {
+            robotModel.readSnapshot(snapshot);
+            minX = Math.min(minX, Math.min(snapshot.getPositionX(), snapshot.getTargetPositionX()));
+            minY = Math.min(minY, Math.min(snapshot.getPositionY(), snapshot.getTargetPositionY()));
+            maxX = Math.max(maxX, Math.max(snapshot.getPositionX(), snapshot.getTargetPositionX()));
+            maxY = Math.max(maxY, Math.max(snapshot.getPositionY(), snapshot.getTargetPositionY()));
+        }
+        camera.fit(minX - FIT_MARGIN, minY - FIT_MARGIN, maxX + FIT_MARGIN, maxY + FIT_MARGIN,
+                getWidth(), getHeight());
+        invalidateView();
+    }
+
+    /**
+     * Подписывается на события моделей и запускает темп кадров, когда панель
+     * становится отображаемой.
+     */
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        for (int i = 0; i < robotModels.length; i++) {
+            int id = i;
+            subscriptions.add(robotModels[i].getEventBus().subscribe(model -> onModelChanged(id),
+                    SimulationEventBus.INLINE, 0));
+            // Пока панель не отображалась, робот мог сдвинуться без оповещения
+            onModelChanged(id);
+        }
+        if (renderMode == RenderMode.ACTIVE) {
+            framePacer = new FramePacer(this::renderFrame,
+                    FramePacer.displayFrameRate(getGraphicsConfiguration(), maxFrameRate));
+            framePacer.start();
+        }
+    }
+
+    /**
+     * Отменяет подписки на события моделей, останавливает темп кадров и освобождает
+     * буфер, когда панель убирается с экрана.
+     */
+    @Override
+    public void removeNotify() {
+        for (SimulationEventBus<RobotModel>.Subscription subscription : subscriptions) {
+            subscription.cancel();
+        }
+        subscriptions.clear();
+        if (framePacer != null) {
+            framePacer.stop();
+            framePacer = null;
+        }
+        if (backBuffer != null) {
+            backBuffer.flush();
+            backBuffer = null;
+        }
+        super.removeNotify();
+    }
+
+    /**
+     * Сбрасывает атлас изображений робота при смене оформления.
+     */
+    @Override
+    public void updateUI() {
+        super.updateUI();
+        spriteAtlas = null;
+        bufferValid = false;
+    }
+
+    /**
+     * Отмечает, что камера сдвинулась или изменила масштаб и все изображение нужно перерисовать.
+     */
+    private void invalidateView() {
+        viewValid = false;
+        bufferValid = false;
+        if (renderMode == RenderMode.PASSIVE || framePacer == null) {
+            repaint();
+        }
+    }
+
+    /**
+     * Проверяет, что видимые объекты найдены для текущих камеры, размера панели и препятствий.
+     */
+    private boolean isViewCurrent() {
+        return viewValid && viewWidth == getWidth() && viewHeight == getHeight()
+                && drawnObstacles.version() == obstacleMap.getVersion();
+    }
+
+    /**
+     * Отрисовывает кадр активного режима: перерисовывает в буфере и копирует на экран
+     * только области, где изменилось изображение роботов или целей.
+     * Вызывается темпом кадров в потоке событий Swing.
+     */
+    private void renderFrame() {
+        if (!isShowing()) {
+            return;
+        }
+        if (backBuffer == null || !bufferValid || !isViewCurrent()
+                || backBuffer.validate(getGraphicsConfiguration()) != VolatileImage.IMAGE_OK) {
+            bufferValid = false;
+            paintImmediately(0, 0, getWidth(), getHeight());
+            return;
+        }
+        updateView(System.nanoTime(), true);
+        if (dirtyRegions.size() == 0) {
+            return;
+        }
+        Graphics2D bufferGraphics = backBuffer.createGraphics();
+        try {
+            for (int i = 0; i < dirtyRegions.size(); i++) {
+                Rectangle region = dirtyRegions.get(i);
+                bufferGraphics.setClip(region);
+                bufferGraphics.setColor(getBackground());
+                bufferGraphics.fillRect(region.x, region.y, region.width, region.height);
+                drawScene(bufferGraphics);
+            }
+        } finally {
+            bufferGraphics.dispose();
+        }
+        paintDirtyRegions();
+    }
+
+    /**
+     * Отмечает, что робот изменился и его нужно переставить в индексе; в пассивном режиме
+     * планирует перерисовку, если она еще не запланирована.
+     * Вызывается в потоке симуляции.
+     *
+     * @param id Индекс робота.
+     */
+    private void onModelChanged(int id) {
+        int word = id / Long.SIZE;
+        long bit = 1L << id;
+        long bits = changedRobots.get(word);
+        while ((bits & bit) == 0 && !changedRobots.weakCompareAndSetVolatile(word, bits, bits | bit)) {
+            bits = changedRobots.get(word);
+        }
+        // Один запрос перерисовки на все модели: события сотен роботов не переполняют очередь Swing
+        if (renderMode == RenderMode.PASSIVE && repaintPending.compareAndSet(false, true)) {
+            EventQueue.invokeLater(repaintTask);
+        }
+    }
+
+    /**
+     * Переставляет в индексе роботов, изменившихся с прошлого обновления.
+     */
+    private void applyChanges() {
+        for (int word = 0; word < changedRobots.length(); word++) {
+            if (changedRobots.get(word) == 0) {
+                continue;
+            }
+            long bits = changedRobots.getAndSet(word, 0);
+            while (bits != 0) {
+                int id = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                updateIndex(id);
+            }
+        }
+    }
+
+    /**
+     * Записывает в индекс опубликованные позицию и цель робота.
+     *
+     * @param id Индекс робота.
+     */
+    private void updateIndex(int id) {
+        robotModels[id].readSnapshot(indexSnapshot);
+        robotIndex.update(id, indexSnapshot.getPositionX(), indexSnapshot.getPositionY());
+        targetIndex.update(id, indexSnapshot.getTargetPositionX(), indexSnapshot.getTargetPositionY());
+    }
+
+    /**
+     * Находит робота под указанной точкой панели.
      *
-     * @param p Точка, в которой устанавливается цель.
+     * @param p Точка панели.
+     * @return Индекс ближайшего к точке робота или {@link SpatialGrid#NONE}, если щелчок мимо.
+     */
+    private int pickRobot(Point p) {
+        applyChanges();
+        double radius = Math.max(RobotSpriteAtlas.CELL_SIZE / 2.0, MIN_PICK_RADIUS / camera.getZoom());
+        return robotIndex.nearest(camera.toWorldX(p.getX()), camera.toWorldY(p.getY()), radius);
+    }
+
+    /**
+     * Перерисовывает области, где изменилось изображение роботов или целей.
+     * Вызывается в пассивном режиме по событиям моделей в потоке событий Swing.
+     */
+    private void repaintDirtyRegions() {
+        if (!isShowing()) {
+            return;
+        }
+        if (!isViewCurrent()) {
+            repaint();
+            return;
+        }
+        updateView(System.nanoTime(), true);
+        paintDirtyRegions();
+    }
+
+    /**
+     * Немедленно перерисовывает собранные области. Каждая область рисуется отдельно:
+     * {@link RepaintManager} объединил бы их в один охватывающий прямоугольник.
+     */
+    private void paintDirtyRegions() {
+        for (int i = 0; i < dirtyRegions.size(); i++) {
+            paintImmediately(dirtyRegions.get(i));
+        }
+    }
+
+    /**
+     * Находит роботов и цели в видимой части мира и делает их сглаженное состояние нарисованным.
+     * В индексе переставляются только изменившиеся роботы; сглаженное состояние
+     * вычисляется только для видимых роботов.
+     *
+     * @param nowNanos Момент отрисовки кадра по {@link System#nanoTime()}.
+     * @param collect  true - собрать в {@link #dirtyRegions} области, которые нужно перерисовать:
+     *                 старые и новые границы изменившихся, появившихся и исчезнувших объектов.
+     */
+    private void updateView(long nowNanos, boolean collect) {
+        dirtyRegions.clear();
+        frame++;
+        viewWidth = getWidth();
+        viewHeight = getHeight();
+        viewValid = true;
+        drawnObstacles = obstacleMap.snapshot();
+        robotSize = Math.max(1, (int) Math.round(RobotSpriteAtlas.CELL_SIZE * camera.getZoom()));
+
+        applyChanges();
+
+        // Видимый прямоугольник мира, расширенный на размер изображений и отставание сглаживания
+        double margin = RobotSpriteAtlas.CELL_SIZE / 2.0 + RobotFleet.MAX_VELOCITY
+                + (TARGET_RADIUS + 1) / camera.getZoom();
+        double minX = camera.toWorldX(0) - margin;
+        double minY = camera.toWorldY(0) - margin;
+        double maxX = camera.toWorldX(viewWidth) + margin;
+        double maxY = camera.toWorldY(viewHeight) + margin;
+        int visibleCount = 0;
+        int found = robotIndex.queryRect(minX, minY, maxX, maxY, queryResult);
+        for (int k = 0; k < found; k++) {
+            int i = queryResult[k];
+            visibleFrame[i] = frame;
+            visibleRobots[visibleCount++] = i;
+        }
+        found = targetIndex.queryRect(minX, minY, maxX, maxY, queryResult);
+        for (int k = 0; k < found; k++) {
+            int i = queryResult[k];
+            if (visibleFrame[i] != frame) {
+                visibleFrame[i] = frame;
+                visibleRobots[visibleCount++] = i;
+            }
+        }
+
+        for (int k = 0; k < visibleCount; k++) {
+            int i = visibleRobots[k];
+            RobotInterpolator interpolator = interpolators[i];
+            if (interpolator == null) {
+                interpolator = new RobotInterpolator();
+                interpolators[i] = interpolator;
+            }
+            interpolator.update(robotModels[i], nowNanos);
+            int x = (int) Math.round(camera.toScreenX(interpolator.getPositionX()));
+            int y = (int) Math.round(camera.toScreenY(interpolator.getPositionY()));
+            double direction = interpolator.getDirection();
+            RobotSnapshot snapshot = interpolator.getSnapshot();
+            int targetX = (int) Math.round(camera.toScreenX(snapshot.getTargetPositionX()));
+            int targetY = (int) Math.round(camera.toScreenY(snapshot.getTargetPositionY()));
+            if (collect) {
+                boolean wasDrawn = drawnFrame[i] == frame - 1;
+                if (!wasDrawn || x != drawnX[i] || y != drawnY[i] || direction != drawnDirection[i]) {
+                    if (wasDrawn) {
+                        dirtyRegions.add(getRobotBounds(drawnX[i], drawnY[i], bounds));
+                    }
+                    dirtyRegions.add(getRobotBounds(x, y, bounds));
+                }
+                if (!wasDrawn || targetX != drawnTargetX[i] || targetY != drawnTargetY[i]) {
+                    if (wasDrawn) {
+                        dirtyRegions.add(getTargetBounds(drawnTargetX[i], drawnTargetY[i], bounds));
+                    }
+                    dirtyRegions.add(getTargetBounds(targetX, targetY, bounds));
+                }
+            }
+            drawnX[i] = x;
+            drawnY[i] = y;
+            drawnDirection[i] = direction;
+            drawnTargetX[i] = targetX;
+            drawnTargetY[i] = targetY;
+            drawnFrame[i] = frame;
+        }
+
+        if (collect) {
+            // Стираем объекты, ушедшие из видимой части мира
+            for (int k = 0; k < drawnCount; k++) {
+                int i = drawnRobots[k];
+                if (drawnFrame[i] != frame) {
+                    dirtyRegions.add(getRobotBounds(drawnX[i], drawnY[i], bounds));
+                    dirtyRegions.add(getTargetBounds(drawnTargetX[i], drawnTargetY[i], bounds));
+                }
+            }
+        }
+        int[] previous = drawnRobots;
+        drawnRobots = visibleRobots;
+        visibleRobots = previous;
+        drawnCount = visibleCount;
+    }
+
+    /**
+     * Устанавливает цель выбранного робота в мировой точке под указанной точкой панели.
+     *
+     * @param p Точка панели, в которой устанавливается цель.
      */
     protected void setTargetPosition(Point p) {
-        robotModel.setTargetPosition((int) Math.round(p.getX()), (int) Math.round(p.getY()));
+        robotModels[selectedRobot].setTargetPosition(
+                (int) Math.round(camera.toWorldX(p.getX())),
+                (int) Math.round(camera.toWorldY(p.getY())));
+    }
+
+    /**
+     * Добавляет в конец маршрута выбранного робота мировую точку под указанной точкой панели.
+     *
+     * @param p Точка панели.
+     */
+    protected void appendWaypoint(Point p) {
+        robotModels[selectedRobot].appendWaypoint(
+                (int) Math.round(camera.toWorldX(p.getX())),
+                (int) Math.round(camera.toWorldY(p.getY())));
     }
 
     /**
      * Переопределенный метод отрисовки компонента.
+     * Рисует нарисованное состояние в пределах области отсечения; при перерисовке
+     * всей панели сначала находит видимые объекты заново.
      *
      * @param g Графический контекст для отрисовки.
      */
     @Override
     public void paint(Graphics g) {
+        if (renderMode == RenderMode.ACTIVE && paintBackBuffer(g)) {
+            return;
+        }
         super.paint(g);
-        Graphics2D g2d = (Graphics2D) g;
-        drawRobot(g2d,
-                (int) Math.round(robotModel.getPositionX()),
-                (int) Math.round(robotModel.getPositionY()),
-                robotModel.getDirection());
-        drawTarget(g2d,
-                robotModel.getTargetPositionX(),
-                robotModel.getTargetPositionY());
+        clipBounds.setBounds(0, 0, getWidth(), getHeight());
+        Rectangle clip = g.getClipBounds(clipBounds);
+        if (!isViewCurrent() || clip.contains(0, 0, getWidth(), getHeight())) {
+            updateView(System.nanoTime(), false);
+        }
+        drawScene((Graphics2D) g);
     }
 
     /**
-     * Перемещает робота в отдельном потоке.
-     * После каждого перемещения перерисовывает панель.
+     * Копирует на экран область отсечения из ускоренного буфера. Если буфер создан заново,
+     * его содержимое было потеряно или изменилась камера, сцена сначала перерисовывается
+     * в буфер целиком.
+     *
+     * @param g Графический контекст для отрисовки.
+     * @return false, если буфер создать не удалось и нужно рисовать напрямую.
      */
-    protected void moveRobot() {
-        Thread moveThread = new Thread(() -> {
-            while (!robotModel.isAtTarget()) {
-                robotModel.moveRobot();
+    private boolean paintBackBuffer(Graphics g) {
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) {
+            return true;
+        }
+        do {
+            if (backBuffer == null || backBuffer.getWidth() != width || backBuffer.getHeight() != height) {
+                if (backBuffer != null) {
+                    backBuffer.flush();
+                }
+                backBuffer = createVolatileImage(width, height);
+                if (backBuffer == null) {
+                    return false;
+                }
+                bufferValid = false;
+            }
+            int status = backBuffer.validate(getGraphicsConfiguration());
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                backBuffer.flush();
+                backBuffer = null;
+                continue;
+            }
+            if (status == VolatileImage.IMAGE_RESTORED || !bufferValid || !isViewCurrent()) {
+                updateView(System.nanoTime(), false);
+                Graphics2D bufferGraphics = backBuffer.createGraphics();
                 try {
-                    Thread.sleep(10);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    bufferGraphics.setColor(getBackground());
+                    bufferGraphics.fillRect(0, 0, width, height);
+                    drawScene(bufferGraphics);
+                } finally {
+                    bufferGraphics.dispose();
                 }
+                bufferValid = true;
             }
-        });
-        moveThread.start();
+            clipBounds.setBounds(0, 0, width, height);
+            Rectangle clip = g.getClipBounds(clipBounds);
+            g.drawImage(backBuffer,
+                    clip.x, clip.y, clip.x + clip.width, clip.y + clip.height,
+                    clip.x, clip.y, clip.x + clip.width, clip.y + clip.height,
+                    null);
+        } while (backBuffer == null || backBuffer.contentsLost());
+        return true;
     }
 
     /**
-     * Обновляет отображение панели при изменении состояния модели.
+     * Рисует нарисованное состояние видимых роботов и целей, пропуская то,
+     * что не попадает в область отсечения.
      *
-     * @param o   Наблюдаемый объект.
-     * @param arg Аргументы изменения состояния (не используется).
+     * @param g2d Графический контекст для отрисовки.
      */
-    @Override
-    public void update(Observable o, Object arg) {
-        repaint();
+    private void drawScene(Graphics2D g2d) {
+        clipBounds.setBounds(0, 0, getWidth(), getHeight());
+        Rectangle clip = g2d.getClipBounds(clipBounds);
+        for (Obstacle obstacle : drawnObstacles.obstacles()) {
+            drawObstacle(g2d, obstacle, clip);
+        }
+        for (int k = 0; k < drawnCount; k++) {
+            int i = drawnRobots[k];
+            if (clip.intersects(getRobotBounds(drawnX[i], drawnY[i], bounds))) {
+                drawRobot(g2d, drawnX[i], drawnY[i], drawnDirection[i]);
+                if (i == selectedRobot) {
+                    drawSelection(g2d, bounds);
+                }
+            }
+            if (clip.intersects(getTargetBounds(drawnTargetX[i], drawnTargetY[i], bounds))) {
+                drawTarget(g2d, drawnTargetX[i], drawnTargetY[i]);
+            }
+        }
+        if (draftStart != null) {
+            g2d.setColor(Color.DARK_GRAY);
+            g2d.drawRect(draft.x, draft.y, draft.width, draft.height);
+        }
+    }
+
+    /**
+     * Рисует препятствие в текущем масштабе камеры, если оно попадает в область отсечения.
+     *
+     * @param g        Графический контекст для отрисовки.
+     * @param obstacle Препятствие.
+     * @param clip     Область отсечения.
+     */
+    private void drawObstacle(Graphics2D g, Obstacle obstacle, Rectangle clip) {
+        int left = (int) Math.floor(camera.toScreenX(obstacle.getMinX()));
+        int top = (int) Math.floor(camera.toScreenY(obstacle.getMinY()));
+        int right = (int) Math.ceil(camera.toScreenX(obstacle.getMaxX()));
+        int bottom = (int) Math.ceil(camera.toScreenY(obstacle.getMaxY()));
+        if (!clip.intersects(left, top, right - left + 1, bottom - top + 1)) {
+            return;
+        }
+        int count = obstacle.getVertexCount();
+        if (obstacleXs.length < count) {
+            obstacleXs = new int[count];
+            obstacleYs = new int[count];
+        }
+        for (int i = 0; i < count; i++) {
+            obstacleXs[i] = (int) Math.round(camera.toScreenX(obstacle.getX(i)));
+            obstacleYs[i] = (int) Math.round(camera.toScreenY(obstacle.getY(i)));
+        }
+        g.setColor(Color.LIGHT_GRAY);
+        g.fillPolygon(obstacleXs, obstacleYs, count);
+        g.setColor(Color.DARK_GRAY);
+        g.drawPolygon(obstacleXs, obstacleYs, count);
     }
 
     /**
@@ -116,41 +831,98 @@ public class GameVisualizer extends JPanel implements Observer {
     }
 
     /**
-     * Рисует робота по указанным координатам и направлению.
+     * Рисует робота по указанным координатам и направлению в текущем масштабе камеры.
      *
      * @param g         Графический контекст для отрисовки.
-     * @param x         Координата X центра робота.
-     * @param y         Координата Y центра робота.
+     * @param x         Координата X центра робота на панели.
+     * @param y         Координата Y центра робота на панели.
      * @param direction Направление робота в радианах.
      */
     private void drawRobot(Graphics2D g, int x, int y, double direction) {
-        int robotCenterX = (int) Math.round(robotModel.getPositionX());
-        int robotCenterY = (int) Math.round(robotModel.getPositionY());
-        AffineTransform t = AffineTransform.getRotateInstance(direction, robotCenterX, robotCenterY);
-        g.setTransform(t);
-        g.setColor(Color.MAGENTA);
-        fillOval(g, robotCenterX, robotCenterY, 30, 10);
-        g.setColor(Color.BLACK);
-        drawOval(g, robotCenterX, robotCenterY, 30, 10);
-        g.setColor(Color.WHITE);
-        fillOval(g, robotCenterX + 10, robotCenterY, 5, 5);
-        g.setColor(Color.BLACK);
-        drawOval(g, robotCenterX + 10, robotCenterY, 5, 5);
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        if (spriteAtlas == null || !spriteAtlas.isCompatible(configuration)) {
+            // Масштаб дисплея изменился (окно перенесено на другой монитор) или сменилось оформление
+            spriteAtlas = new RobotSpriteAtlas(configuration, RobotSpriteAtlas.DEFAULT_HEADINGS);
+        }
+        spriteAtlas.draw(g, x, y, direction, robotSize);
+    }
+
+    /**
+     * Обводит выбранного робота.
+     *
+     * @param g      Графический контекст для отрисовки.
+     * @param bounds Границы изображения робота.
+     */
+    private static void drawSelection(Graphics2D g, Rectangle bounds) {
+        g.setColor(Color.BLUE);
+        g.drawOval(bounds.x, bounds.y, bounds.width - 1, bounds.height - 1);
+    }
+
+    /**
+     * Вычисляет границы изображения робота в текущем масштабе камеры.
+     *
+     * @param x    Координата X центра робота на панели.
+     * @param y    Координата Y центра робота на панели.
+     * @param into Прямоугольник, в который записываются границы.
+     * @return Переданный прямоугольник.
+     */
+    private Rectangle getRobotBounds(int x, int y, Rectangle into) {
+        RobotSpriteAtlas.getBounds(x, y, robotSize, into);
+        return into;
+    }
+
+    /**
+     * Вычисляет границы изображения цели.
+     *
+     * @param x    Координата X центра цели на панели.
+     * @param y    Координата Y центра цели на панели.
+     * @param into Прямоугольник, в который записываются границы.
+     * @return Переданный прямоугольник.
+     */
+    private static Rectangle getTargetBounds(int x, int y, Rectangle into) {
+        // Овал 5x5 с контуром и пиксель запаса
+        into.setBounds(x - TARGET_RADIUS, y - TARGET_RADIUS, 2 * TARGET_RADIUS + 2, 2 * TARGET_RADIUS + 2);
+        return into;
     }
 
     /**
      * Рисует цель по указанным координатам.
      *
      * @param g Графический контекст для отрисовки.
-     * @param x Координата X центра цели.
-     * @param y Координата Y центра цели.
+     * @param x Координата X центра цели на панели.
+     * @param y Координата Y центра цели на панели.
      */
     private void drawTarget(Graphics2D g, int x, int y) {
-        AffineTransform t = AffineTransform.getRotateInstance(0, 0, 0);
-        g.setTransform(t);
         g.setColor(Color.GREEN);
         fillOval(g, x, y, 5, 5);
         g.setColor(Color.BLACK);
         drawOval(g, x, y, 5, 5);
     }
+
+    /**
+     * Читает режим отрисовки из системного свойства {@value #RENDER_MODE_PROPERTY}.
+     *
+     * @return Режим отрисовки; по умолчанию - активный.
+     */
+    private static RenderMode renderModeProperty() {
+        String value = System.getProperty(RENDER_MODE_PROPERTY, "active");
+        return "passive".equalsIgnoreCase(value) ? RenderMode.PASSIVE : RenderMode.ACTIVE;
+    }
+
+    /**
+     * Читает ограничение частоты кадров из системного свойства {@value #MAX_FRAME_RATE_PROPERTY}.
+     *
+     * @return Ограничение частоты кадров; 0, если свойство не задано или задано неверно.
+     */
+    private static double maxFrameRateProperty() {
+        String value = System.getProperty(MAX_FRAME_RATE_PROPERTY);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
 }
@@ -0,0 +1,277 @@
+package game;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Симуляция робота без графического интерфейса.
+ * Выполняет шаги так быстро, как позволяет процессор, без привязки к реальному времени,
+ * и не загружает классы AWT/Swing.
+ */
+public class HeadlessSimulation {
+    /**
+     * Максимальное количество шагов на одну цель по умолчанию.
+     */
+    public static final long DEFAULT_MAX_STEPS_PER_TARGET = 1_000_000;
+
+    private final Scenario scenario;
+    private final long maxStepsPerTarget;
+    private final double stepsPerSecond;
+    private final boolean exact;
+    private final MathBackend math;
+
+    /**
+     * Сценарий симуляции: начальная позиция и последовательность целей.
+     *
+     * @param startX  Начальная координата X робота.
+     * @param startY  Начальная координата Y робота.
+     * @param targets Цели в порядке посещения, каждая - пара {x, y}.
+     */
+    public record Scenario(double startX, double startY, List<int[]> targets) {
+        /**
+         * Загружает сценарий из текстового файла.
+         * Строка {@code start X Y} задает начальную позицию, каждая строка
+         * {@code target X Y} добавляет цель. Строки, начинающиеся с {@code #}, пропускаются.
+         *
+         * @param path Путь к файлу сценария.
+         * @return Загруженный сценарий.
+         * @throws IOException Если файл не удалось прочитать или он имеет неверный формат.
+         */
+        public static Scenario load(Path path) throws IOException {
+            double startX = 0;
+            double startY = 0;
+            List<int[]> targets = new ArrayList<>();
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                int lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#")) {
+                        continue;
+                    }
+                    String[] parts = line.split("\\s+");
+                    if (parts.length != 3) {
+                        throw new IOException(path + ":" + lineNumber + ": expected '<start|target> X Y'");
+                    }
+                    try {
+                        switch (parts[0]) {
+                            case "start" -> {
+                                startX = Double.parseDouble(parts[1]);
+                                startY = Double.parseDouble(parts[2]);
+                            }
+                            case "target" -> targets.add(new int[]{
+                                    Integer.parseInt(parts[1]), Integer.parseInt(parts[2])});
+                            default -> throw new IOException(path + ":" + lineNumber
+                                    + ": unknown keyword '" + parts[0] + "'");
+                        }
+                    } catch (NumberFormatException e) {
+                        throw new IOException(path + ":" + lineNumber + ": " + e.getMessage(), e);
+                    }
+                }
+            }
+            return new Scenario(startX, startY, Collections.unmodifiableList(targets));
+        }
+    }
+
+    /**
+     * Результат движения к одной цели.
+     *
+     * @param targetX Координата X цели.
+     * @param targetY Координата Y цели.
+     * @param steps   Количество шагов, затраченных на движение к цели.
+     * @param reached true, если цель достигнута до исчерпания лимита шагов.
+     */
+    public record TargetResult(int targetX, int targetY, long steps, boolean reached) {
+    }
+
+    /**
+     * Итог прогона сценария.
+     *
+     * @param targets     Результаты по каждой цели.
+     * @param totalSteps  Общее количество шагов.
+     * @param finalX      Итоговая координата X робота.
+     * @param finalY      Итоговая координата Y робота.
+     * @param finalDirect Итоговое направление робота.
+     * @param wallNanos   Затраченное реальное время в наносекундах.
+     */
+    public record Report(List<TargetResult> targets, long totalSteps,
+                         double finalX, double finalY, double finalDirect, long wallNanos) {
+    }
+
+    /**
+     * Отклонение траектории от эталонной реализации математики {@link MathBackend#EXACT}.
+     *
+     * @param maxPositionError  Наибольшее расстояние между позициями роботов на одном шаге.
+     * @param maxDirectionError Наибольшая разность направлений на одном шаге в радианах.
+     * @param stepDifference    Суммарная по целям разность количества шагов до достижения цели.
+     * @param comparedSteps     Количество сравненных шагов.
+     */
+    public record Drift(double maxPositionError, double maxDirectionError,
+                        long stepDifference, long comparedSteps) {
+    }
+
+    /**
+     * Конструктор класса HeadlessSimulation.
+     *
+     * @param scenario          Сценарий симуляции.
+     * @param maxStepsPerTarget Максимальное количество шагов на одну цель.
+     * @param stepsPerSecond    Частота шагов, по которой шаги пересчитываются в модельное время.
+     * @param exact             true - считать каждый шаг, false - перематывать прямолинейные
+     *                          участки с помощью {@link RobotModel#advance(long)}.
+     * @param math              Реализация математики кинематики.
+     */
+    public HeadlessSimulation(Scenario scenario, long maxStepsPerTarget, double stepsPerSecond,
+                              boolean exact, MathBackend math) {
+        this.scenario = scenario;
+        this.maxStepsPerTarget = maxStepsPerTarget;
+        this.stepsPerSecond = stepsPerSecond;
+        this.exact = exact;
+        this.math = math;
+    }
+
+    /**
+     * Выполняет сценарий: последовательно ведет робота к каждой цели.
+     *
+     * @return Итог прогона.
+     */
+    public Report run() {
+        long started = System.nanoTime();
+        RobotModel robot = new RobotModel(scenario.startX(), scenario.startY());
+        robot.getFleet().setMathBackend(math);
+        List<TargetResult> results = new ArrayList<>(scenario.targets().size());
+        long totalSteps = 0;
+        for (int[] target : scenario.targets()) {
+            robot.setTargetPosition(target[0], target[1]);
+            long steps = 0;
+            if (exact) {
+                while (!robot.isAtTarget() && steps < maxStepsPerTarget) {
+                    robot.moveRobot();
+                    steps++;
+                }
+            } else {
+                steps = robot.advance(maxStepsPerTarget);
+            }
+            totalSteps += steps;
+            results.add(new TargetResult(target[0], target[1], steps, robot.isAtTarget()));
+        }
+        RobotSnapshot state = robot.getSnapshot();
+        return new Report(results, totalSteps,
+                state.getPositionX(), state.getPositionY(), state.getDirection(),
+                System.nanoTime() - started);
+    }
+
+    /**
+     * Прогоняет сценарий одновременно с эталонной и выбранной реализацией математики,
+     * шаг за шагом сравнивая состояние двух роботов. Перед каждой целью робот
+     * переносится в точку, где остановился эталонный. Используется для проверки того,
+     * что быстрая реализация не уводит траекторию дальше допустимого.
+     *
+     * @return Отклонение траектории от эталонной.
+     */
+    public Drift measureDrift() {
+        RobotModel reference = new RobotModel(scenario.startX(), scenario.startY());
+        RobotModel robot = new RobotModel(scenario.startX(), scenario.startY());
+        robot.getFleet().setMathBackend(math);
+        double maxPositionError = 0;
+        double maxDirectionError = 0;
+        long stepDifference = 0;
+        long comparedSteps = 0;
+        RobotSnapshot referenceState = new RobotSnapshot();
+        RobotSnapshot state = new RobotSnapshot();
+        for (int[] target : scenario.targets()) {
+            // Отклонение считается по каждой цели отдельно: роботы в пределах радиуса
+            // достижения останавливаются в разных точках, и это не ошибка математики
+            reference.readSnapshot(referenceState);
+            robot.updatePosition(referenceState.getPositionX(), referenceState.getPositionY(),
+                    referenceState.getDirection());
+            reference.setTargetPosition(target[0], target[1]);
+            robot.setTargetPosition(target[0], target[1]);
+            long referenceSteps = 0;
+            long steps = 0;
+            boolean referenceMoving = !reference.isAtTarget();
+            boolean moving = !robot.isAtTarget();
+            while ((referenceMoving || moving) && Math.max(referenceSteps, steps) < maxStepsPerTarget) {
+                if (referenceMoving) {
+                    reference.moveRobot();
+                    referenceSteps++;
+                    referenceMoving = !reference.isAtTarget();
+                }
+                if (moving) {
+                    robot.moveRobot();
+                    steps++;
+                    moving = !robot.isAtTarget();
+                }
+                reference.readSnapshot(referenceState);
+                robot.readSnapshot(state);
+                double diffX = state.getPositionX() - referenceState.getPositionX();
+                double diffY = state.getPositionY() - referenceState.getPositionY();
+                double directionError = Math.abs(state.getDirection() - referenceState.getDirection());
+                maxPositionError = Math.max(maxPositionError, Math.sqrt(diffX * diffX + diffY * diffY));
+                maxDirectionError = Math.max(maxDirectionError,
+                        Math.min(directionError, 2 * Math.PI - directionError));
+                comparedSteps++;
+            }
+            stepDifference += Math.abs(steps - referenceSteps);
+        }
+        return new Drift(maxPositionError, maxDirectionError, stepDifference, comparedSteps);
+    }
+
+    /**
+     * Проверяет, что отклонение траектории не превышает пределов, заданных
+     * в {@link MathBackend}: {@link MathBackend#MAX_POSITION_DRIFT},
+     * {@link MathBackend#MAX_DIRECTION_DRIFT} и {@link MathBackend#MAX_STEP_DRIFT_PER_TARGET}.
+     *
+     * @param drift Отклонение траектории этого сценария.
+     * @return true, если отклонение в пределах.
+     */
+    public boolean isWithinBounds(Drift drift) {
+        // Запас на округление: отклонение на целый шаг равно пределу с точностью до последнего бита
+        double tolerance = 1e-9;
+        long maxStepDifference = Math.max(1,
+                (long) Math.ceil(MathBackend.MAX_STEP_DRIFT_PER_TARGET * scenario.targets().size()));
+        return drift.maxPositionError() <= MathBackend.MAX_POSITION_DRIFT + tolerance
+                && drift.maxDirectionError() <= MathBackend.MAX_DIRECTION_DRIFT + tolerance
+                && drift.stepDifference() <= maxStepDifference;
+    }
+
+    /**
+     * Печатает отклонение траектории от эталонной и результат проверки пределов.
+     *
+     * @param drift Отклонение траектории.
+     * @param out   Поток вывода.
+     */
+    public void print(Drift drift, PrintStream out) {
+        out.printf(Locale.ROOT, "math=%s compared_steps=%d%n", math, drift.comparedSteps());
+        out.printf(Locale.ROOT, "max_position_error=%.3e max_direction_error=%.3e step_difference=%d%n",
+                drift.maxPositionError(), drift.maxDirectionError(), drift.stepDifference());
+        out.printf(Locale.ROOT, "within_bounds=%b%n", isWithinBounds(drift));
+    }
+
+    /**
+     * Печатает отчет о прогоне: шаги и модельное время по каждой цели и итоговое состояние.
+     *
+     * @param report Итог прогона.
+     * @param out    Поток вывода.
+     */
+    public void print(Report report, PrintStream out) {
+        out.println("target_x\ttarget_y\tsteps\tsim_seconds\treached");
+        for (TargetResult result : report.targets()) {
+            out.printf(Locale.ROOT, "%d\t%d\t%d\t%.2f\t%b%n",
+                    result.targetX(), result.targetY(), result.steps(),
+                    result.steps() / stepsPerSecond, result.reached());
+        }
+        out.printf(Locale.ROOT, "total_steps=%d sim_seconds=%.2f wall_ms=%.3f%n",
+                report.totalSteps(), report.totalSteps() / stepsPerSecond, report.wallNanos() / 1e6);
+        out.printf(Locale.ROOT, "final x=%.3f y=%.3f direction=%.5f%n",
+                report.finalX(), report.finalY(), report.finalDirect());
+    }
+}
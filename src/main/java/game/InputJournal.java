@@ -0,0 +1,241 @@
+package game;
+
+import log.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Журнал входных воздействий симуляции для точного воспроизведения прогона.
+ * <p>
+ * Записываются не щелчки мыши, а то, что модели роботов делают с парком: смена цели
+ * (в том числе точки пути планировщика и очереди маршрута) и принудительная установка
+ * позиции. Каждая запись помечена номером шага робота - количеством его шагов движения
+ * до воздействия, - поэтому воспроизведение не зависит ни от часов, ни от того, сколько
+ * времени занимало планирование пути. Кинематика парка детерминирована, и по журналу
+ * траектория восстанавливается шаг в шаг (см. {@link JournalReplay}).
+ * <p>
+ * Формат двоичный, только дописывается. Заголовок: сигнатура, версия, частота шагов
+ * и начальное состояние каждого робота (позиция, курс, цель, реализация математики,
+ * радиус достижения). Записи: тип, время от начала записи в наносекундах (только для
+ * воспроизведения в заданном темпе), номер робота и номер шага в виде varint и данные.
+ * Запись смены цели содержит также позицию и курс робота перед сменой - по ним
+ * воспроизведение проверяет, что траектория не разошлась. В конце журнала записывается
+ * итоговое состояние роботов. Случайных величин в симуляции нет, поэтому зерна
+ * генераторов не записываются.
+ * <p>
+ * Записи делает поток симуляции; журнал нужно создать до запуска часов симуляции.
+ * При ошибке ввода-вывода запись прекращается, а ошибка пишется в протокол.
+ */
+public final class InputJournal implements Closeable {
+    /**
+     * Системное свойство с путем файла журнала для оконного приложения.
+     */
+    public static final String JOURNAL_PROPERTY = "robots.journal";
+
+    static final int MAGIC = 0x524A4E4C;
+    static final int VERSION = 1;
+    static final int TARGET = 1;
+    static final int POSITION = 2;
+    static final int END = 3;
+
+    private final DataOutputStream out;
+    private final List<RobotModel> robots;
+    private final long startNanos = System.nanoTime();
+    private boolean failed;
+    private boolean closed;
+
+    private InputJournal(DataOutputStream out, List<RobotModel> robots) {
+        this.out = out;
+        this.robots = robots;
+    }
+
+    /**
+     * Создает журнал, записывает заголовок и подключает журнал к моделям роботов.
+     * Номер робота в журнале - его индекс в списке.
+     *
+     * @param file           Файл журнала; существующий файл перезаписывается.
+     * @param stepsPerSecond Частота шагов симуляции.
+     * @param robots         Модели роботов; часы симуляции еще не запущены.
+     * @return Журнал.
+     * @throws IOException Если файл не удалось создать.
+     */
+    public static InputJournal record(Path file, double stepsPerSecond, List<RobotModel> robots) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeDouble(stepsPerSecond);
+            writeVarLong(out, robots.size());
+            for (RobotModel robot : robots) {
+                RobotFleet fleet = robot.getFleet();
+                int index = robot.getIndex();
+                out.writeByte(fleet.getMathBackend().ordinal());
+                out.writeDouble(fleet.getSettleRadius());
+                out.writeDouble(fleet.getPositionX(index));
+                out.writeDouble(fleet.getPositionY(index));
+                out.writeDouble(fleet.getDirection(index));
+                writeVarLong(out, zigZag(fleet.getTargetPositionX(index)));
+                writeVarLong(out, zigZag(fleet.getTargetPositionY(index)));
+            }
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+        InputJournal journal = new InputJournal(out, List.copyOf(robots));
+        for (int i = 0; i < robots.size(); i++) {
+            robots.get(i).setInputJournal(journal, i);
+        }
+        return journal;
+    }
+
+    /**
+     * Записывает смену цели робота. Вызывается потоком симуляции.
+     *
+     * @param robot     Номер робота в журнале.
+     * @param tick      Количество шагов движения робота до смены цели.
+     * @param x         Координата X робота.
+     * @param y         Координата Y робота.
+     * @param direction Курс робота.
+     * @param targetX   Координата X новой цели.
+     * @param targetY   Координата Y новой цели.
+     * @param pivot     true - робот разворачивается к цели на месте.
+     */
+    synchronized void recordTarget(int robot, long tick, double x, double y, double direction,
+                                   int targetX, int targetY, boolean pivot) {
+        if (closed || failed) {
+            return;
+        }
+        try {
+            writeHeader(TARGET, robot, tick);
+            out.writeDouble(x);
+            out.writeDouble(y);
+            out.writeDouble(direction);
+            writeVarLong(out, zigZag(targetX));
+            writeVarLong(out, zigZag(targetY));
+            out.writeBoolean(pivot);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Записывает принудительную установку позиции робота. Вызывается потоком симуляции.
+     *
+     * @param robot     Номер робота в журнале.
+     * @param tick      Количество шагов движения робота до установки.
+     * @param x         Новая координата X.
+     * @param y         Новая координата Y.
+     * @param direction Новый курс.
+     */
+    synchronized void recordPosition(int robot, long tick, double x, double y, double direction) {
+        if (closed || failed) {
+            return;
+        }
+        try {
+            writeHeader(POSITION, robot, tick);
+            out.writeDouble(x);
+            out.writeDouble(y);
+            out.writeDouble(direction);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Записывает итоговое состояние роботов и закрывает файл.
+     * Вызывается после остановки часов симуляции.
+     *
+     * @throws IOException Если запись не удалась.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (!failed) {
+                RobotSnapshot snapshot = new RobotSnapshot();
+                out.writeByte(END);
+                writeVarLong(out, System.nanoTime() - startNanos);
+                for (RobotModel robot : robots) {
+                    robot.readSnapshot(snapshot);
+                    writeVarLong(out, snapshot.getTick());
+                    out.writeDouble(snapshot.getPositionX());
+                    out.writeDouble(snapshot.getPositionY());
+                    out.writeDouble(snapshot.getDirection());
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Записывает тип, время, номер робота и номер шага записи.
+     */
+    private void writeHeader(int type, int robot, long tick) throws IOException {
+        out.writeByte(type);
+        writeVarLong(out, System.nanoTime() - startNanos);
+        writeVarLong(out, robot);
+        writeVarLong(out, tick);
+    }
+
+    /**
+     * Прекращает запись после ошибки ввода-вывода.
+     */
+    private void fail(IOException e) {
+        failed = true;
+        Logger.error("Запись журнала входных воздействий прекращена: " + e.getMessage());
+    }
+
+    /**
+     * Записывает неотрицательное число по 7 бит в байте, младшими группами вперед.
+     */
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Читает число, записанное {@link #writeVarLong}.
+     */
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    /**
+     * Переводит целое со знаком в неотрицательное так, что малые по модулю числа
+     * занимают мало байт.
+     */
+    static long zigZag(int value) {
+        return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Обратное преобразование к {@link #zigZag}.
+     */
+    static int unZigZag(long value) {
+        int v = (int) value;
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
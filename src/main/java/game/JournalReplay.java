@@ -0,0 +1,252 @@
+package game;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Воспроизведение журнала входных воздействий {@link InputJournal}.
+ * <p>
+ * Каждый робот журнала восстанавливается в отдельном парке с той же реализацией
+ * математики и радиусом достижения. Перед каждой записью робот делает точные шаги
+ * {@link RobotFleet#moveRobot(int)}, пока их число не совпадет с номером шага записи,
+ * после чего воздействие применяется. Позиция из записи смены цели и итоговое
+ * состояние сравниваются с воспроизведенными бит в бит; расхождения подсчитываются.
+ * Роботы не влияют друг на друга, поэтому шаги выполняются только по мере надобности
+ * и без часов: час записи воспроизводится за доли секунды. Журнал, оборванный
+ * аварийным завершением, воспроизводится до последней целой записи.
+ */
+public class JournalReplay {
+    /**
+     * Итоговое состояние робота.
+     *
+     * @param tick      Количество шагов движения.
+     * @param x         Координата X.
+     * @param y         Координата Y.
+     * @param direction Курс.
+     */
+    public record RobotState(long tick, double x, double y, double direction) {
+    }
+
+    /**
+     * Итог воспроизведения.
+     *
+     * @param robots           Итоговое состояние роботов.
+     * @param events           Количество примененных воздействий.
+     * @param steps            Количество выполненных шагов движения.
+     * @param mismatches       Количество проверок, не совпавших с журналом.
+     * @param maxPositionError Наибольшее расхождение позиции с журналом.
+     * @param complete         true, если журнал закрыт штатно и итог сверен.
+     * @param recordedNanos    Длительность записи в наносекундах.
+     * @param wallNanos        Затраченное реальное время в наносекундах.
+     */
+    public record Result(List<RobotState> robots, long events, long steps, long mismatches,
+                         double maxPositionError, boolean complete, long recordedNanos, long wallNanos) {
+    }
+
+    private final Path file;
+    private RobotFleet[] fleets;
+    private long[] ticks;
+    private long steps;
+    private long mismatches;
+    private double maxPositionError;
+
+    /**
+     * Конструктор класса JournalReplay.
+     *
+     * @param file Файл журнала.
+     */
+    public JournalReplay(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Воспроизводит журнал.
+     *
+     * @param speed Темп относительно записи: 0 - без ожидания, 1 - в реальном времени,
+     *              2 - вдвое быстрее и т.д.
+     * @return Итог воспроизведения.
+     * @throws IOException Если файл не читается или не является журналом.
+     */
+    public Result run(double speed) throws IOException {
+        long started = System.nanoTime();
+        steps = 0;
+        mismatches = 0;
+        maxPositionError = 0;
+        long events = 0;
+        long recordedNanos = 0;
+        boolean complete = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            readHeader(in);
+            try {
+                while (true) {
+                    int type;
+                    try {
+                        type = in.readUnsignedByte();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    recordedNanos = InputJournal.readVarLong(in);
+                    pace(started, recordedNanos, speed);
+                    if (type == InputJournal.END) {
+                        for (int i = 0; i < fleets.length; i++) {
+                            catchUp(i, InputJournal.readVarLong(in));
+                            check(i, in.readDouble(), in.readDouble(), in.readDouble());
+                        }
+                        complete = true;
+                        break;
+                    }
+                    int robot = (int) InputJournal.readVarLong(in);
+                    if (robot < 0 || robot >= fleets.length) {
+                        throw new IOException("robot " + robot + " out of journal robots " + fleets.length);
+                    }
+                    catchUp(robot, InputJournal.readVarLong(in));
+                    RobotFleet fleet = fleets[robot];
+                    switch (type) {
+                        case InputJournal.TARGET -> {
+                            check(robot, in.readDouble(), in.readDouble(), in.readDouble());
+                            int targetX = InputJournal.unZigZag(InputJournal.readVarLong(in));
+                            int targetY = InputJournal.unZigZag(InputJournal.readVarLong(in));
+                            boolean pivot = in.readBoolean();
+                            fleet.setTargetPosition(0, targetX, targetY);
+                            if (pivot) {
+                                fleet.pivotToTarget(0);
+                            }
+                        }
+                        case InputJournal.POSITION -> fleet.setPosition(0, in.readDouble(), in.readDouble(), in.readDouble());
+                        default -> throw new IOException("unknown journal record type " + type);
+                    }
+                    events++;
+                }
+            } catch (EOFException e) {
+                // Последняя запись оборвана: журнал не был закрыт
+            }
+        }
+        List<RobotState> robots = new ArrayList<>(fleets.length);
+        for (int i = 0; i < fleets.length; i++) {
+            robots.add(new RobotState(ticks[i], fleets[i].getPositionX(0), fleets[i].getPositionY(0),
+                    fleets[i].getDirection(0)));
+        }
+        return new Result(robots, events, steps, mismatches, maxPositionError, complete,
+                recordedNanos, System.nanoTime() - started);
+    }
+
+    /**
+     * Печатает итог воспроизведения.
+     *
+     * @param result Итог воспроизведения.
+     * @param out    Поток вывода.
+     */
+    public void print(Result result, PrintStream out) {
+        out.println("robot\ttick\tx\ty\tdirection");
+        for (int i = 0; i < result.robots().size(); i++) {
+            RobotState robot = result.robots().get(i);
+            out.printf(Locale.ROOT, "%d\t%d\t%.3f\t%.3f\t%.5f%n",
+                    i, robot.tick(), robot.x(), robot.y(), robot.direction());
+        }
+        out.printf(Locale.ROOT, "events=%d steps=%d recorded_seconds=%.2f wall_ms=%.3f%n",
+                result.events(), result.steps(), result.recordedNanos() / 1e9, result.wallNanos() / 1e6);
+        out.printf(Locale.ROOT, "complete=%b mismatches=%d max_position_error=%.3e%n",
+                result.complete(), result.mismatches(), result.maxPositionError());
+    }
+
+    /**
+     * Читает заголовок журнала и восстанавливает начальное состояние роботов.
+     */
+    private void readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != InputJournal.MAGIC) {
+            throw new IOException("not a robots input journal: " + file);
+        }
+        int version = in.readUnsignedShort();
+        if (version != InputJournal.VERSION) {
+            throw new IOException("unsupported journal version " + version);
+        }
+        // Частота шагов нужна только для пересчета в модельное время
+        in.readDouble();
+        long count = InputJournal.readVarLong(in);
+        if (count > Integer.MAX_VALUE) {
+            throw new IOException("too many robots in journal: " + count);
+        }
+        fleets = new RobotFleet[(int) count];
+        ticks = new long[(int) count];
+        MathBackend[] backends = MathBackend.values();
+        for (int i = 0; i < fleets.length; i++) {
+            int backend = in.readUnsignedByte();
+            if (backend >= backends.length) {
+                throw new IOException("unknown math backend " + backend);
+            }
+            RobotFleet fleet = new RobotFleet(1);
+            fleet.setMathBackend(backends[backend]);
+            fleet.setSettleRadius(in.readDouble());
+            double x = in.readDouble();
+            double y = in.readDouble();
+            double direction = in.readDouble();
+            fleet.add(x, y);
+            fleet.setPosition(0, x, y, direction);
+            int targetX = InputJournal.unZigZag(InputJournal.readVarLong(in));
+            int targetY = InputJournal.unZigZag(InputJournal.readVarLong(in));
+            if (targetX != fleet.getTargetPositionX(0) || targetY != fleet.getTargetPositionY(0)) {
+                fleet.setTargetPosition(0, targetX, targetY);
+            }
+            fleets[i] = fleet;
+        }
+    }
+
+    /**
+     * Выполняет шаги робота до заданного номера шага. Если робот остановился раньше,
+     * траектория разошлась с записанной: расхождение подсчитывается, а номер шага
+     * принимается из журнала.
+     */
+    private void catchUp(int robot, long tick) {
+        RobotFleet fleet = fleets[robot];
+        while (ticks[robot] < tick) {
+            if (!fleet.isActive(0)) {
+                mismatches++;
+                ticks[robot] = tick;
+                return;
+            }
+            fleet.moveRobot(0);
+            ticks[robot]++;
+            steps++;
+        }
+    }
+
+    /**
+     * Сравнивает состояние робота с записанным в журнале.
+     */
+    private void check(int robot, double x, double y, double direction) {
+        RobotFleet fleet = fleets[robot];
+        double dx = fleet.getPositionX(0) - x;
+        double dy = fleet.getPositionY(0) - y;
+        if (dx != 0 || dy != 0 || fleet.getDirection(0) != direction) {
+            mismatches++;
+            maxPositionError = Math.max(maxPositionError, Math.sqrt(dx * dx + dy * dy));
+        }
+    }
+
+    /**
+     * Ждет момента записи с учетом темпа воспроизведения.
+     */
+    private static void pace(long started, long recordedNanos, double speed) {
+        if (speed <= 0) {
+            return;
+        }
+        long due = started + (long) (recordedNanos / speed);
+        long wait;
+        while ((wait = due - System.nanoTime()) > 0) {
+            try {
+                Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package game;
+
+/**
+ * Математика кинематики робота.
+ * {@link #EXACT} использует {@link Math} и дает эталонные траектории, совпадающие
+ * с исходной моделью до бита. {@link #FAST} заменяет тригонометрию таблицей и
+ * многочленом с ограниченной ошибкой и не вызывает {@code Math.sin/cos/atan2}.
+ */
+public enum MathBackend {
+    /**
+     * Эталонная реализация на {@link Math}.
+     */
+    EXACT {
+        @Override
+        public double sin(double angle) {
+            return Math.sin(angle);
+        }
+
+        @Override
+        public double cos(double angle) {
+            return Math.cos(angle);
+        }
+
+        @Override
+        public double atan2(double y, double x) {
+            return Math.atan2(y, x);
+        }
+
+        @Override
+        public double normalize(double angle) {
+            while (angle < 0) {
+                angle += TWO_PI;
+            }
+            while (angle >= TWO_PI) {
+                angle -= TWO_PI;
+            }
+            return angle;
+        }
+
+        @Override
+        public double angleDifference(double diffX, double diffY, double heading, double cos, double sin) {
+            double angleDifference = normalize(Math.atan2(diffY, diffX)) - heading;
+            if (angleDifference > Math.PI) {
+                angleDifference -= TWO_PI;
+            } else if (angleDifference < -Math.PI) {
+                angleDifference += TWO_PI;
+            }
+            return angleDifference;
+        }
+    },
+
+    /**
+     * Быстрая реализация: синус и косинус берутся из таблицы на {@value #TABLE_SIZE}
+     * точек с линейной интерполяцией (ошибка не более 3e-7), арктангенс считается
+     * многочленом 11-й степени (ошибка не более 2e-6 рад), угол приводится к [0, 2π)
+     * через {@link Math#floor(double)} без циклов. Угол до цели вычисляется как угол между
+     * единичным вектором курса и вектором до цели, поэтому приведение разности углов не нужно.
+     */
+    FAST {
+        @Override
+        public double sin(double angle) {
+            return SineTable.lookup(angle, 0);
+        }
+
+        @Override
+        public double cos(double angle) {
+            return SineTable.lookup(angle, TABLE_SIZE / 4);
+        }
+
+        @Override
+        public double atan2(double y, double x) {
+            double absX = Math.abs(x);
+            double absY = Math.abs(y);
+            double max = Math.max(absX, absY);
+            if (max == 0) {
+                return 0;
+            }
+            double ratio = Math.min(absX, absY) / max;
+            double square = ratio * ratio;
+            double angle = ratio * (0.99997726 + square * (-0.33262347 + square * (0.19354346
+                    + square * (-0.11643287 + square * (0.05265332 + square * -0.01172120)))));
+            if (absY > absX) {
+                angle = Math.PI / 2 - angle;
+            }
+            if (x < 0) {
+                angle = Math.PI - angle;
+            }
+            return y < 0 ? -angle : angle;
+        }
+
+        @Override
+        public double normalize(double angle) {
+            double normalized = angle - TWO_PI * Math.floor(angle * (1 / TWO_PI));
+            // Для малых отрицательных углов сумма округляется ровно до 2π
+            return normalized < TWO_PI ? normalized : 0;
+        }
+
+        @Override
+        public double angleDifference(double diffX, double diffY, double heading, double cos, double sin) {
+            return atan2(cos * diffY - sin * diffX, cos * diffX + sin * diffY);
+        }
+    };
+
+    /**
+     * Количество точек таблицы синуса на полный оборот.
+     */
+    public static final int TABLE_SIZE = 4096;
+
+    /**
+     * Допустимое отклонение позиции робота с {@link #FAST} от эталонной траектории на одном
+     * шаге: один шаг движения. Кинематика дискретна, и ошибка приближения может перенести
+     * решение (начать поворот, остановиться у цели) на соседний шаг, но не дальше.
+     */
+    public static final double MAX_POSITION_DRIFT = RobotFleet.MAX_VELOCITY;
+
+    /**
+     * Допустимое отклонение курса робота с {@link #FAST} от эталонного на одном шаге
+     * в радианах: два шага поворота.
+     */
+    public static final double MAX_DIRECTION_DRIFT = 2 * RobotFleet.MAX_ANGULAR_VELOCITY;
+
+    /**
+     * Допустимая разность количества шагов до целей на одну цель сценария для {@link #FAST};
+     * для любого сценария допускается не меньше одного шага. Таблица на 4096 точек расходится
+     * с эталоном примерно на 0.003 шага на цель, таблица на 256 точек - на 0.13.
+     */
+    public static final double MAX_STEP_DRIFT_PER_TARGET = 0.05;
+
+    private static final double TWO_PI = 2 * Math.PI;
+
+    /**
+     * Вычисляет синус угла.
+     *
+     * @param angle Угол в радианах.
+     * @return Синус угла.
+     */
+    public abstract double sin(double angle);
+
+    /**
+     * Вычисляет косинус угла.
+     *
+     * @param angle Угол в радианах.
+     * @return Косинус угла.
+     */
+    public abstract double cos(double angle);
+
+    /**
+     * Вычисляет угол вектора (x, y).
+     *
+     * @param y Координата Y вектора.
+     * @param x Координата X вектора.
+     * @return Угол в радианах в диапазоне [-π, π].
+     */
+    public abstract double atan2(double y, double x);
+
+    /**
+     * Приводит угол к нормализованному виду в радианах.
+     *
+     * @param angle Угол в радианах.
+     * @return Нормализованный угол в диапазоне [0, 2π).
+     */
+    public abstract double normalize(double angle);
+
+    /**
+     * Вычисляет разность между направлением на цель и курсом, приведенную к [-π, π].
+     *
+     * @param diffX   Смещение до цели по X.
+     * @param diffY   Смещение до цели по Y.
+     * @param heading Курс робота в радианах.
+     * @param cos     Косинус курса, вычисленный этой же реализацией.
+     * @param sin     Синус курса, вычисленный этой же реализацией.
+     * @return Угол поворота к цели в радианах.
+     */
+    public abstract double angleDifference(double diffX, double diffY, double heading, double cos, double sin);
+
+    /**
+     * Таблица синуса, создаваемая при первом использовании быстрой реализации.
+     */
+    private static final class SineTable {
+        // Последняя точка повторяет первую, чтобы интерполяция не выходила за массив
+        static final double[] VALUES = new double[TABLE_SIZE + 1];
+        static final double SCALE = TABLE_SIZE / TWO_PI;
+
+        static {
+            for (int i = 0; i <= TABLE_SIZE; i++) {
+                VALUES[i] = Math.sin(i / SCALE);
+            }
+        }
+
+        /**
+         * Интерполирует синус по таблице.
+         *
+         * @param angle  Угол в радианах.
+         * @param offset Сдвиг индекса; четверть таблицы дает косинус.
+         * @return Значение синуса со сдвигом.
+         */
+        static double lookup(double angle, int offset) {
+            double position = angle * SCALE;
+            double floor = Math.floor(position);
+            int index = ((int) floor + offset) & (TABLE_SIZE - 1);
+            double fraction = position - floor;
+            double value = VALUES[index];
+            return value + (VALUES[index + 1] - value) * fraction;
+        }
+    }
+}
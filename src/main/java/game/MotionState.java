@@ -0,0 +1,44 @@
+package game;
+
+/**
+ * Состояние движения робота.
+ */
+public enum MotionState {
+    /**
+     * Робот не получал цели и стоит на начальной позиции.
+     */
+    IDLE,
+    /**
+     * Робот разворачивается к цели.
+     */
+    TURNING,
+    /**
+     * Курс захвачен, робот движется к цели.
+     */
+    CRUISING,
+    /**
+     * Робот остановился в пределах радиуса достижения цели.
+     */
+    SETTLED;
+
+    private static final MotionState[] VALUES = values();
+
+    /**
+     * Возвращает состояние по его порядковому номеру без копирования массива значений.
+     *
+     * @param ordinal Порядковый номер состояния.
+     * @return Состояние движения.
+     */
+    static MotionState of(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * Проверяет, требует ли робот в этом состоянии шагов симуляции.
+     *
+     * @return true для разворота и движения к цели.
+     */
+    public boolean isActive() {
+        return this == TURNING || this == CRUISING;
+    }
+}
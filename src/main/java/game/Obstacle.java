@@ -0,0 +1,176 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Неподвижное препятствие: простой многоугольник в мировых координатах.
+ * Экземпляры неизменяемы, поэтому их можно читать из любых потоков.
+ */
+public final class Obstacle {
+    private final double[] xs;
+    private final double[] ys;
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+
+    private Obstacle(double[] xs, double[] ys) {
+        this.xs = xs;
+        this.ys = ys;
+        double left = Double.POSITIVE_INFINITY;
+        double top = Double.POSITIVE_INFINITY;
+        double right = Double.NEGATIVE_INFINITY;
+        double bottom = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < xs.length; i++) {
+            left = Math.min(left, xs[i]);
+            top = Math.min(top, ys[i]);
+            right = Math.max(right, xs[i]);
+            bottom = Math.max(bottom, ys[i]);
+        }
+        this.minX = left;
+        this.minY = top;
+        this.maxX = right;
+        this.maxY = bottom;
+    }
+
+    /**
+     * Создает прямоугольное препятствие.
+     *
+     * @param minX Левая граница.
+     * @param minY Верхняя граница.
+     * @param maxX Правая граница.
+     * @param maxY Нижняя граница.
+     * @return Препятствие.
+     */
+    public static Obstacle rectangle(double minX, double minY, double maxX, double maxY) {
+        if (!(maxX > minX) || !(maxY > minY)) {
+            throw new IllegalArgumentException("empty rectangle: " + minX + ", " + minY + ", " + maxX + ", " + maxY);
+        }
+        return new Obstacle(new double[]{minX, maxX, maxX, minX}, new double[]{minY, minY, maxY, maxY});
+    }
+
+    /**
+     * Создает многоугольное препятствие.
+     *
+     * @param xs Координаты X вершин по порядку обхода.
+     * @param ys Координаты Y вершин по порядку обхода.
+     * @return Препятствие.
+     */
+    public static Obstacle polygon(double[] xs, double[] ys) {
+        if (xs.length != ys.length || xs.length < 3) {
+            throw new IllegalArgumentException("polygon needs at least 3 vertices with both coordinates");
+        }
+        return new Obstacle(Arrays.copyOf(xs, xs.length), Arrays.copyOf(ys, ys.length));
+    }
+
+    /**
+     * Возвращает количество вершин.
+     *
+     * @return Количество вершин.
+     */
+    public int getVertexCount() {
+        return xs.length;
+    }
+
+    /**
+     * Возвращает координату X вершины.
+     *
+     * @param index Индекс вершины.
+     * @return Координата X.
+     */
+    public double getX(int index) {
+        return xs[index];
+    }
+
+    /**
+     * Возвращает координату Y вершины.
+     *
+     * @param index Индекс вершины.
+     * @return Координата Y.
+     */
+    public double getY(int index) {
+        return ys[index];
+    }
+
+    /**
+     * Возвращает левую границу охватывающего прямоугольника.
+     *
+     * @return Наименьшая координата X вершин.
+     */
+    public double getMinX() {
+        return minX;
+    }
+
+    /**
+     * Возвращает верхнюю границу охватывающего прямоугольника.
+     *
+     * @return Наименьшая координата Y вершин.
+     */
+    public double getMinY() {
+        return minY;
+    }
+
+    /**
+     * Возвращает правую границу охватывающего прямоугольника.
+     *
+     * @return Наибольшая координата X вершин.
+     */
+    public double getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * Возвращает нижнюю границу охватывающего прямоугольника.
+     *
+     * @return Наибольшая координата Y вершин.
+     */
+    public double getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * Проверяет, лежит ли точка внутри многоугольника (правило четности пересечений).
+     *
+     * @param x Координата X.
+     * @param y Координата Y.
+     * @return true, если точка внутри.
+     */
+    public boolean contains(double x, double y) {
+        if (x < minX || x > maxX || y < minY || y > maxY) {
+            return false;
+        }
+        boolean inside = false;
+        for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+            if ((ys[i] > y) != (ys[j] > y)
+                    && x < (xs[j] - xs[i]) * (y - ys[i]) / (ys[j] - ys[i]) + xs[i]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Вычисляет расстояние от точки до препятствия.
+     *
+     * @param x Координата X.
+     * @param y Координата Y.
+     * @return 0 для точки внутри, иначе расстояние до ближайшей стороны.
+     */
+    public double distance(double x, double y) {
+        if (contains(x, y)) {
+            return 0;
+        }
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+            double edgeX = xs[i] - xs[j];
+            double edgeY = ys[i] - ys[j];
+            double lengthSquared = edgeX * edgeX + edgeY * edgeY;
+            double t = lengthSquared == 0 ? 0
+                    : Math.max(0, Math.min(1, ((x - xs[j]) * edgeX + (y - ys[j]) * edgeY) / lengthSquared));
+            double dx = xs[j] + edgeX * t - x;
+            double dy = ys[j] + edgeY * t - y;
+            best = Math.min(best, dx * dx + dy * dy);
+        }
+        return Math.sqrt(best);
+    }
+}
@@ -0,0 +1,82 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Набор неподвижных препятствий мира.
+ * Изменения публикуются неизменяемым снимком через одну volatile-ссылку,
+ * поэтому планировщик и отрисовка читают согласованный набор без блокировок.
+ * Каждое изменение увеличивает версию; по ней потребители узнают, что построенные
+ * по препятствиям данные (сетка занятости, кэш путей) устарели.
+ */
+public class ObstacleMap {
+    /**
+     * Согласованный снимок набора препятствий.
+     *
+     * @param version   Версия набора.
+     * @param obstacles Препятствия; список неизменяем.
+     */
+    public record Snapshot(long version, List<Obstacle> obstacles) {
+    }
+
+    private volatile Snapshot snapshot = new Snapshot(0, List.of());
+
+    /**
+     * Возвращает текущий снимок набора.
+     *
+     * @return Снимок препятствий.
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Возвращает версию набора.
+     *
+     * @return Версия; меняется при каждом изменении.
+     */
+    public long getVersion() {
+        return snapshot.version();
+    }
+
+    /**
+     * Добавляет препятствие.
+     *
+     * @param obstacle Препятствие.
+     */
+    public synchronized void add(Obstacle obstacle) {
+        List<Obstacle> obstacles = new ArrayList<>(snapshot.obstacles());
+        obstacles.add(obstacle);
+        publish(obstacles);
+    }
+
+    /**
+     * Удаляет препятствие.
+     *
+     * @param obstacle Препятствие.
+     * @return true, если препятствие было в наборе.
+     */
+    public synchronized boolean remove(Obstacle obstacle) {
+        List<Obstacle> obstacles = new ArrayList<>(snapshot.obstacles());
+        if (!obstacles.remove(obstacle)) {
+            return false;
+        }
+        publish(obstacles);
+        return true;
+    }
+
+    /**
+     * Удаляет все препятствия.
+     */
+    public synchronized void clear() {
+        publish(List.of());
+    }
+
+    /**
+     * Публикует новый снимок со следующей версией.
+     */
+    private void publish(List<Obstacle> obstacles) {
+        snapshot = new Snapshot(snapshot.version() + 1, List.copyOf(obstacles));
+    }
+}
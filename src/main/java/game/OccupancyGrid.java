@@ -0,0 +1,183 @@
+package game;
+
+import java.util.List;
+
+/**
+ * Сетка занятости, построенная по снимку препятствий.
+ * Покрывает охватывающий прямоугольник препятствий; ячейки за ее пределами свободны.
+ * Ячейка занята, если ее центр ближе {@code clearance} к какому-либо препятствию,
+ * то есть препятствия раздуты на полкорпуса робота и путь по свободным ячейкам
+ * можно считать путем центра робота. Неизменяема после построения.
+ */
+final class OccupancyGrid {
+    private final double cellSize;
+    private final long version;
+    private final int minCellX;
+    private final int minCellY;
+    private final int width;
+    private final int height;
+    private final boolean[] blocked;
+
+    /**
+     * Строит сетку.
+     *
+     * @param snapshot  Снимок препятствий.
+     * @param cellSize  Размер ячейки.
+     * @param clearance Расстояние до препятствия, на котором ячейка считается занятой.
+     */
+    OccupancyGrid(ObstacleMap.Snapshot snapshot, double cellSize, double clearance) {
+        this.cellSize = cellSize;
+        this.version = snapshot.version();
+        List<Obstacle> obstacles = snapshot.obstacles();
+        if (obstacles.isEmpty()) {
+            minCellX = 0;
+            minCellY = 0;
+            width = 0;
+            height = 0;
+            blocked = new boolean[0];
+            return;
+        }
+        double left = Double.POSITIVE_INFINITY;
+        double top = Double.POSITIVE_INFINITY;
+        double right = Double.NEGATIVE_INFINITY;
+        double bottom = Double.NEGATIVE_INFINITY;
+        for (Obstacle obstacle : obstacles) {
+            left = Math.min(left, obstacle.getMinX() - clearance);
+            top = Math.min(top, obstacle.getMinY() - clearance);
+            right = Math.max(right, obstacle.getMaxX() + clearance);
+            bottom = Math.max(bottom, obstacle.getMaxY() + clearance);
+        }
+        minCellX = cell(left);
+        minCellY = cell(top);
+        width = cell(right) - minCellX + 1;
+        height = cell(bottom) - minCellY + 1;
+        blocked = new boolean[Math.multiplyExact(width, height)];
+        for (Obstacle obstacle : obstacles) {
+            // Проверяются только ячейки охватывающего прямоугольника раздутого препятствия
+            int fromX = cell(obstacle.getMinX() - clearance);
+            int toX = cell(obstacle.getMaxX() + clearance);
+            int fromY = cell(obstacle.getMinY() - clearance);
+            int toY = cell(obstacle.getMaxY() + clearance);
+            for (int cy = fromY; cy <= toY; cy++) {
+                for (int cx = fromX; cx <= toX; cx++) {
+                    int index = (cy - minCellY) * width + cx - minCellX;
+                    if (!blocked[index] && obstacle.distance(center(cx), center(cy)) <= clearance) {
+                        blocked[index] = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Возвращает версию набора препятствий, по которому построена сетка.
+     *
+     * @return Версия набора.
+     */
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * Проверяет, пуста ли сетка (препятствий нет).
+     *
+     * @return true, если занятых ячеек нет.
+     */
+    boolean isEmpty() {
+        return blocked.length == 0;
+    }
+
+    /**
+     * Возвращает номер первой ячейки сетки по X.
+     *
+     * @return Номер ячейки.
+     */
+    int getMinCellX() {
+        return minCellX;
+    }
+
+    /**
+     * Возвращает номер первой ячейки сетки по Y.
+     *
+     * @return Номер ячейки.
+     */
+    int getMinCellY() {
+        return minCellY;
+    }
+
+    /**
+     * Возвращает номер последней ячейки сетки по X.
+     *
+     * @return Номер ячейки.
+     */
+    int getMaxCellX() {
+        return minCellX + width - 1;
+    }
+
+    /**
+     * Возвращает номер последней ячейки сетки по Y.
+     *
+     * @return Номер ячейки.
+     */
+    int getMaxCellY() {
+        return minCellY + height - 1;
+    }
+
+    /**
+     * Проверяет, занята ли ячейка.
+     *
+     * @param cx Номер ячейки по X.
+     * @param cy Номер ячейки по Y.
+     * @return true, если ячейка занята; ячейки за пределами сетки свободны.
+     */
+    boolean isBlocked(int cx, int cy) {
+        int x = cx - minCellX;
+        int y = cy - minCellY;
+        return x >= 0 && y >= 0 && x < width && y < height && blocked[y * width + x];
+    }
+
+    /**
+     * Проверяет, проходит ли отрезок только по свободным ячейкам.
+     * Отрезок проверяется точками с шагом в половину ячейки.
+     *
+     * @param x0 Координата X начала.
+     * @param y0 Координата Y начала.
+     * @param x1 Координата X конца.
+     * @param y1 Координата Y конца.
+     * @return true, если на отрезке нет занятых ячеек.
+     */
+    boolean isClear(double x0, double y0, double x1, double y1) {
+        if (isEmpty()) {
+            return true;
+        }
+        double length = Math.hypot(x1 - x0, y1 - y0);
+        int samples = (int) Math.ceil(length / (cellSize / 2));
+        for (int i = 0; i <= samples; i++) {
+            double t = samples == 0 ? 0 : (double) i / samples;
+            if (isBlocked(cell(x0 + (x1 - x0) * t), cell(y0 + (y1 - y0) * t))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Вычисляет номер ячейки по координате.
+     *
+     * @param coordinate Мировая координата.
+     * @return Номер ячейки.
+     */
+    int cell(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    /**
+     * Вычисляет координату центра ячейки.
+     *
+     * @param cell Номер ячейки.
+     * @return Мировая координата центра.
+     */
+    double center(int cell) {
+        return (cell + 0.5) * cellSize;
+    }
+}
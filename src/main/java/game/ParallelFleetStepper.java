@@ -0,0 +1,240 @@
+package game;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Параллельное выполнение шага парка роботов на {@link ForkJoinPool}.
+ * Диапазон индексов делится на блоки, кратные {@value #BLOCK_ALIGNMENT} роботам, и каждый
+ * блок шагается независимо. Шаг робота зависит только от его собственного состояния и цели,
+ * поэтому результат совпадает с последовательным шагом {@link RobotFleet#step()}.
+ * Небольшие парки шагаются последовательно в вызывающем потоке.
+ * <p>
+ * С объездом соседей {@link CollisionAvoidance} шаг состоит из двух параллельных фаз:
+ * сначала все блоки вычисляют поправки объезда по позициям до шага, затем все блоки
+ * движутся. Индекс соседей обновляется между шагами в вызывающем потоке.
+ * <p>
+ * Дерево задач строится один раз на размер парка и переиспользуется каждым шагом,
+ * поэтому шаг не выделяет памяти. Перед повторным запуском дерева пул должен затихнуть:
+ * {@link java.util.concurrent.ForkJoinTask#reinitialize()} допустим, только когда ни один
+ * поток не обращается к задаче.
+ */
+public class ParallelFleetStepper implements Simulated, AutoCloseable {
+    /**
+     * Размер блока по умолчанию: около 128 КБ состояния на блок.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    /**
+     * Размер парка, начиная с которого шаг выполняется параллельно.
+     */
+    public static final int DEFAULT_SEQUENTIAL_THRESHOLD = 16384;
+
+    /**
+     * Размер блока по умолчанию для шага с объездом соседей. Восприятие робота дороже
+     * его движения примерно на порядок, поэтому блоки и порог меньше.
+     */
+    public static final int AVOIDANCE_CHUNK_SIZE = 1024;
+
+    /**
+     * Размер парка с объездом соседей, начиная с которого шаг выполняется параллельно.
+     */
+    public static final int AVOIDANCE_SEQUENTIAL_THRESHOLD = 2048;
+
+    /**
+     * Кратность размера блока. 64 элемента занимают целое число 64-байтовых строк кэша
+     * и в столбцах double, и в столбцах byte и boolean, поэтому соседние блоки делят
+     * не больше одной строки на столбец: границы не выровнены из-за заголовка массива.
+     * Это уменьшает ложное разделение строк кэша между потоками, но не исключает его.
+     */
+    private static final int BLOCK_ALIGNMENT = 64;
+
+    private final RobotFleet fleet;
+    private final CollisionAvoidance avoidance;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final int sequentialThreshold;
+    // Буфер соседей фазы восприятия: один на поток, чтобы шаг не выделял память
+    private final ThreadLocal<int[]> neighborBuffers =
+            ThreadLocal.withInitial(() -> new int[CollisionAvoidance.NEIGHBOR_BUFFER_SIZE]);
+    // Дерево задач для текущего размера парка и фаза, которую оно выполняет; меняются
+    // только вызывающим потоком до запуска в пуле, запуск делает их видимыми задачам
+    private StepTask root;
+    private boolean sensing;
+
+    /**
+     * Конструктор класса ParallelFleetStepper с параметрами блоков по умолчанию.
+     *
+     * @param fleet       Парк роботов.
+     * @param parallelism Количество потоков.
+     */
+    public ParallelFleetStepper(RobotFleet fleet, int parallelism) {
+        this(fleet, parallelism, DEFAULT_CHUNK_SIZE, DEFAULT_SEQUENTIAL_THRESHOLD);
+    }
+
+    /**
+     * Конструктор класса ParallelFleetStepper.
+     *
+     * @param fleet               Парк роботов.
+     * @param parallelism         Количество потоков.
+     * @param chunkSize           Максимальное количество роботов в одном блоке.
+     * @param sequentialThreshold Размер парка, ниже которого шаг выполняется последовательно.
+     */
+    public ParallelFleetStepper(RobotFleet fleet, int parallelism, int chunkSize, int sequentialThreshold) {
+        this(fleet, null, parallelism, chunkSize, sequentialThreshold);
+    }
+
+    /**
+     * Конструктор класса ParallelFleetStepper для парка с объездом соседей
+     * и параметрами блоков по умолчанию.
+     *
+     * @param avoidance   Объезд соседей парка.
+     * @param parallelism Количество потоков.
+     */
+    public ParallelFleetStepper(CollisionAvoidance avoidance, int parallelism) {
+        this(avoidance.getFleet(), avoidance, parallelism, AVOIDANCE_CHUNK_SIZE, AVOIDANCE_SEQUENTIAL_THRESHOLD);
+    }
+
+    private ParallelFleetStepper(RobotFleet fleet, CollisionAvoidance avoidance, int parallelism,
+                                 int chunkSize, int sequentialThreshold) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        this.fleet = fleet;
+        this.avoidance = avoidance;
+        this.pool = new ForkJoinPool(parallelism);
+        this.chunkSize = alignChunkSize(chunkSize);
+        this.sequentialThreshold = sequentialThreshold;
+    }
+
+    /**
+     * Возвращает количество потоков пула.
+     *
+     * @return Параллелизм пула.
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Выполняет шаг для всех роботов парка.
+     *
+     * @return true, если хотя бы один робот продолжает движение.
+     */
+    @Override
+    public boolean step() {
+        int size = fleet.size();
+        if (size < sequentialThreshold || pool.getParallelism() == 1) {
+            return avoidance != null ? avoidance.step() : fleet.step(0, size) > 0;
+        }
+        if (root == null || root.to != size) {
+            root = new StepTask(0, size);
+        }
+        if (avoidance != null) {
+            avoidance.updateIndex();
+            avoidance.setContacts(run(true));
+        }
+        return run(false) > 0;
+    }
+
+    /**
+     * Выполняет одну фазу шага деревом задач.
+     *
+     * @param sense true - фаза восприятия, false - фаза движения.
+     * @return Сумма результатов блоков.
+     */
+    private int run(boolean sense) {
+        sensing = sense;
+        // Поток, завершивший задачу, оповещает ожидающих уже после того, как join вернул
+        // управление; сброшенная раньше задача теряет оповещение следующего запуска.
+        // Затихший пул к задачам больше не обращается
+        pool.awaitQuiescence(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        root.reset();
+        pool.invoke(root);
+        return root.result;
+    }
+
+    /**
+     * Устанавливает обработчик пробуждения парка.
+     *
+     * @param handler Обработчик пробуждения.
+     */
+    @Override
+    public void setWakeUpHandler(Runnable handler) {
+        fleet.setWakeUpHandler(handler);
+    }
+
+    /**
+     * Останавливает потоки пула.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Округляет размер блока вверх до кратного {@value #BLOCK_ALIGNMENT}.
+     *
+     * @param size Размер блока.
+     * @return Выровненный размер блока.
+     */
+    private static int alignChunkSize(int size) {
+        return (size + BLOCK_ALIGNMENT - 1) / BLOCK_ALIGNMENT * BLOCK_ALIGNMENT;
+    }
+
+    /**
+     * Задача шага диапазона роботов. Диапазон делится пополам до размера блока один раз,
+     * при построении дерева. Результат - количество роботов диапазона, продолжающих
+     * движение, а в фазе восприятия - количество найденных соприкосновений.
+     */
+    private final class StepTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final StepTask left;
+        private final StepTask right;
+        private int result;
+
+        StepTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+            if (to - from <= chunkSize) {
+                left = null;
+                right = null;
+            } else {
+                int chunks = (to - from + chunkSize - 1) / chunkSize;
+                int middle = from + chunks / 2 * chunkSize;
+                left = new StepTask(from, middle);
+                right = new StepTask(middle, to);
+            }
+        }
+
+        /**
+         * Готовит завершенные задачи дерева к следующему запуску.
+         */
+        void reset() {
+            reinitialize();
+            if (left != null) {
+                left.reset();
+                right.reset();
+            }
+        }
+
+        @Override
+        protected void compute() {
+            if (left == null) {
+                result = sensing
+                        ? avoidance.sense(from, to, neighborBuffers.get())
+                        : fleet.step(from, to);
+                return;
+            }
+            left.fork();
+            right.compute();
+            left.join();
+            result = left.result + right.result;
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package game;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import log.Logger;
+
+/**
+ * Планировщик путей в обход препятствий.
+ * <p>
+ * Путь ищется алгоритмом A* на сетке занятости {@link OccupancyGrid} с восемью соседями
+ * ячейки и октильной эвристикой; срезать угол занятой ячейки по диагонали нельзя.
+ * Найденная цепочка ячеек сглаживается «натягиванием нити»: из каждой точки пути
+ * берется самая дальняя следующая точка, видимая по прямой, поэтому робот едет
+ * отрезками, а не ступеньками сетки.
+ * <p>
+ * Цепочки ячеек кэшируются по паре ячеек старта и цели; кэш и сетка сбрасываются,
+ * когда меняется версия набора препятствий. Сглаживание выполняется для каждого запроса,
+ * так как концы пути берутся точными, а не центрами ячеек.
+ * <p>
+ * Асинхронные запросы {@link #requestPath} выполняются выделенным потоком, поэтому
+ * поток симуляции не ждет планирования. Запросы одного отправителя объединяются:
+ * если робот сменил цель несколько раз, пока планировщик был занят, строится
+ * только путь к последней цели. Получатель вызывается всегда: если поиск упал
+ * или планировщик уже закрыт, он получает null, как для недостижимой цели.
+ */
+public class PathPlanner implements AutoCloseable {
+    /**
+     * Размер ячейки сетки занятости.
+     */
+    public static final double CELL_SIZE = 10;
+
+    /**
+     * Зазор между центром робота и препятствием: половина длины корпуса,
+     * чтобы робот не задевал препятствие при любом курсе.
+     */
+    public static final double CLEARANCE = CollisionAvoidance.BODY_HALF_LENGTH;
+
+    /**
+     * Наибольшая площадь области поиска в ячейках.
+     */
+    public static final int MAX_SEARCH_CELLS = 1 << 20;
+
+    /**
+     * Наибольшее количество путей в кэше.
+     */
+    public static final int CACHE_SIZE = 256;
+
+    /**
+     * Запас области поиска вокруг старта, цели и препятствий в ячейках.
+     */
+    private static final int SEARCH_MARGIN = 4;
+
+    private static final float DIAGONAL_COST = (float) Math.sqrt(2);
+
+    // Признак пути, который не удалось найти; тоже кэшируется
+    private static final int[] NO_PATH = new int[0];
+
+    /**
+     * Запрос пути, ожидающий планировщика.
+     */
+    private record Request(double startX, double startY, double goalX, double goalY, Consumer<double[]> callback) {
+    }
+
+    /**
+     * Ключ кэша: ячейки старта и цели.
+     */
+    private record CellPair(int startX, int startY, int goalX, int goalY) {
+    }
+
+    private final ObstacleMap obstacles;
+    private final ExecutorService executor = SimulationEventBus.dedicatedThread("path-planner");
+    private final ConcurrentHashMap<Object, Request> pending = new ConcurrentHashMap<>();
+    private final Map<CellPair, int[]> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CellPair, int[]> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private OccupancyGrid grid;
+
+    // Состояние поиска переиспользуется между запросами; поколение отличает
+    // данные текущего поиска от оставшихся с прошлых без очистки массивов
+    private float[] cost = new float[0];
+    private int[] parent = new int[0];
+    private int[] seen = new int[0];
+    private int[] closed = new int[0];
+    private int generation;
+    private int[] heap = new int[64];
+    private float[] heapKeys = new float[64];
+    private int heapSize;
+
+    private volatile long cacheHits;
+    private volatile long cacheMisses;
+    private volatile boolean shutDown;
+
+    /**
+     * Конструктор класса PathPlanner.
+     *
+     * @param obstacles Набор препятствий.
+     */
+    public PathPlanner(ObstacleMap obstacles) {
+        this.obstacles = obstacles;
+    }
+
+    /**
+     * Получает набор препятствий.
+     *
+     * @return Набор препятствий.
+     */
+    public ObstacleMap getObstacles() {
+        return obstacles;
+    }
+
+    /**
+     * Получает количество запросов, цепочка ячеек для которых взята из кэша.
+     *
+     * @return Количество попаданий в кэш.
+     */
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * Получает количество запросов, для которых выполнялся поиск.
+     *
+     * @return Количество промахов кэша.
+     */
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * Запрашивает путь асинхронно. Может вызываться из любого потока.
+     * Результат передается потоком планировщика; если до начала планирования тот же
+     * отправитель запросил другой путь, выполняется только последний запрос.
+     * После {@link #close()} получатель сразу вызывается в вызывающем потоке с null.
+     *
+     * @param requester Отправитель, по которому объединяются запросы.
+     * @param startX    Координата X старта.
+     * @param startY    Координата Y старта.
+     * @param goalX     Координата X цели.
+     * @param goalY     Координата Y цели.
+     * @param callback  Получатель пути (см. {@link #findPath}).
+     */
+    public void requestPath(Object requester, double startX, double startY, double goalX, double goalY,
+                            Consumer<double[]> callback) {
+        if (shutDown) {
+            callback.accept(null);
+            return;
+        }
+        Request request = new Request(startX, startY, goalX, goalY, callback);
+        if (pending.put(requester, request) == null) {
+            try {
+                executor.execute(() -> plan(pending.remove(requester)));
+            } catch (RejectedExecutionException e) {
+                // Планировщик закрыт между проверкой и постановкой задачи
+                Request latest = pending.remove(requester);
+                if (latest != null) {
+                    latest.callback().accept(null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Выполняет запрос в потоке планировщика. Ошибка поиска протоколируется,
+     * и получатель получает null, чтобы робот не остался ждать пути.
+     */
+    private void plan(Request request) {
+        double[] points = null;
+        try {
+            points = findPath(request.startX(), request.startY(), request.goalX(), request.goalY());
+        } catch (RuntimeException | OutOfMemoryError e) {
+            Logger.error("Ошибка планирования пути к ({}, {}): {}", request.goalX(), request.goalY(), e);
+        }
+        request.callback().accept(points);
+    }
+
+    /**
+     * Строит путь синхронно в вызывающем потоке.
+     *
+     * @param startX Координата X старта.
+     * @param startY Координата Y старта.
+     * @param goalX  Координата X цели.
+     * @param goalY  Координата Y цели.
+     * @return Точки пути парами X, Y без старта; последняя точка совпадает с целью.
+     * null, если цель внутри препятствия, недостижима или область поиска слишком велика.
+     */
+    public synchronized double[] findPath(double startX, double startY, double goalX, double goalY) {
+        OccupancyGrid grid = currentGrid();
+        if (grid.isClear(startX, startY, goalX, goalY)) {
+            return new double[]{goalX, goalY};
+        }
+        int goalCellX = grid.cell(goalX);
+        int goalCellY = grid.cell(goalY);
+        if (grid.isBlocked(goalCellX, goalCellY)) {
+            return null;
+        }
+        CellPair key = new CellPair(grid.cell(startX), grid.cell(startY), goalCellX, goalCellY);
+        int[] cells = cache.get(key);
+        if (cells == null) {
+            cacheMisses++;
+            cells = search(grid, key);
+            cache.put(key, cells);
+        } else {
+            cacheHits++;
+        }
+        return cells == NO_PATH ? null : smooth(grid, startX, startY, goalX, goalY, cells);
+    }
+
+    /**
+     * Останавливает поток планировщика. Необработанные запросы отбрасываются,
+     * новые запросы сразу получают null.
+     */
+    @Override
+    public void close() {
+        shutDown = true;
+        executor.shutdownNow();
+        pending.clear();
+    }
+
+    /**
+     * Возвращает сетку занятости для текущей версии препятствий,
+     * перестраивая ее и сбрасывая кэш после изменения препятствий.
+     */
+    private OccupancyGrid currentGrid() {
+        ObstacleMap.Snapshot snapshot = obstacles.snapshot();
+        if (grid == null || grid.getVersion() != snapshot.version()) {
+            grid = new OccupancyGrid(snapshot, CELL_SIZE, CLEARANCE);
+            cache.clear();
+        }
+        return grid;
+    }
+
+    /**
+     * Ищет цепочку ячеек от старта до цели алгоритмом A*.
+     *
+     * @return Номера ячеек парами X, Y от старта до цели или {@link #NO_PATH}.
+     */
+    private int[] search(OccupancyGrid grid, CellPair key) {
+        // Вне сетки занятости ячейки свободны, поэтому достаточно охватить сетку, старт и цель
+        int minX = Math.min(Math.min(key.startX(), key.goalX()), grid.getMinCellX()) - SEARCH_MARGIN;
+        int minY = Math.min(Math.min(key.startY(), key.goalY()), grid.getMinCellY()) - SEARCH_MARGIN;
+        int maxX = Math.max(Math.max(key.startX(), key.goalX()), grid.getMaxCellX()) + SEARCH_MARGIN;
+        int maxY = Math.max(Math.max(key.startY(), key.goalY()), grid.getMaxCellY()) + SEARCH_MARGIN;
+        long area = (long) (maxX - minX + 1) * (maxY - minY + 1);
+        if (area > MAX_SEARCH_CELLS) {
+            return NO_PATH;
+        }
+        int width = maxX - minX + 1;
+        int height = maxY - minY + 1;
+        prepare((int) area);
+        int start = (key.startY() - minY) * width + key.startX() - minX;
+        int goal = (key.goalY() - minY) * width + key.goalX() - minX;
+        seen[start] = generation;
+        cost[start] = 0;
+        parent[start] = -1;
+        push(start, heuristic(key.startX(), key.startY(), key.goalX(), key.goalY()));
+        while (heapSize > 0) {
+            int node = pop();
+            if (closed[node] == generation) {
+                // Устаревшая запись: узел уже раскрыт с меньшей стоимостью
+                continue;
+            }
+            if (node == goal) {
+                return reconstruct(goal, width, minX, minY);
+            }
+            closed[node] = generation;
+            int x = node % width;
+            int y = node / width;
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    int nx = x + dx;
+                    int ny = y + dy;
+                    if ((dx == 0 && dy == 0) || nx < 0 || ny < 0 || nx >= width || ny >= height
+                            || grid.isBlocked(nx + minX, ny + minY)) {
+                        continue;
+                    }
+                    boolean diagonal = dx != 0 && dy != 0;
+                    if (diagonal && (grid.isBlocked(nx + minX, y + minY) || grid.isBlocked(x + minX, ny + minY))) {
+                        // Диагональный шаг не срезает угол занятой ячейки
+                        continue;
+                    }
+                    int neighbor = ny * width + nx;
+                    if (closed[neighbor] == generation) {
+                        continue;
+                    }
+                    float candidate = cost[node] + (diagonal ? DIAGONAL_COST : 1);
+                    if (seen[neighbor] != generation || candidate < cost[neighbor]) {
+                        seen[neighbor] = generation;
+                        cost[neighbor] = candidate;
+                        parent[neighbor] = node;
+                        push(neighbor, candidate + heuristic(nx + minX, ny + minY, key.goalX(), key.goalY()));
+                    }
+                }
+            }
+        }
+        return NO_PATH;
+    }
+
+    /**
+     * Готовит массивы поиска к области заданной площади и начинает новое поколение.
+     */
+    private void prepare(int area) {
+        if (area > cost.length) {
+            // Массивы присваиваются после выделения всех, чтобы нехватка памяти
+            // не оставила состояние поиска разной длины
+            float[] newCost = new float[area];
+            int[] newParent = new int[area];
+            int[] newSeen = new int[area];
+            int[] newClosed = new int[area];
+            cost = newCost;
+            parent = newParent;
+            seen = newSeen;
+            closed = newClosed;
+            generation = 0;
+        }
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            generation = 1;
+        }
+        heapSize = 0;
+    }
+
+    /**
+     * Восстанавливает цепочку ячеек по ссылкам на предшественников.
+     */
+    private int[] reconstruct(int goal, int width, int minX, int minY) {
+        int length = 0;
+        for (int node = goal; node != -1; node = parent[node]) {
+            length++;
+        }
+        int[] cells = new int[2 * length];
+        int i = length;
+        for (int node = goal; node != -1; node = parent[node]) {
+            i--;
+            cells[2 * i] = node % width + minX;
+            cells[2 * i + 1] = node / width + minY;
+        }
+        return cells;
+    }
+
+    /**
+     * Сглаживает цепочку ячеек: оставляет только точки, между которыми нет прямой видимости.
+     */
+    private static double[] smooth(OccupancyGrid grid, double startX, double startY, double goalX, double goalY,
+                                   int[] cells) {
+        int last = cells.length / 2 - 1;
+        double[] path = new double[2 * Math.max(last, 1)];
+        int count = 0;
+        double anchorX = startX;
+        double anchorY = startY;
+        int i = 0;
+        while (i < last) {
+            int j = i + 1;
+            while (j < last && grid.isClear(anchorX, anchorY,
+                    pointX(grid, cells, j + 1, last, goalX), pointY(grid, cells, j + 1, last, goalY))) {
+                j++;
+            }
+            anchorX = pointX(grid, cells, j, last, goalX);
+            anchorY = pointY(grid, cells, j, last, goalY);
+            path[count++] = anchorX;
+            path[count++] = anchorY;
+            i = j;
+        }
+        if (count == 0) {
+            // Старт и цель в одной ячейке
+            return new double[]{goalX, goalY};
+        }
+        return Arrays.copyOf(path, count);
+    }
+
+    /**
+     * Координата X точки пути: центр ячейки, а для последней точки - точная цель.
+     */
+    private static double pointX(OccupancyGrid grid, int[] cells, int k, int last, double goalX) {
+        return k == last ? goalX : grid.center(cells[2 * k]);
+    }
+
+    /**
+     * Координата Y точки пути: центр ячейки, а для последней точки - точная цель.
+     */
+    private static double pointY(OccupancyGrid grid, int[] cells, int k, int last, double goalY) {
+        return k == last ? goalY : grid.center(cells[2 * k + 1]);
+    }
+
+    /**
+     * Октильное расстояние между ячейками: точная длина пути без препятствий при восьми соседях.
+     */
+    private static float heuristic(int x, int y, int goalX, int goalY) {
+        int dx = Math.abs(goalX - x);
+        int dy = Math.abs(goalY - y);
+        return Math.max(dx, dy) + (DIAGONAL_COST - 1) * Math.min(dx, dy);
+    }
+
+    /**
+     * Добавляет узел в двоичную кучу открытых узлов.
+     */
+    private void push(int node, float key) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize * 2);
+            heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int up = (i - 1) >>> 1;
+            if (heapKeys[up] <= key) {
+                break;
+            }
+            heap[i] = heap[up];
+            heapKeys[i] = heapKeys[up];
+            i = up;
+        }
+        heap[i] = node;
+        heapKeys[i] = key;
+    }
+
+    /**
+     * Извлекает из кучи узел с наименьшей оценкой.
+     */
+    private int pop() {
+        int top = heap[0];
+        int node = heap[--heapSize];
+        float key = heapKeys[heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) {
+                child++;
+            }
+            if (heapKeys[child] >= key) {
+                break;
+            }
+            heap[i] = heap[child];
+            heapKeys[i] = heapKeys[child];
+            i = child;
+        }
+        heap[i] = node;
+        heapKeys[i] = key;
+        return top;
+    }
+}
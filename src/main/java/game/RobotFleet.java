@@ -0,0 +1,658 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Парк роботов, состояние которых хранится в примитивных столбцах
+ * (по массиву на каждое поле), а не в отдельном объекте на каждого робота.
+ * Шаг симуляции проходит по столбцам в плотном цикле и не выделяет память.
+ * Кинематика совпадает с исходной моделью одного робота.
+ * <p>
+ * Каждый робот проходит состояния {@link MotionState}: после смены цели он разворачивается
+ * и движется к ней, а в пределах радиуса достижения останавливается и больше не шагается.
+ * Если робот сделал полный оборот, не приблизившись к цели (цель внутри круга разворота),
+ * он разворачивается на месте до захвата курса и только потом продолжает движение.
+ * Тригонометрия выполняется выбранной реализацией {@link MathBackend}.
+ * Поправки объезда соседей ({@link #setAvoidance}) меняют курс и скорость робота
+ * в пределах тех же ограничений скорости и поворота; без поправок движение
+ * совпадает с исходным бит в бит.
+ * Класс не потокобезопасен: шаги и изменения выполняются потоком симуляции.
+ */
+public class RobotFleet implements Simulated {
+    /**
+     * Максимальная линейная скорость робота за шаг.
+     */
+    public static final double MAX_VELOCITY = 0.4;
+
+    /**
+     * Максимальная угловая скорость робота за шаг.
+     */
+    public static final double MAX_ANGULAR_VELOCITY = 0.01;
+
+    /**
+     * Радиус достижения цели по умолчанию.
+     */
+    public static final double DEFAULT_SETTLE_RADIUS = 0.5;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Суммарный поворот без приближения к цели, после которого движение считается орбитой.
+     */
+    private static final double ORBIT_TURN_LIMIT = 2 * Math.PI;
+
+    /**
+     * Минимальное уменьшение расстояния, которое считается приближением к цели.
+     */
+    private static final double PROGRESS_EPSILON = 1e-6;
+
+    /**
+     * Расстояние до цели, которое при перемотке всегда проходится точными шагами,
+     * чтобы финальный подход и проверка достижения цели совпадали с пошаговым режимом.
+     */
+    private static final double SKIP_MARGIN = 2.0;
+
+    /**
+     * Минимальное число циклов курса, которое имеет смысл пропускать одним прыжком.
+     */
+    private static final long MIN_SKIP_CYCLES = 2;
+
+    /**
+     * Наибольшая длина цикла курса, которую ищет перемотка.
+     */
+    private static final int MAX_CYCLE_LENGTH = 8;
+
+    /**
+     * Допуск, с которым курс считается вернувшимся к исходному значению.
+     */
+    private static final double CYCLE_HEADING_EPSILON = 1e-9;
+
+    private double[] positionX;
+    private double[] positionY;
+    private double[] direction;
+    private int[] targetPositionX;
+    private int[] targetPositionY;
+    private byte[] motionState;
+    private boolean[] pivoting;
+    private double[] bestDistance;
+    private double[] turnWithoutProgress;
+    private double[] avoidanceX;
+    private double[] avoidanceY;
+    private double[] speedLimit;
+    private int size;
+    private double settleRadius = DEFAULT_SETTLE_RADIUS;
+    private MathBackend math = MathBackend.EXACT;
+    private Runnable wakeUpHandler;
+
+    // Смещение за цикл курса, найденный последним вызовом findLockedCycle
+    private double cycleShiftX;
+    private double cycleShiftY;
+
+    /**
+     * Конструктор класса RobotFleet.
+     *
+     * @param capacity Начальная вместимость столбцов.
+     */
+    public RobotFleet(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+        }
+        positionX = new double[capacity];
+        positionY = new double[capacity];
+        direction = new double[capacity];
+        targetPositionX = new int[capacity];
+        targetPositionY = new int[capacity];
+        motionState = new byte[capacity];
+        pivoting = new boolean[capacity];
+        bestDistance = new double[capacity];
+        turnWithoutProgress = new double[capacity];
+        avoidanceX = new double[capacity];
+        avoidanceY = new double[capacity];
+        speedLimit = new double[capacity];
+    }
+
+    /**
+     * Конструктор класса RobotFleet с вместимостью по умолчанию.
+     */
+    public RobotFleet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Добавляет робота в парк. Цель робота совпадает с его начальной позицией,
+     * робот находится в состоянии {@link MotionState#IDLE}.
+     *
+     * @param initialPositionX Начальная координата X робота.
+     * @param initialPositionY Начальная координата Y робота.
+     * @return Индекс добавленного робота.
+     */
+    public int add(double initialPositionX, double initialPositionY) {
+        if (size == positionX.length) {
+            grow();
+        }
+        int index = size++;
+        positionX[index] = initialPositionX;
+        positionY[index] = initialPositionY;
+        direction[index] = 0;
+        targetPositionX[index] = (int) Math.round(initialPositionX);
+        targetPositionY[index] = (int) Math.round(initialPositionY);
+        motionState[index] = (byte) MotionState.IDLE.ordinal();
+        pivoting[index] = false;
+        bestDistance[index] = Double.POSITIVE_INFINITY;
+        turnWithoutProgress[index] = 0;
+        avoidanceX[index] = 0;
+        avoidanceY[index] = 0;
+        speedLimit[index] = 1;
+        return index;
+    }
+
+    /**
+     * Увеличивает вместимость всех столбцов вдвое.
+     */
+    private void grow() {
+        int capacity = Math.max(DEFAULT_CAPACITY, positionX.length * 2);
+        positionX = Arrays.copyOf(positionX, capacity);
+        positionY = Arrays.copyOf(positionY, capacity);
+        direction = Arrays.copyOf(direction, capacity);
+        targetPositionX = Arrays.copyOf(targetPositionX, capacity);
+        targetPositionY = Arrays.copyOf(targetPositionY, capacity);
+        motionState = Arrays.copyOf(motionState, capacity);
+        pivoting = Arrays.copyOf(pivoting, capacity);
+        bestDistance = Arrays.copyOf(bestDistance, capacity);
+        turnWithoutProgress = Arrays.copyOf(turnWithoutProgress, capacity);
+        avoidanceX = Arrays.copyOf(avoidanceX, capacity);
+        avoidanceY = Arrays.copyOf(avoidanceY, capacity);
+        speedLimit = Arrays.copyOf(speedLimit, capacity);
+    }
+
+    /**
+     * Возвращает количество роботов в парке.
+     *
+     * @return Количество роботов.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Возвращает вместимость столбцов.
+     *
+     * @return Количество роботов, помещающихся без перераспределения памяти.
+     */
+    public int capacity() {
+        return positionX.length;
+    }
+
+    /**
+     * Получает координату X робота.
+     *
+     * @param index Индекс робота.
+     * @return Координата X робота.
+     */
+    public double getPositionX(int index) {
+        return positionX[index];
+    }
+
+    /**
+     * Получает координату Y робота.
+     *
+     * @param index Индекс робота.
+     * @return Координата Y робота.
+     */
+    public double getPositionY(int index) {
+        return positionY[index];
+    }
+
+    /**
+     * Получает направление робота.
+     *
+     * @param index Индекс робота.
+     * @return Направление робота в радианах.
+     */
+    public double getDirection(int index) {
+        return direction[index];
+    }
+
+    /**
+     * Получает координату X цели робота.
+     *
+     * @param index Индекс робота.
+     * @return Координата X цели.
+     */
+    public int getTargetPositionX(int index) {
+        return targetPositionX[index];
+    }
+
+    /**
+     * Получает координату Y цели робота.
+     *
+     * @param index Индекс робота.
+     * @return Координата Y цели.
+     */
+    public int getTargetPositionY(int index) {
+        return targetPositionY[index];
+    }
+
+    /**
+     * Получает состояние движения робота.
+     *
+     * @param index Индекс робота.
+     * @return Состояние движения.
+     */
+    public MotionState getMotionState(int index) {
+        return MotionState.of(motionState[index]);
+    }
+
+    /**
+     * Получает радиус достижения цели.
+     *
+     * @return Радиус, внутри которого робот считается достигшим цели.
+     */
+    public double getSettleRadius() {
+        return settleRadius;
+    }
+
+    /**
+     * Устанавливает радиус достижения цели.
+     *
+     * @param settleRadius Радиус, внутри которого робот считается достигшим цели.
+     */
+    public void setSettleRadius(double settleRadius) {
+        if (!(settleRadius > 0)) {
+            throw new IllegalArgumentException("settleRadius must be positive: " + settleRadius);
+        }
+        this.settleRadius = settleRadius;
+    }
+
+    /**
+     * Получает реализацию математики кинематики.
+     *
+     * @return Реализация математики.
+     */
+    public MathBackend getMathBackend() {
+        return math;
+    }
+
+    /**
+     * Устанавливает реализацию математики кинематики.
+     * Вызывается до запуска симуляции или в потоке симуляции.
+     *
+     * @param math Реализация математики.
+     */
+    public void setMathBackend(MathBackend math) {
+        if (math == null) {
+            throw new IllegalArgumentException("math backend must not be null");
+        }
+        this.math = math;
+    }
+
+    /**
+     * Устанавливает обработчик, вызываемый при переходе робота из покоя в движение.
+     *
+     * @param handler Обработчик пробуждения.
+     */
+    @Override
+    public void setWakeUpHandler(Runnable handler) {
+        this.wakeUpHandler = handler;
+    }
+
+    /**
+     * Устанавливает позицию цели робота и запускает движение к ней.
+     * Если робот уже находится в пределах радиуса достижения, он сразу считается остановившимся.
+     *
+     * @param index Индекс робота.
+     * @param x     Координата X цели.
+     * @param y     Координата Y цели.
+     */
+    public void setTargetPosition(int index, int x, int y) {
+        targetPositionX[index] = x;
+        targetPositionY[index] = y;
+        pivoting[index] = false;
+        bestDistance[index] = Double.POSITIVE_INFINITY;
+        turnWithoutProgress[index] = 0;
+        boolean wasActive = isActive(index);
+        double diffX = x - positionX[index];
+        double diffY = y - positionY[index];
+        if (diffX * diffX + diffY * diffY <= settleRadius * settleRadius) {
+            motionState[index] = (byte) MotionState.SETTLED.ordinal();
+            return;
+        }
+        motionState[index] = (byte) MotionState.TURNING.ordinal();
+        Runnable handler = wakeUpHandler;
+        if (!wasActive && handler != null) {
+            handler.run();
+        }
+    }
+
+    /**
+     * Разворачивает движущегося робота на месте: пока курс не совпадет с направлением
+     * на цель, робот поворачивает без движения вперед. Так робот, следующий по пути,
+     * не уходит с отрезка пути на дугу разворота.
+     *
+     * @param index Индекс робота.
+     */
+    public void pivotToTarget(int index) {
+        if (isActive(index)) {
+            pivoting[index] = true;
+        }
+    }
+
+    /**
+     * Устанавливает позицию и направление робота.
+     *
+     * @param index     Индекс робота.
+     * @param x         Координата X робота.
+     * @param y         Координата Y робота.
+     * @param newDirect Направление робота в радианах.
+     */
+    public void setPosition(int index, double x, double y, double newDirect) {
+        positionX[index] = x;
+        positionY[index] = y;
+        direction[index] = newDirect;
+    }
+
+    /**
+     * Устанавливает поправки объезда соседей, действующие до следующего вызова.
+     * Вектор объезда складывается с единичным вектором направления на цель,
+     * и робот поворачивает к их сумме; скорость умножается на ограничение.
+     *
+     * @param index      Индекс робота.
+     * @param x          Координата X вектора объезда; 0 - без поправки курса.
+     * @param y          Координата Y вектора объезда; 0 - без поправки курса.
+     * @param speedLimit Доля максимальной скорости от 0 до 1.
+     */
+    public void setAvoidance(int index, double x, double y, double speedLimit) {
+        avoidanceX[index] = x;
+        avoidanceY[index] = y;
+        this.speedLimit[index] = speedLimit;
+    }
+
+    /**
+     * Получает долю максимальной скорости, назначенную объездом соседей.
+     *
+     * @param index Индекс робота.
+     * @return Доля максимальной скорости от 0 до 1.
+     */
+    public double getSpeedLimit(int index) {
+        return speedLimit[index];
+    }
+
+    /**
+     * Проверяет, достиг ли робот цели.
+     *
+     * @param index Индекс робота.
+     * @return true, если робот стоит на цели, в противном случае - false.
+     */
+    public boolean isAtTarget(int index) {
+        return !isActive(index);
+    }
+
+    /**
+     * Проверяет, требует ли робот шагов симуляции.
+     *
+     * @param index Индекс робота.
+     * @return true, если робот разворачивается или движется к цели.
+     */
+    public boolean isActive(int index) {
+        int state = motionState[index];
+        return state == MotionState.TURNING.ordinal() || state == MotionState.CRUISING.ordinal();
+    }
+
+    /**
+     * Выполняет шаг симуляции для всех роботов парка.
+     *
+     * @return true, если хотя бы один робот продолжает движение.
+     */
+    @Override
+    public boolean step() {
+        return step(0, size) > 0;
+    }
+
+    /**
+     * Выполняет шаг симуляции для роботов из диапазона индексов.
+     * Роботы в покое пропускаются.
+     *
+     * @param from Индекс первого робота (включительно).
+     * @param to   Индекс последнего робота (не включительно).
+     * @return Количество роботов диапазона, продолжающих движение после шага.
+     */
+    public int step(int from, int to) {
+        int active = 0;
+        for (int i = from; i < to; i++) {
+            if (isActive(i)) {
+                moveRobot(i);
+                if (isActive(i)) {
+                    active++;
+                }
+            }
+        }
+        return active;
+    }
+
+    /**
+     * Перемещает робота к цели на один шаг.
+     *
+     * @param index Индекс робота.
+     */
+    public void moveRobot(int index) {
+        double x = positionX[index];
+        double y = positionY[index];
+        double heading = direction[index];
+        int targetX = targetPositionX[index];
+        int targetY = targetPositionY[index];
+        double diffX = targetX - x;
+        double diffY = targetY - y;
+
+        double distance = Math.sqrt(diffX * diffX + diffY * diffY);
+        double cos = math.cos(heading);
+        double sin = math.sin(heading);
+        double steerX = diffX;
+        double steerY = diffY;
+        double avoidX = avoidanceX[index];
+        double avoidY = avoidanceY[index];
+        if ((avoidX != 0 || avoidY != 0) && distance > 0) {
+            steerX = diffX / distance + avoidX;
+            steerY = diffY / distance + avoidY;
+        }
+        double angleDifference = math.angleDifference(steerX, steerY, heading, cos, sin);
+        int turn = angleDifference > 0 ? 1 : angleDifference < 0 ? -1 : 0;
+        double angularVelocity = turn * MAX_ANGULAR_VELOCITY;
+        double velocity = Math.min(MAX_VELOCITY * speedLimit[index], distance);
+
+        // Обнаружение орбиты: полный оборот без приближения к цели
+        if (distance < bestDistance[index] - PROGRESS_EPSILON) {
+            bestDistance[index] = distance;
+            turnWithoutProgress[index] = 0;
+        } else {
+            turnWithoutProgress[index] += Math.abs(angularVelocity);
+            if (turnWithoutProgress[index] >= ORBIT_TURN_LIMIT) {
+                pivoting[index] = true;
+                turnWithoutProgress[index] = 0;
+            }
+        }
+        if (pivoting[index]) {
+            if (Math.abs(angleDifference) <= MAX_ANGULAR_VELOCITY) {
+                pivoting[index] = false;
+            } else {
+                velocity = 0;
+            }
+        }
+
+        double newX = x + velocity * cos;
+        double newY = y + velocity * sin;
+        positionX[index] = newX;
+        positionY[index] = newY;
+        direction[index] = math.normalize(heading + angularVelocity);
+
+        double newDiffX = targetX - newX;
+        double newDiffY = targetY - newY;
+        MotionState state;
+        if (newDiffX * newDiffX + newDiffY * newDiffY <= settleRadius * settleRadius) {
+            state = MotionState.SETTLED;
+        } else if (!pivoting[index] && Math.abs(angleDifference) <= 2 * MAX_ANGULAR_VELOCITY) {
+            state = MotionState.CRUISING;
+        } else {
+            state = MotionState.TURNING;
+        }
+        motionState[index] = (byte) state.ordinal();
+    }
+
+    /**
+     * Продвигает робота на заданное число шагов, останавливаясь раньше, если цель достигнута.
+     * Результат эквивалентен вызову {@link #moveRobot(int)} до {@code ticks} раз,
+     * пока робот не придет в покой.
+     * <p>
+     * Фаза разворота (не более π / {@link #MAX_ANGULAR_VELOCITY} ≈ 315 шагов) выполняется
+     * точными шагами. После захвата цели курс колеблется вокруг направления на цель
+     * по короткому циклу (например, {@code h, h+0.01} или {@code h, h+0.01, h, h-0.01}),
+     * и каждый цикл смещает робота на один и тот же вектор. Цикл находится пробным
+     * прогоном до {@value #MAX_CYCLE_LENGTH} шагов, а момент, когда направление на цель
+     * выйдет из него, - из линейных по числу циклов векторных произведений курса на цель.
+     * Все циклы до этого момента пропускаются одним прыжком. Переходы между циклами
+     * и последние {@value #SKIP_MARGIN} px проходятся точными шагами.
+     * Отличие от пошагового режима - только ошибка округления при умножении вектора цикла
+     * на число циклов: не более 1e-6 px по позиции, число шагов до цели совпадает.
+     *
+     * @param index Индекс робота.
+     * @param ticks Максимальное количество шагов.
+     * @return Количество фактически выполненных шагов.
+     */
+    public long advance(int index, long ticks) {
+        long done = 0;
+        while (done < ticks && !isAtTarget(index)) {
+            // С поправками объезда курс зависит не только от цели: только точные шаги
+            boolean avoiding = avoidanceX[index] != 0 || avoidanceY[index] != 0 || speedLimit[index] != 1;
+            int length = pivoting[index] || avoiding ? 0 : findLockedCycle(index);
+            if (length > 0) {
+                long cycles = Math.min((ticks - done) / length, lockedCycles(index, length));
+                if (cycles >= MIN_SKIP_CYCLES) {
+                    positionX[index] += cycles * cycleShiftX;
+                    positionY[index] += cycles * cycleShiftY;
+                    done += cycles * length;
+                    // Внутри цикла робот приближается к цели на каждом шаге
+                    double diffX = targetPositionX[index] - positionX[index];
+                    double diffY = targetPositionY[index] - positionY[index];
+                    bestDistance[index] = Math.sqrt(diffX * diffX + diffY * diffY);
+                    turnWithoutProgress[index] = 0;
+                    motionState[index] = (byte) MotionState.CRUISING.ordinal();
+                    continue;
+                }
+            }
+            moveRobot(index);
+            done++;
+        }
+        return done;
+    }
+
+    /**
+     * Ищет короткий цикл курса, начинающийся с текущего состояния робота, прогоняя
+     * шаги на локальных переменных. Смещение за цикл сохраняется в
+     * {@link #cycleShiftX}/{@link #cycleShiftY}.
+     *
+     * @param index Индекс робота.
+     * @return Длина цикла в шагах или 0, если цикл не найден.
+     */
+    private int findLockedCycle(int index) {
+        double x = positionX[index];
+        double y = positionY[index];
+        double heading = direction[index];
+        int targetX = targetPositionX[index];
+        int targetY = targetPositionY[index];
+        if (Math.abs(angleDifference(targetX - x, targetY - y, heading)) > 2 * MAX_ANGULAR_VELOCITY) {
+            return 0;
+        }
+        for (int step = 1; step <= MAX_CYCLE_LENGTH; step++) {
+            double diffX = targetX - x;
+            double diffY = targetY - y;
+            if (diffX * diffX + diffY * diffY <= skipMargin() * skipMargin()) {
+                return 0;
+            }
+            double angularVelocity = turnSign(diffX, diffY, heading) * MAX_ANGULAR_VELOCITY;
+            x += MAX_VELOCITY * math.cos(heading);
+            y += MAX_VELOCITY * math.sin(heading);
+            heading = math.normalize(heading + angularVelocity);
+            double drift = Math.abs(heading - direction[index]);
+            if (Math.min(drift, 2 * Math.PI - drift) < CYCLE_HEADING_EPSILON) {
+                cycleShiftX = x - positionX[index];
+                cycleShiftY = y - positionY[index];
+                return step;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Считает, сколько раз подряд найденный цикл курса гарантированно повторится.
+     * На каждой фазе цикла знак поворота задается знаком векторного произведения курса
+     * на направление к цели, а оно линейно убывает с числом пройденных циклов.
+     *
+     * @param index  Индекс робота.
+     * @param length Длина цикла в шагах.
+     * @return Количество циклов, которые можно пропустить.
+     */
+    private long lockedCycles(int index, int length) {
+        double x = positionX[index];
+        double y = positionY[index];
+        double heading = direction[index];
+        int targetX = targetPositionX[index];
+        int targetY = targetPositionY[index];
+        double shift = Math.sqrt(cycleShiftX * cycleShiftX + cycleShiftY * cycleShiftY);
+        double diffX = targetX - x;
+        double diffY = targetY - y;
+        double limit = (Math.sqrt(diffX * diffX + diffY * diffY) - skipMargin()) / shift;
+        for (int phase = 0; phase < length; phase++) {
+            diffX = targetX - x;
+            diffY = targetY - y;
+            double cos = math.cos(heading);
+            double sin = math.sin(heading);
+            int sign = turnSign(diffX, diffY, heading);
+            double cross = sign * (cos * diffY - sin * diffX);
+            double rate = sign * (cos * cycleShiftY - sin * cycleShiftX);
+            if (sign == 0 || cross <= 0 || cos * diffX + sin * diffY <= 0) {
+                return 0;
+            }
+            if (rate > 0) {
+                limit = Math.min(limit, cross / rate);
+            }
+            x += MAX_VELOCITY * cos;
+            y += MAX_VELOCITY * sin;
+            heading = math.normalize(heading + sign * MAX_ANGULAR_VELOCITY);
+        }
+        // Один цикл запаса защищает от ошибок округления на границе
+        return Math.max(0, (long) Math.floor(limit) - 1);
+    }
+
+    /**
+     * Возвращает расстояние до цели, которое перемотка проходит точными шагами.
+     *
+     * @return Расстояние, не меньшее {@value #SKIP_MARGIN} px и радиуса достижения цели с запасом.
+     */
+    private double skipMargin() {
+        return Math.max(SKIP_MARGIN, settleRadius + 2 * MAX_VELOCITY);
+    }
+
+    /**
+     * Вычисляет разность между направлением на цель и курсом, приведенную к [-π, π].
+     *
+     * @param diffX   Смещение до цели по X.
+     * @param diffY   Смещение до цели по Y.
+     * @param heading Курс робота в радианах.
+     * @return Угол поворота к цели в радианах.
+     */
+    private double angleDifference(double diffX, double diffY, double heading) {
+        return math.angleDifference(diffX, diffY, heading, math.cos(heading), math.sin(heading));
+    }
+
+    /**
+     * Определяет направление поворота к цели.
+     *
+     * @param diffX   Смещение до цели по X.
+     * @param diffY   Смещение до цели по Y.
+     * @param heading Курс робота в радианах.
+     * @return 1 при повороте против часовой стрелки, -1 - по часовой, 0 - без поворота.
+     */
+    private int turnSign(double diffX, double diffY, double heading) {
+        double angleDifference = angleDifference(diffX, diffY, heading);
+        return angleDifference > 0 ? 1 : angleDifference < 0 ? -1 : 0;
+    }
+}
@@ -0,0 +1,78 @@
+package game;
+
+import java.util.List;
+
+/**
+ * Роботы приложения, делящие один парк {@link RobotFleet}, как одна модель
+ * для {@link SimulationScheduler}.
+ * <p>
+ * Каждый шаг сначала выполняет фазу восприятия {@link CollisionAvoidance}
+ * над всем парком, а затем шаги моделей: модели разбирают цели и маршруты
+ * и двигают своих роботов с назначенными поправками объезда. Без объезда
+ * группа просто шагает модели по порядку.
+ */
+public class RobotGroup implements Simulated {
+    private final RobotModel[] robotModels;
+    private final CollisionAvoidance collisionAvoidance;
+    private final int[] neighbors = new int[CollisionAvoidance.NEIGHBOR_BUFFER_SIZE];
+
+    /**
+     * Конструктор класса RobotGroup.
+     *
+     * @param robotModels Модели роботов одного парка.
+     * @param avoidance   true, если роботы должны объезжать друг друга.
+     */
+    public RobotGroup(List<RobotModel> robotModels, boolean avoidance) {
+        if (robotModels.isEmpty()) {
+            throw new IllegalArgumentException("robotModels must not be empty");
+        }
+        this.robotModels = robotModels.toArray(new RobotModel[0]);
+        RobotFleet fleet = this.robotModels[0].getFleet();
+        for (RobotModel robotModel : this.robotModels) {
+            if (robotModel.getFleet() != fleet) {
+                throw new IllegalArgumentException("robotModels must share one fleet");
+            }
+        }
+        this.collisionAvoidance = avoidance ? new CollisionAvoidance(fleet) : null;
+    }
+
+    /**
+     * Получает подсистему объезда.
+     *
+     * @return Подсистема объезда или null, если объезд выключен.
+     */
+    public CollisionAvoidance getCollisionAvoidance() {
+        return collisionAvoidance;
+    }
+
+    /**
+     * Выполняет шаг: назначает поправки объезда и шагает все модели.
+     *
+     * @return true, если хотя бы один робот продолжает движение.
+     */
+    @Override
+    public boolean step() {
+        if (collisionAvoidance != null) {
+            collisionAvoidance.updateIndex();
+            RobotFleet fleet = collisionAvoidance.getFleet();
+            collisionAvoidance.setContacts(collisionAvoidance.sense(0, fleet.size(), neighbors));
+        }
+        boolean active = false;
+        for (RobotModel robotModel : robotModels) {
+            active |= robotModel.step();
+        }
+        return active;
+    }
+
+    /**
+     * Устанавливает обработчик пробуждения всем моделям группы.
+     *
+     * @param handler Обработчик пробуждения.
+     */
+    @Override
+    public void setWakeUpHandler(Runnable handler) {
+        for (RobotModel robotModel : robotModels) {
+            robotModel.setWakeUpHandler(handler);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package game;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Состояние робота для отрисовки, сглаженное между шагами симуляции.
+ * Хранит два последних опубликованных снимка с разными номерами шага и рисует
+ * промежуточное состояние по доле интервала шага, прошедшей с публикации последнего.
+ * Отрисовка отстает от симуляции на один шаг, зато движение остается плавным,
+ * даже если частота шагов ниже частоты кадров.
+ * Интервал шага оценивается по моментам публикации последовательных снимков,
+ * поэтому частоту часов симуляции передавать не нужно.
+ * Используется одним потоком отрисовки.
+ */
+final class RobotInterpolator {
+    /**
+     * Интервал шага до первой оценки: шаг часов симуляции по умолчанию.
+     */
+    private static final double DEFAULT_TICK_NANOS =
+            TimeUnit.SECONDS.toNanos(1) / SimulationScheduler.DEFAULT_STEPS_PER_SECOND;
+
+    /**
+     * Промежутки между снимками длиннее этого не учитываются при оценке интервала шага:
+     * это покой или пауза, а не темп симуляции.
+     */
+    private static final long MAX_TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Вес нового измерения при экспоненциальном сглаживании интервала шага.
+     */
+    private static final double TICK_SMOOTHING = 0.125;
+
+    private RobotSnapshot previous = new RobotSnapshot();
+    private RobotSnapshot current = new RobotSnapshot();
+    private RobotSnapshot incoming = new RobotSnapshot();
+    private boolean initialized;
+    private boolean tickMeasured;
+    private double tickNanos = DEFAULT_TICK_NANOS;
+    private double positionX;
+    private double positionY;
+    private double direction;
+
+    /**
+     * Читает последний снимок модели и пересчитывает состояние для отрисовки.
+     *
+     * @param robotModel Модель робота.
+     * @param nowNanos   Момент отрисовки кадра по {@link System#nanoTime()}.
+     */
+    void update(RobotModel robotModel, long nowNanos) {
+        robotModel.readSnapshot(incoming);
+        RobotSnapshot free;
+        if (!initialized) {
+            initialized = true;
+            incoming.copyTo(previous);
+            free = current;
+            current = incoming;
+        } else if (incoming.getTick() != current.getTick()) {
+            long ticks = incoming.getTick() - current.getTick();
+            long gap = incoming.getTimeNanos() - current.getTimeNanos();
+            if (ticks > 0 && gap > 0 && gap / ticks < MAX_TICK_NANOS) {
+                double measured = (double) gap / ticks;
+                tickNanos = tickMeasured ? tickNanos + (measured - tickNanos) * TICK_SMOOTHING : measured;
+                tickMeasured = true;
+            }
+            free = previous;
+            previous = current;
+            current = incoming;
+        } else {
+            // Тот же шаг, но могла измениться цель
+            free = current;
+            current = incoming;
+        }
+        incoming = free;
+
+        double alpha = Math.min(1, Math.max(0, (nowNanos - current.getTimeNanos()) / tickNanos));
+        double turn = current.getDirection() - previous.getDirection();
+        // Курс пересекает 0/2π: интерполируем по короткой дуге
+        if (turn > Math.PI) {
+            turn -= 2 * Math.PI;
+        } else if (turn < -Math.PI) {
+            turn += 2 * Math.PI;
+        }
+        positionX = previous.getPositionX() + (current.getPositionX() - previous.getPositionX()) * alpha;
+        positionY = previous.getPositionY() + (current.getPositionY() - previous.getPositionY()) * alpha;
+        direction = previous.getDirection() + turn * alpha;
+    }
+
+    /**
+     * Получает координату X робота для отрисовки.
+     *
+     * @return Сглаженная координата X.
+     */
+    double getPositionX() {
+        return positionX;
+    }
+
+    /**
+     * Получает координату Y робота для отрисовки.
+     *
+     * @return Сглаженная координата Y.
+     */
+    double getPositionY() {
+        return positionY;
+    }
+
+    /**
+     * Получает направление робота для отрисовки.
+     *
+     * @return Сглаженное направление в радианах; может выходить за [0, 2π) на долю шага.
+     */
+    double getDirection() {
+        return direction;
+    }
+
+    /**
+     * Получает последний прочитанный снимок, например для отрисовки цели.
+     *
+     * @return Последний снимок модели.
+     */
+    RobotSnapshot getSnapshot() {
+        return current;
+    }
+}
@@ -1,29 +1,203 @@
 package game;
 
-import java.util.Observable;
+import log.Logger;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Модель робота.
+ * Представляет одну ячейку парка {@link RobotFleet}: состояние робота хранится
+ * в столбцах парка, а модель добавляет к нему оповещение подписчиков через
+ * {@link SimulationEventBus}. Событием служит сама модель: подписчик читает
+ * из нее последний снимок, поэтому объединенные события не теряют состояния.
+ * <p>
+ * Состояние меняет только поток симуляции. После каждого шага модель публикует
+ * снимок {@link RobotSnapshot} через одну volatile-ссылку, поэтому другие потоки
+ * читают согласованные позицию, курс и цель без блокировок.
+ * Новая цель из другого потока кладется в почтовый ящик и применяется потоком
+ * симуляции в начале следующего шага.
+ * <p>
+ * Робот едет по маршруту: ограниченной очереди точек {@link WaypointQueue}, которую
+ * можно дополнять, заменять, очищать и зацикливать. Достигнув цели, робот сразу берет
+ * следующую точку очереди. Команды маршрута из других потоков, в том числе пакеты
+ * {@link WaypointBatch} для многих роботов, кладутся в неблокирующий почтовый ящик
+ * массивами и применяются потоком симуляции в начале шага.
+ * <p>
+ * Если задан планировщик {@link PathPlanner}, каждая новая цель сначала передается ему,
+ * а готовый путь кладется в отдельный почтовый ящик. Робот едет по точкам пути,
+ * переходя к следующей точке в радиусе {@value #PATH_POINT_RADIUS} от текущей,
+ * и перед каждым отрезком разворачивается на месте: дуга разворота на ходу
+ * (радиус около 40) срезала бы углы пути и задевала препятствия.
+ * Подписчики при этом видят конечную цель, а не промежуточные точки.
+ * <p>
+ * Все изменения цели и позиции в парке, сделанные моделью, можно записывать
+ * в журнал {@link InputJournal} для точного воспроизведения.
  */
-public class RobotModel extends Observable {
-    private double positionX;
-    private double positionY;
-    private double direction;
-    private int targetPositionX;
-    private int targetPositionY;
-    private static final double maxVelocity = 0.4;
-    private static final double maxAngularVelocity = 0.01;
+public class RobotModel implements Simulated {
+    /**
+     * Наибольшее количество точек в очереди маршрута; лишние точки отбрасываются.
+     */
+    public static final int MAX_WAYPOINTS = 4096;
+
+    /**
+     * Расстояние до промежуточной точки пути, на котором робот переходит к следующей.
+     */
+    public static final double PATH_POINT_RADIUS = 2;
+
+    /**
+     * Путь к цели, построенный планировщиком.
+     *
+     * @param leg    Номер отрезка маршрута, для которого строился путь.
+     * @param goalX  Координата X цели.
+     * @param goalY  Координата Y цели.
+     * @param points Точки пути парами X, Y; последняя совпадает с целью.
+     */
+    private record PlannedPath(long leg, int goalX, int goalY, double[] points) {
+    }
+
+    private final RobotFleet fleet;
+    private final int index;
+    private final SimulationEventBus<RobotModel> eventBus = new SimulationEventBus<>();
+    private final ConcurrentLinkedQueue<int[]> pendingCommands = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<PlannedPath> pendingPath = new AtomicReference<>();
+    private final RobotSnapshot[] snapshotBuffers = {new RobotSnapshot(), new RobotSnapshot()};
+    private volatile RobotSnapshot publishedSnapshot;
+    private volatile Runnable wakeUpHandler;
+    private volatile PathPlanner pathPlanner;
+    private volatile InputJournal journal;
+    private int journalId;
+    private volatile int queuedWaypoints;
+    private volatile long droppedWaypoints;
+    private final WaypointQueue waypoints = new WaypointQueue(MAX_WAYPOINTS);
+    private boolean loop;
+    // Текущая цель маршрута и номер отрезка; путь к цели ожидается от планировщика
+    private int goalX;
+    private int goalY;
+    private long leg;
+    private boolean awaitingPath;
+    // Текущий путь и смещение текущей точки в нем; null, когда робот едет прямо к цели
+    private PlannedPath path;
+    private int pathPoint;
+    private long tick;
 
     /**
      * Конструктор класса RobotModel.
      * Инициализирует начальные координаты робота.
+     * Цель совпадает с начальной позицией, поэтому робот стоит на месте до первой смены цели.
      *
      * @param initialPositionX Начальная координата X робота.
      * @param initialPositionY Начальная координата Y робота.
      */
     public RobotModel(double initialPositionX, double initialPositionY) {
-        this.positionX = initialPositionX;
-        this.positionY = initialPositionY;
+        this.fleet = new RobotFleet(1);
+        this.index = fleet.add(initialPositionX, initialPositionY);
+        publishSnapshot();
+    }
+
+    /**
+     * Конструктор класса RobotModel для робота, уже находящегося в парке.
+     *
+     * @param fleet Парк роботов.
+     * @param index Индекс робота в парке.
+     */
+    public RobotModel(RobotFleet fleet, int index) {
+        if (index < 0 || index >= fleet.size()) {
+            throw new IndexOutOfBoundsException("index " + index + " out of fleet size " + fleet.size());
+        }
+        this.fleet = fleet;
+        this.index = index;
+        publishSnapshot();
+    }
+
+    /**
+     * Получает парк, в котором хранится состояние робота.
+     *
+     * @return Парк роботов.
+     */
+    public RobotFleet getFleet() {
+        return fleet;
+    }
+
+    /**
+     * Получает индекс робота в парке.
+     *
+     * @return Индекс робота.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Получает количество точек, ожидающих в очереди маршрута после текущей цели.
+     *
+     * @return Количество точек на момент последнего изменения очереди.
+     */
+    public int getQueuedWaypoints() {
+        return queuedWaypoints;
+    }
+
+    /**
+     * Получает количество точек, отброшенных из-за заполненной очереди маршрута.
+     *
+     * @return Количество отброшенных точек.
+     */
+    public long getDroppedWaypoints() {
+        return droppedWaypoints;
+    }
+
+    /**
+     * Устанавливает планировщик путей для новых целей.
+     *
+     * @param pathPlanner Планировщик или null, чтобы ехать к цели по прямой.
+     */
+    public void setPathPlanner(PathPlanner pathPlanner) {
+        this.pathPlanner = pathPlanner;
+    }
+
+    /**
+     * Подключает журнал входных воздействий (см. {@link InputJournal#record}).
+     *
+     * @param journal   Журнал.
+     * @param journalId Номер робота в журнале.
+     */
+    void setInputJournal(InputJournal journal, int journalId) {
+        this.journalId = journalId;
+        this.journal = journal;
+    }
+
+    /**
+     * Получает шину событий изменения состояния робота.
+     *
+     * @return Шина событий модели.
+     */
+    public SimulationEventBus<RobotModel> getEventBus() {
+        return eventBus;
+    }
+
+    /**
+     * Копирует последний опубликованный снимок состояния робота.
+     * Не блокирует поток симуляции и не выделяет память. Отдельные методы get ниже
+     * тоже читают через снимок, но значения из нескольких вызовов могут относиться
+     * к разным шагам: если нужны несколько полей сразу, используйте этот метод.
+     *
+     * @param into Экземпляр, принадлежащий вызывающему, в который копируется снимок.
+     * @return Переданный экземпляр с согласованным состоянием робота.
+     */
+    public RobotSnapshot readSnapshot(RobotSnapshot into) {
+        while (!publishedSnapshot.copyTo(into)) {
+            Thread.onSpinWait();
+        }
+        return into;
+    }
+
+    /**
+     * Возвращает копию последнего опубликованного снимка состояния робота.
+     *
+     * @return Новый экземпляр снимка.
+     */
+    public RobotSnapshot getSnapshot() {
+        return readSnapshot(new RobotSnapshot());
     }
 
     /**
@@ -32,7 +206,7 @@ public class RobotModel extends Observable {
      * @return Текущая координата X робота.
      */
     public double getPositionX() {
-        return positionX;
+        return readSnapshot(new RobotSnapshot()).getPositionX();
     }
 
     /**
@@ -41,7 +215,7 @@ public class RobotModel extends Observable {
      * @return Текущая координата Y робота.
      */
     public double getPositionY() {
-        return positionY;
+        return readSnapshot(new RobotSnapshot()).getPositionY();
     }
 
     /**
@@ -50,7 +224,7 @@ public class RobotModel extends Observable {
      * @return Текущее направление робота.
      */
     public double getDirection() {
-        return direction;
+        return readSnapshot(new RobotSnapshot()).getDirection();
     }
 
     /**
@@ -59,7 +233,7 @@ public class RobotModel extends Observable {
      * @return Координата X цели.
      */
     public int getTargetPositionX() {
-        return targetPositionX;
+        return readSnapshot(new RobotSnapshot()).getTargetPositionX();
     }
 
     /**
@@ -68,137 +242,376 @@ public class RobotModel extends Observable {
      * @return Координата Y цели.
      */
     public int getTargetPositionY() {
-        return targetPositionY;
+        return readSnapshot(new RobotSnapshot()).getTargetPositionY();
+    }
+
+    /**
+     * Получает состояние движения робота.
+     *
+     * @return Состояние движения.
+     */
+    public MotionState getMotionState() {
+        return readSnapshot(new RobotSnapshot()).getMotionState();
     }
 
     /**
-     * Устанавливает позицию цели.
+     * Устанавливает позицию цели, заменяя весь маршрут. Может вызываться из любого потока:
+     * цель применяется потоком симуляции в начале следующего шага,
+     * а при заданном планировщике - в начале шага после построения пути.
      *
      * @param x Координата X цели.
      * @param y Координата Y цели.
      */
     public void setTargetPosition(int x, int y) {
-        this.targetPositionX = x;
-        this.targetPositionY = y;
+        submitWaypointCommands(new int[]{WaypointBatch.REPLACE, x, y});
     }
 
     /**
-     * Обновляет позицию и направление робота.
+     * Добавляет точку в конец маршрута. Если робот стоит на последней цели,
+     * точка сразу становится новой целью. Может вызываться из любого потока.
+     *
+     * @param x Координата X точки.
+     * @param y Координата Y точки.
+     */
+    public void appendWaypoint(int x, int y) {
+        submitWaypointCommands(new int[]{WaypointBatch.APPEND, x, y});
+    }
+
+    /**
+     * Заменяет маршрут. Может вызываться из любого потока.
+     *
+     * @param points Координаты точек парами X, Y (см. {@link WaypointBatch#replace}).
+     */
+    public void replaceWaypoints(int[] points) {
+        WaypointBatch batch = new WaypointBatch();
+        batch.replace(this, points);
+        batch.submit();
+    }
+
+    /**
+     * Очищает очередь маршрута; текущую цель робот доезжает. Может вызываться из любого потока.
+     */
+    public void clearWaypoints() {
+        submitWaypointCommands(new int[]{WaypointBatch.CLEAR, 0, 0});
+    }
+
+    /**
+     * Включает или выключает повтор маршрута. Может вызываться из любого потока.
+     *
+     * @param loop true - достигнутая точка возвращается в конец очереди.
+     */
+    public void setWaypointLoop(boolean loop) {
+        submitWaypointCommands(new int[]{WaypointBatch.LOOP, loop ? 1 : 0, 0});
+    }
+
+    /**
+     * Кладет команды маршрута в почтовый ящик и будит поток симуляции.
+     *
+     * @param commands Команды тройками (код, X, Y), см. {@link WaypointBatch}.
+     */
+    void submitWaypointCommands(int[] commands) {
+        pendingCommands.offer(commands);
+        wakeUp();
+    }
+
+    /**
+     * Кладет построенный путь в почтовый ящик. Вызывается потоком планировщика.
+     * Если путь не найден, робот едет к цели по прямой.
+     */
+    private void deliverPath(long leg, int x, int y, double[] points) {
+        if (points == null) {
+            Logger.debug("Путь к цели ({}, {}) не найден, робот едет по прямой", x, y);
+            points = new double[]{x, y};
+        }
+        pendingPath.set(new PlannedPath(leg, x, y, points));
+        wakeUp();
+    }
+
+    /**
+     * Будит поток симуляции, если робот в покое.
+     */
+    private void wakeUp() {
+        Runnable handler = wakeUpHandler;
+        if (handler != null) {
+            handler.run();
+        }
+    }
+
+    /**
+     * Обновляет позицию и направление робота. Вызывается потоком симуляции.
      *
      * @param newX      Новая координата X робота.
      * @param newY      Новая координата Y робота.
      * @param newDirect Новое направление робота.
      */
     public void updatePosition(double newX, double newY, double newDirect) {
-        this.positionX = newX;
-        this.positionY = newY;
-        this.direction = newDirect;
+        applyPendingTarget();
+        InputJournal recorder = journal;
+        if (recorder != null) {
+            recorder.recordPosition(journalId, tick, newX, newY, newDirect);
+        }
+        fleet.setPosition(index, newX, newY, newDirect);
+        publishSnapshot();
 
-        setChanged();
-        notifyObservers();
+        eventBus.publish(this);
     }
 
     /**
-     * Перемещает робота к цели.
+     * Выполняет шаг симуляции: перемещает робота, если он еще не достиг цели.
+     * Робот в покое не перемещается и не оповещает подписчиков.
+     *
+     * @return true, если робот продолжает движение.
+     */
+    @Override
+    public boolean step() {
+        boolean retargeted = applyPendingTarget();
+        followPath();
+        retargeted |= nextWaypoint();
+        if (fleet.isActive(index)) {
+            moveRobot();
+        } else if (retargeted) {
+            // Цель оказалась в пределах радиуса достижения: показываем ее без движения
+            eventBus.publish(this);
+        }
+        return fleet.isActive(index);
+    }
+
+    /**
+     * Устанавливает обработчик, вызываемый при получении роботом новой цели.
+     *
+     * @param handler Обработчик пробуждения.
+     */
+    @Override
+    public void setWakeUpHandler(Runnable handler) {
+        this.wakeUpHandler = handler;
+    }
+
+    /**
+     * Перемещает робота к цели. Вызывается потоком симуляции.
      */
     public void moveRobot() {
-        // Рассчитываем расстояние до цели
-        double distance =
-                distance(targetPositionX, targetPositionY, positionX, positionY);
+        applyPendingTarget();
+        fleet.moveRobot(index);
+        tick++;
+        followPath();
+        nextWaypoint();
+        publishSnapshot();
 
-        // Рассчитываем угол поворота к цели
-        double angleToTarget =
-                angleTo(positionX, positionY, targetPositionX, targetPositionY);
-        double angleDifference = angleToTarget - direction;
+        eventBus.publish(this);
+    }
 
-        // Определяем направление поворота
-        double angularVelocity = 0;
-        if (angleDifference > Math.PI) {
-            angleDifference -= 2 * Math.PI;
-            // Если разница больше 180 градусов, то берем противоположное направление
-        } else if (angleDifference < -Math.PI) {
-            angleDifference += 2 * Math.PI;
-            // Если разница меньше -180 градусов, то берем противоположное направление
+    /**
+     * Продвигает робота на заданное число шагов без пошагового расчета прямолинейных
+     * участков (см. {@link RobotFleet#advance(int, long)}). Подписчики оповещаются один раз.
+     * Пока впереди промежуточные точки пути, шаги выполняются по одному;
+     * точки очереди маршрута проходятся одна за другой.
+     *
+     * @param ticks Максимальное количество шагов.
+     * @return Количество фактически выполненных шагов.
+     */
+    public long advance(long ticks) {
+        applyPendingTarget();
+        followPath();
+        nextWaypoint();
+        long done = 0;
+        while (done < ticks && fleet.isActive(index)) {
+            if (path != null) {
+                fleet.moveRobot(index);
+                tick++;
+                done++;
+                followPath();
+            } else {
+                long skipped = fleet.advance(index, ticks - done);
+                tick += skipped;
+                done += skipped;
+            }
+            nextWaypoint();
         }
-
-        // Определяем направление поворота
-        if (angleDifference > 0) {
-            angularVelocity = maxAngularVelocity;
-        } else if (angleDifference < 0) {
-            angularVelocity = -maxAngularVelocity;
+        if (done > 0) {
+            publishSnapshot();
+            eventBus.publish(this);
         }
+        return done;
+    }
 
-        // Рассчитываем скорость на основе расстояния до цели
-        double velocity = Math.min(maxVelocity, distance);
+    /**
+     * Проверяет, достиг ли робот цели. Вызывается потоком симуляции.
+     *
+     * @return true, если робот в покое на последней точке маршрута, в противном случае - false.
+     */
+    protected boolean isAtTarget() {
+        applyPendingTarget();
+        return path == null && !awaitingPath && waypoints.isEmpty() && fleet.isAtTarget(index);
+    }
 
-        // Фиксированная длительность движения
-        double duration = 1.0;
+    /**
+     * Применяет команды маршрута и построенный путь из почтовых ящиков.
+     *
+     * @return true, если цель изменилась.
+     */
+    private boolean applyPendingTarget() {
+        boolean applied = false;
+        int[] commands;
+        while ((commands = pendingCommands.poll()) != null) {
+            applied |= applyCommands(commands);
+        }
+        PlannedPath planned = pendingPath.getAndSet(null);
+        // Путь к цели, которую уже сменили, не нужен
+        if (planned != null && awaitingPath && planned.leg() == leg) {
+            awaitingPath = false;
+            path = planned;
+            pathPoint = 0;
+            steerToPathPoint();
+            applied = true;
+        }
+        if (applied) {
+            publishSnapshot();
+        }
+        return applied;
+    }
 
-        // Обновляем позицию и направление робота
-        double newX = positionX + velocity * Math.cos(direction) * duration;
-        double newY = positionY + velocity * Math.sin(direction) * duration;
-        double newDirection =
-                asNormalizedRadians(direction + angularVelocity * duration);
+    /**
+     * Применяет команды маршрута по порядку.
+     *
+     * @return true, если сменилась текущая цель.
+     */
+    private boolean applyCommands(int[] commands) {
+        boolean retargeted = false;
+        for (int i = 0; i < commands.length; i += 3) {
+            int x = commands[i + 1];
+            int y = commands[i + 2];
+            switch (commands[i]) {
+                case WaypointBatch.APPEND -> {
+                    if (isRouteFinished()) {
+                        startLeg(x, y);
+                        retargeted = true;
+                    } else if (!waypoints.offer(x, y)) {
+                        droppedWaypoints++;
+                    }
+                }
+                case WaypointBatch.REPLACE -> {
+                    waypoints.clear();
+                    startLeg(x, y);
+                    retargeted = true;
+                }
+                case WaypointBatch.CLEAR -> waypoints.clear();
+                case WaypointBatch.LOOP -> loop = x != 0;
+                default -> throw new IllegalArgumentException("unknown waypoint command " + commands[i]);
+            }
+        }
+        queuedWaypoints = waypoints.size();
+        return retargeted;
+    }
 
-        updatePosition(newX, newY, newDirection);
+    /**
+     * Проверяет, что робот доехал до текущей цели и дальше ехать некуда или
+     * можно брать следующую точку очереди.
+     */
+    private boolean isRouteFinished() {
+        return !fleet.isActive(index) && path == null && !awaitingPath && waypoints.isEmpty();
     }
 
     /**
-     * Приводит угол к нормализованному виду в радианах.
+     * Берет следующую точку очереди, если робот доехал до текущей цели.
+     * В режиме повтора достигнутая цель возвращается в конец очереди.
      *
-     * @param angle Угол в радианах.
-     * @return Нормализованный угол в радианах.
+     * @return true, если робот получил новую цель.
      */
-    private static double asNormalizedRadians(double angle) {
-        while (angle < 0) {
-            angle += 2 * Math.PI;
+    private boolean nextWaypoint() {
+        if (fleet.isActive(index) || path != null || awaitingPath || waypoints.isEmpty()) {
+            return false;
         }
-        while (angle >= 2 * Math.PI) {
-            angle -= 2 * Math.PI;
+        long next = waypoints.poll();
+        if (loop) {
+            waypoints.offer(fleet.getTargetPositionX(index), fleet.getTargetPositionY(index));
         }
-        return angle;
+        queuedWaypoints = waypoints.size();
+        startLeg(WaypointQueue.unpackX(next), WaypointQueue.unpackY(next));
+        publishSnapshot();
+        return true;
     }
 
     /**
-     * Проверяет, достиг ли робот цели.
-     *
-     * @return true, если робот достиг цели, в противном случае - false.
+     * Начинает отрезок маршрута к новой цели: сразу направляет к ней робота или,
+     * при заданном планировщике, запрашивает путь. Пока путь строится, робот
+     * продолжает прежнее движение.
      */
-    protected boolean isAtTarget() {
-        return Math.round(positionX) == targetPositionX
-                && Math.round(positionY) == targetPositionY;
+    private void startLeg(int x, int y) {
+        goalX = x;
+        goalY = y;
+        leg++;
+        path = null;
+        PathPlanner planner = pathPlanner;
+        if (planner == null) {
+            awaitingPath = false;
+            retarget(x, y, false);
+            return;
+        }
+        awaitingPath = true;
+        long requestedLeg = leg;
+        planner.requestPath(this, fleet.getPositionX(index), fleet.getPositionY(index), x, y,
+                points -> deliverPath(requestedLeg, x, y, points));
     }
 
     /**
-     * Рассчитывает евклидово расстояние между двумя точками.
-     *
-     * @param x1 Координата X первой точки.
-     * @param y1 Координата Y первой точки.
-     * @param x2 Координата X второй точки.
-     * @param y2 Координата Y второй точки.
-     * @return Евклидово расстояние между двумя точками.
+     * Переходит к следующей точке пути, если робот подъехал к текущей или остановился на ней.
      */
-    private static double distance(double x1, double y1, double x2, double y2)
-    {
-        double diffX = x1 - x2;
-        double diffY = y1 - y2;
-        return Math.sqrt(diffX * diffX + diffY * diffY);
+    private void followPath() {
+        while (path != null) {
+            double dx = path.points()[pathPoint] - fleet.getPositionX(index);
+            double dy = path.points()[pathPoint + 1] - fleet.getPositionY(index);
+            if (fleet.isActive(index) && dx * dx + dy * dy > PATH_POINT_RADIUS * PATH_POINT_RADIUS) {
+                return;
+            }
+            pathPoint += 2;
+            steerToPathPoint();
+        }
     }
 
     /**
-     * Рассчитывает угол между двумя точками.
+     * Направляет робота к текущей точке пути, разворачивая его на месте.
+     * На последней точке путь больше не нужен: цель в парке совпадает с конечной.
+     */
+    private void steerToPathPoint() {
+        double[] points = path.points();
+        if (pathPoint + 2 >= points.length) {
+            int x = path.goalX();
+            int y = path.goalY();
+            path = null;
+            retarget(x, y, true);
+        } else {
+            retarget((int) Math.round(points[pathPoint]), (int) Math.round(points[pathPoint + 1]), true);
+        }
+    }
+
+    /**
+     * Меняет цель робота в парке и записывает смену в журнал, если он подключен.
      *
-     * @param fromX Координата X начальной точки.
-     * @param fromY Координата Y начальной точки.
-     * @param toX   Координата X конечной точки.
-     * @param toY   Координата Y конечной точки.
-     * @return Угол между двумя точками в радианах.
+     * @param x     Координата X цели.
+     * @param y     Координата Y цели.
+     * @param pivot true - развернуть робота к цели на месте.
      */
-    private static double angleTo(double fromX, double fromY, double toX, double toY)
-    {
-        double diffX = toX - fromX;
-        double diffY = toY - fromY;
+    private void retarget(int x, int y, boolean pivot) {
+        InputJournal recorder = journal;
+        if (recorder != null) {
+            recorder.recordTarget(journalId, tick, fleet.getPositionX(index), fleet.getPositionY(index),
+                    fleet.getDirection(index), x, y, pivot);
+        }
+        fleet.setTargetPosition(index, x, y);
+        if (pivot) {
+            fleet.pivotToTarget(index);
+        }
+    }
 
-        return asNormalizedRadians(Math.atan2(diffY, diffX));
+    /**
+     * Записывает текущее состояние в неопубликованный буфер и публикует его.
+     */
+    private void publishSnapshot() {
+        RobotSnapshot next = publishedSnapshot == snapshotBuffers[0] ? snapshotBuffers[1] : snapshotBuffers[0];
+        next.write(fleet.getPositionX(index), fleet.getPositionY(index), fleet.getDirection(index),
+                path != null || awaitingPath ? goalX : fleet.getTargetPositionX(index),
+                path != null || awaitingPath ? goalY : fleet.getTargetPositionY(index),
+                fleet.getMotionState(index), tick, System.nanoTime());
+        publishedSnapshot = next;
     }
 }
@@ -0,0 +1,167 @@
+package game;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Согласованный снимок состояния робота на конкретном шаге симуляции.
+ * Снимки публикуются моделью с двойной буферизацией: поток симуляции переписывает
+ * неопубликованный буфер, поэтому публикация не выделяет память. Чтение защищено
+ * счетчиком версий (seqlock): читатель копирует поля и повторяет чтение, если буфер
+ * был переписан в процессе, так что читатели никогда не блокируют симуляцию.
+ * Экземпляры, полученные от {@link RobotModel#readSnapshot(RobotSnapshot)}, принадлежат
+ * вызывающему и после копирования не меняются.
+ */
+public final class RobotSnapshot {
+    private static final VarHandle VERSION;
+
+    static {
+        try {
+            VERSION = MethodHandles.lookup().findVarHandle(RobotSnapshot.class, "version", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // Нечетное значение означает, что буфер переписывается
+    private long version;
+    private double positionX;
+    private double positionY;
+    private double direction;
+    private int targetPositionX;
+    private int targetPositionY;
+    private MotionState motionState = MotionState.IDLE;
+    private long tick;
+    private long timeNanos;
+
+    /**
+     * Создает пустой снимок, в который можно копировать состояние робота.
+     */
+    public RobotSnapshot() {
+    }
+
+    /**
+     * Получает координату X робота.
+     *
+     * @return Координата X робота.
+     */
+    public double getPositionX() {
+        return positionX;
+    }
+
+    /**
+     * Получает координату Y робота.
+     *
+     * @return Координата Y робота.
+     */
+    public double getPositionY() {
+        return positionY;
+    }
+
+    /**
+     * Получает направление робота.
+     *
+     * @return Направление робота в радианах.
+     */
+    public double getDirection() {
+        return direction;
+    }
+
+    /**
+     * Получает координату X цели.
+     *
+     * @return Координата X цели.
+     */
+    public int getTargetPositionX() {
+        return targetPositionX;
+    }
+
+    /**
+     * Получает координату Y цели.
+     *
+     * @return Координата Y цели.
+     */
+    public int getTargetPositionY() {
+        return targetPositionY;
+    }
+
+    /**
+     * Получает состояние движения робота.
+     *
+     * @return Состояние движения.
+     */
+    public MotionState getMotionState() {
+        return motionState;
+    }
+
+    /**
+     * Получает номер шага, на котором сделан снимок.
+     *
+     * @return Номер шага.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Получает момент публикации снимка.
+     *
+     * @return Значение {@link System#nanoTime()} в момент публикации.
+     */
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+
+    /**
+     * Переписывает буфер снимка. Вызывается только потоком симуляции.
+     */
+    void write(double x, double y, double newDirect, int targetX, int targetY,
+               MotionState state, long newTick, long newTimeNanos) {
+        long current = (long) VERSION.getOpaque(this);
+        VERSION.setOpaque(this, current + 1);
+        VarHandle.storeStoreFence();
+        positionX = x;
+        positionY = y;
+        direction = newDirect;
+        targetPositionX = targetX;
+        targetPositionY = targetY;
+        motionState = state;
+        tick = newTick;
+        timeNanos = newTimeNanos;
+        VERSION.setRelease(this, current + 2);
+    }
+
+    /**
+     * Копирует снимок в другой экземпляр, проверяя, что буфер не переписывался во время чтения.
+     *
+     * @param into Экземпляр, в который копируется снимок.
+     * @return true, если скопировано согласованное состояние; false, если чтение нужно повторить.
+     */
+    boolean copyTo(RobotSnapshot into) {
+        long before = (long) VERSION.getAcquire(this);
+        if ((before & 1) != 0) {
+            return false;
+        }
+        double x = positionX;
+        double y = positionY;
+        double newDirect = direction;
+        int targetX = targetPositionX;
+        int targetY = targetPositionY;
+        MotionState state = motionState;
+        long newTick = tick;
+        long newTimeNanos = timeNanos;
+        VarHandle.loadLoadFence();
+        if ((long) VERSION.getOpaque(this) != before) {
+            return false;
+        }
+        into.positionX = x;
+        into.positionY = y;
+        into.direction = newDirect;
+        into.targetPositionX = targetX;
+        into.targetPositionY = targetY;
+        into.motionState = state;
+        into.tick = newTick;
+        into.timeNanos = newTimeNanos;
+        return true;
+    }
+}
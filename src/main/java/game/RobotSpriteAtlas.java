@@ -0,0 +1,165 @@
+package game;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+/**
+ * Атлас заранее нарисованных изображений робота при квантованных направлениях.
+ * Все повороты хранятся в одном совместимом с дисплеем изображении, поэтому робот
+ * рисуется одним {@link Graphics#drawImage} без смены трансформации графического контекста.
+ * Изображения рисуются в пикселях устройства с учетом масштаба дисплея;
+ * при смене масштаба атлас нужно построить заново (см. {@link #isCompatible}).
+ */
+public final class RobotSpriteAtlas {
+    /**
+     * Количество направлений по умолчанию: шаг около 1.4 градуса.
+     */
+    public static final int DEFAULT_HEADINGS = 256;
+
+    /**
+     * Размер ячейки атласа в логических пикселях; в нее помещается повернутый корпус 30x10.
+     */
+    public static final int CELL_SIZE = 32;
+
+    private final int headings;
+    private final double scale;
+    private final int cellPixels;
+    private final int columns;
+    private final BufferedImage image;
+
+    /**
+     * Конструктор класса RobotSpriteAtlas. Рисует все направления сразу.
+     *
+     * @param configuration Графическая конфигурация дисплея или null для невидимой отрисовки.
+     * @param headings      Количество квантованных направлений.
+     */
+    public RobotSpriteAtlas(GraphicsConfiguration configuration, int headings) {
+        if (headings <= 0) {
+            throw new IllegalArgumentException("headings must be positive: " + headings);
+        }
+        this.headings = headings;
+        this.scale = deviceScale(configuration);
+        this.cellPixels = (int) Math.ceil(CELL_SIZE * scale);
+        this.columns = (int) Math.ceil(Math.sqrt(headings));
+        int rows = (headings + columns - 1) / columns;
+        int width = columns * cellPixels;
+        int height = rows * cellPixels;
+        this.image = configuration != null
+                ? configuration.createCompatibleImage(width, height, Transparency.TRANSLUCENT)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        render();
+    }
+
+    /**
+     * Проверяет, подходит ли атлас для дисплея с указанной конфигурацией.
+     *
+     * @param configuration Графическая конфигурация дисплея или null.
+     * @return true, если масштаб дисплея совпадает с масштабом атласа.
+     */
+    public boolean isCompatible(GraphicsConfiguration configuration) {
+        return deviceScale(configuration) == scale;
+    }
+
+    /**
+     * Вычисляет границы изображения робота с центром в указанной точке.
+     *
+     * @param x    Координата X центра робота.
+     * @param y    Координата Y центра робота.
+     * @param size Размер изображения в логических пикселях; {@link #CELL_SIZE} без масштабирования.
+     * @param into Прямоугольник, в который записываются границы.
+     */
+    public static void getBounds(int x, int y, int size, Rectangle into) {
+        into.setBounds(x - size / 2, y - size / 2, size, size);
+    }
+
+    /**
+     * Рисует робота с центром в указанной точке, выбирая ближайшее квантованное направление.
+     *
+     * @param g         Графический контекст для отрисовки.
+     * @param x         Координата X центра робота.
+     * @param y         Координата Y центра робота.
+     * @param direction Направление робота в радианах.
+     */
+    public void draw(Graphics g, int x, int y, double direction) {
+        draw(g, x, y, direction, CELL_SIZE);
+    }
+
+    /**
+     * Рисует робота с центром в указанной точке в указанном размере,
+     * выбирая ближайшее квантованное направление.
+     *
+     * @param g         Графический контекст для отрисовки.
+     * @param x         Координата X центра робота.
+     * @param y         Координата Y центра робота.
+     * @param direction Направление робота в радианах.
+     * @param size      Размер изображения в логических пикселях; {@link #CELL_SIZE} без масштабирования.
+     */
+    public void draw(Graphics g, int x, int y, double direction, int size) {
+        int heading = Math.floorMod((int) Math.round(direction * headings / (2 * Math.PI)), headings);
+        int sourceX = heading % columns * cellPixels;
+        int sourceY = heading / columns * cellPixels;
+        int targetX = x - size / 2;
+        int targetY = y - size / 2;
+        g.drawImage(image,
+                targetX, targetY, targetX + size, targetY + size,
+                sourceX, sourceY, sourceX + cellPixels, sourceY + cellPixels,
+                null);
+    }
+
+    /**
+     * Рисует все направления в ячейки атласа.
+     */
+    private void render() {
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+            AffineTransform identity = g.getTransform();
+            for (int heading = 0; heading < headings; heading++) {
+                int cellX = heading % columns * cellPixels;
+                int cellY = heading / columns * cellPixels;
+                g.setTransform(identity);
+                g.setClip(cellX, cellY, cellPixels, cellPixels);
+                g.translate(cellX + cellPixels / 2.0, cellY + cellPixels / 2.0);
+                g.scale(scale, scale);
+                g.rotate(2 * Math.PI * heading / headings);
+                drawRobotBody(g);
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Рисует корпус и глаз робота с центром в начале координат, направленного вдоль оси X.
+     *
+     * @param g Графический контекст для отрисовки.
+     */
+    private static void drawRobotBody(Graphics2D g) {
+        g.setColor(Color.MAGENTA);
+        g.fillOval(-15, -5, 30, 10);
+        g.setColor(Color.BLACK);
+        g.drawOval(-15, -5, 30, 10);
+        g.setColor(Color.WHITE);
+        g.fillOval(10 - 2, -2, 5, 5);
+        g.setColor(Color.BLACK);
+        g.drawOval(10 - 2, -2, 5, 5);
+    }
+
+    /**
+     * Определяет масштаб дисплея (отношение пикселей устройства к логическим).
+     *
+     * @param configuration Графическая конфигурация дисплея или null.
+     * @return Масштаб дисплея; 1 без конфигурации.
+     */
+    private static double deviceScale(GraphicsConfiguration configuration) {
+        return configuration == null ? 1 : configuration.getDefaultTransform().getScaleX();
+    }
+}
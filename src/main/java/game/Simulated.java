@@ -0,0 +1,22 @@
+package game;
+
+/**
+ * Объект, состояние которого продвигается часами симуляции.
+ */
+public interface Simulated {
+    /**
+     * Выполняет один фиксированный шаг симуляции.
+     *
+     * @return true, если объекту нужны следующие шаги; false, если он пришел в покой.
+     */
+    boolean step();
+
+    /**
+     * Устанавливает обработчик, который объект вызывает, когда снова начинает
+     * нуждаться в шагах после покоя (например, при получении новой цели).
+     *
+     * @param handler Обработчик пробуждения.
+     */
+    default void setWakeUpHandler(Runnable handler) {
+    }
+}
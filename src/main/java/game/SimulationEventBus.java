@@ -0,0 +1,164 @@
+package game;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Типизированная шина событий модели с объединением недоставленных событий.
+ * Каждый подписчик указывает исполнителя доставки (поток событий Swing, выделенный
+ * поток или {@link #INLINE}) и максимальную частоту доставки. Пока событие не доставлено,
+ * новые события заменяют его, поэтому в очереди исполнителя у подписчика не бывает
+ * больше одной задачи, а медленный подписчик не замедляет поток, публикующий события.
+ *
+ * @param <E> Тип события.
+ */
+public class SimulationEventBus<E> {
+    /**
+     * Исполнитель, доставляющий событие прямо в публикующем потоке.
+     */
+    public static final Executor INLINE = Runnable::run;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Подписывает слушателя на события.
+     *
+     * @param listener           Слушатель.
+     * @param executor           Исполнитель, в котором вызывается слушатель.
+     * @param maxEventsPerSecond Максимальная частота доставки; 0 или бесконечность - без ограничения.
+     * @return Подписка, которую можно отменить.
+     */
+    public Subscription subscribe(SimulationListener<? super E> listener, Executor executor,
+                                  double maxEventsPerSecond) {
+        Subscription subscription = new Subscription(listener, executor, maxEventsPerSecond);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Публикует событие всем подписчикам. Не блокируется и не ждет доставки.
+     *
+     * @param event Событие.
+     */
+    public void publish(E event) {
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * Проверяет, есть ли у шины подписчики.
+     *
+     * @return true, если есть хотя бы одна подписка.
+     */
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    /**
+     * Создает исполнитель с одним выделенным фоновым потоком.
+     *
+     * @param name Имя потока.
+     * @return Исполнитель доставки.
+     */
+    public static ExecutorService dedicatedThread(String name) {
+        return Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Подписка на шину: хранит последнее недоставленное событие и
+     * планирует его доставку с учетом ограничения частоты.
+     */
+    public final class Subscription {
+        private final SimulationListener<? super E> listener;
+        private final Executor executor;
+        private final long minIntervalNanos;
+        private final AtomicReference<E> pending = new AtomicReference<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final Runnable drainTask = this::drain;
+        private final Runnable delayedDrainTask;
+        private volatile long lastDeliveryNanos;
+        private volatile boolean cancelled;
+
+        private Subscription(SimulationListener<? super E> listener, Executor executor, double maxEventsPerSecond) {
+            this.listener = listener;
+            this.executor = executor;
+            this.minIntervalNanos = maxEventsPerSecond > 0 && !Double.isInfinite(maxEventsPerSecond)
+                    ? Math.round(TimeUnit.SECONDS.toNanos(1) / maxEventsPerSecond)
+                    : 0;
+            this.delayedDrainTask = () -> executor.execute(drainTask);
+            this.lastDeliveryNanos = System.nanoTime() - minIntervalNanos;
+        }
+
+        /**
+         * Отменяет подписку. Недоставленное событие отбрасывается.
+         */
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            pending.set(null);
+        }
+
+        /**
+         * Заменяет недоставленное событие новым и планирует доставку, если она еще не запланирована.
+         */
+        private void offer(E event) {
+            pending.set(event);
+            if (scheduled.compareAndSet(false, true)) {
+                schedule();
+            }
+        }
+
+        /**
+         * Планирует доставку не раньше, чем через минимальный интервал после предыдущей.
+         */
+        private void schedule() {
+            long delay = lastDeliveryNanos + minIntervalNanos - System.nanoTime();
+            if (delay <= 0) {
+                executor.execute(drainTask);
+            } else {
+                DeliveryTimer.INSTANCE.schedule(delayedDrainTask, delay, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        /**
+         * Доставляет последнее событие и, если за время доставки пришли новые, планирует следующую.
+         */
+        private void drain() {
+            try {
+                E event = pending.getAndSet(null);
+                if (event != null && !cancelled) {
+                    lastDeliveryNanos = System.nanoTime();
+                    listener.onEvent(event);
+                }
+            } finally {
+                scheduled.set(false);
+                if (pending.get() != null && scheduled.compareAndSet(false, true)) {
+                    schedule();
+                }
+            }
+        }
+    }
+
+    /**
+     * Общий таймер отложенной доставки, создаваемый при первом использовании.
+     */
+    private static final class DeliveryTimer {
+        static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "simulation-event-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
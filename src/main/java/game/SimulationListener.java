@@ -0,0 +1,15 @@
+package game;
+
+/**
+ * Подписчик на события симуляции.
+ *
+ * @param <E> Тип события.
+ */
+public interface SimulationListener<E> {
+    /**
+     * Вызывается исполнителем подписки с последним недоставленным событием.
+     *
+     * @param event Событие.
+     */
+    void onEvent(E event);
+}
@@ -0,0 +1,222 @@
+package game;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Единые часы симуляции с фиксированным шагом.
+ * Один поток выполняет шаги всех зарегистрированных моделей с заданной частотой,
+ * накапливая отставание от реального времени и отрабатывая его целыми шагами.
+ * Количество потоков не зависит от того, сколько раз меняется цель.
+ * Когда все модели приходят в покой, поток засыпает и не потребляет процессор,
+ * пока одна из них не сообщит о новой цели через обработчик пробуждения.
+ */
+public class SimulationScheduler {
+    /**
+     * Частота шагов по умолчанию (шаг в 10 мс).
+     */
+    public static final double DEFAULT_STEPS_PER_SECOND = 100;
+
+    /**
+     * Максимальное число шагов, которое выполняется за один проход для
+     * догоняния отставания. Остальное отставание отбрасывается, чтобы
+     * медленный шаг не приводил к лавинообразному росту очереди шагов.
+     */
+    private static final int MAX_CATCH_UP_STEPS = 10;
+
+    private final List<Simulated> models = new CopyOnWriteArrayList<>();
+    private final long stepNanos;
+    private volatile boolean running;
+    private volatile boolean paused;
+    private volatile boolean wakeRequested;
+    private volatile long tickCount;
+    private volatile Thread thread;
+
+    /**
+     * Конструктор класса SimulationScheduler.
+     *
+     * @param stepsPerSecond Количество шагов симуляции в секунду.
+     */
+    public SimulationScheduler(double stepsPerSecond) {
+        if (!(stepsPerSecond > 0)) {
+            throw new IllegalArgumentException("stepsPerSecond must be positive: " + stepsPerSecond);
+        }
+        this.stepNanos = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / stepsPerSecond));
+    }
+
+    /**
+     * Регистрирует модель, шаги которой будут выполняться часами.
+     *
+     * @param model Модель симуляции.
+     */
+    public void register(Simulated model) {
+        models.add(model);
+        model.setWakeUpHandler(this::wakeUp);
+        wakeUp();
+    }
+
+    /**
+     * Отменяет регистрацию модели.
+     *
+     * @param model Модель симуляции.
+     */
+    public void unregister(Simulated model) {
+        if (models.remove(model)) {
+            model.setWakeUpHandler(null);
+        }
+    }
+
+    /**
+     * Запускает поток симуляции. Повторный вызов ничего не делает.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Приостанавливает выполнение шагов. Поток при этом не потребляет процессор.
+     */
+    public void pause() {
+        paused = true;
+    }
+
+    /**
+     * Возобновляет выполнение шагов после паузы.
+     * Время, проведенное на паузе, не отрабатывается.
+     */
+    public void resume() {
+        paused = false;
+        wakeUp();
+    }
+
+    /**
+     * Останавливает поток симуляции и дожидается его завершения.
+     */
+    public void stop() {
+        Thread current;
+        synchronized (this) {
+            current = thread;
+            thread = null;
+            running = false;
+        }
+        if (current == null) {
+            return;
+        }
+        LockSupport.unpark(current);
+        if (current != Thread.currentThread()) {
+            try {
+                current.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Проверяет, находятся ли часы на паузе.
+     *
+     * @return true, если выполнение шагов приостановлено.
+     */
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Возвращает количество выполненных шагов.
+     *
+     * @return Номер последнего выполненного шага.
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Возвращает длительность одного шага.
+     *
+     * @return Длительность шага в наносекундах.
+     */
+    public long getStepNanos() {
+        return stepNanos;
+    }
+
+    /**
+     * Будит поток симуляции, если он ожидает.
+     */
+    public void wakeUp() {
+        wakeRequested = true;
+        Thread current = thread;
+        if (current != null) {
+            LockSupport.unpark(current);
+        }
+    }
+
+    /**
+     * Основной цикл часов: накапливает прошедшее время и выполняет
+     * столько фиксированных шагов, сколько в нем помещается.
+     * Если после шага ни одна модель не движется, поток засыпает до пробуждения.
+     */
+    private void run() {
+        long previous = System.nanoTime();
+        long lag = 0;
+        boolean active = true;
+        while (running) {
+            if (paused) {
+                LockSupport.park(this);
+                previous = System.nanoTime();
+                lag = 0;
+                continue;
+            }
+            if (!active) {
+                // Разрешение от unpark в wakeUp не дает потерять пробуждение
+                if (!wakeRequested) {
+                    LockSupport.park(this);
+                }
+                if (!wakeRequested) {
+                    continue;
+                }
+                active = true;
+                previous = System.nanoTime();
+                lag = 0;
+            }
+            long now = System.nanoTime();
+            lag += now - previous;
+            previous = now;
+
+            int steps = 0;
+            while (lag >= stepNanos && steps < MAX_CATCH_UP_STEPS) {
+                wakeRequested = false;
+                active = stepAll();
+                lag -= stepNanos;
+                steps++;
+            }
+            if (lag >= stepNanos) {
+                lag %= stepNanos;
+            }
+            if (active) {
+                LockSupport.parkNanos(this, stepNanos - lag);
+            }
+        }
+    }
+
+    /**
+     * Выполняет один шаг для всех зарегистрированных моделей.
+     *
+     * @return true, если хотя бы одна модель продолжает движение.
+     */
+    private boolean stepAll() {
+        boolean active = false;
+        for (Simulated model : models) {
+            active |= model.step();
+        }
+        tickCount++;
+        return active;
+    }
+}
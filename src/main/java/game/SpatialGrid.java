@@ -0,0 +1,339 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Пространственный индекс точек на равномерной сетке.
+ * Мир делится на квадратные ячейки; ячейки хешируются в таблицу корзин, поэтому
+ * размер мира не ограничен, а память зависит только от числа точек. Каждая точка
+ * задается целым идентификатором от 0 до вместимости и хранится в двусвязном
+ * списке своей корзины, поэтому перемещение точки в другую ячейку стоит O(1),
+ * а перемещение внутри ячейки только обновляет координаты.
+ * Запросы по прямоугольнику, кругу и ближайшей точке не выделяют память:
+ * результаты пишутся в массив вызывающего. Изменения выполняются одним потоком;
+ * пока индекс не меняется, запросы можно выполнять из нескольких потоков одновременно.
+ */
+final class SpatialGrid {
+    /**
+     * Размер ячейки по умолчанию: два корпуса робота.
+     */
+    static final double DEFAULT_CELL_SIZE = 64;
+
+    /**
+     * Признак отсутствующей точки: конец списка и пустой результат {@link #nearest}.
+     */
+    static final int NONE = -1;
+
+    private final double cellSize;
+    private int[] buckets = new int[0];
+    private int bucketMask;
+    private int[] next = new int[0];
+    private int[] previous = new int[0];
+    // Ячейка точки (X в старших 32 битах, Y в младших) и координаты парами X, Y:
+    // при обходе корзины на точку приходится меньше промахов кэша
+    private long[] cells = new long[0];
+    private double[] points = new double[0];
+    private boolean[] present = new boolean[0];
+    private int size;
+
+    /**
+     * Конструктор класса SpatialGrid.
+     *
+     * @param cellSize Размер ячейки в мировых единицах.
+     */
+    SpatialGrid(double cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("cellSize must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Удаляет все точки и готовит индекс к идентификаторам от 0 до {@code capacity}.
+     *
+     * @param capacity Наибольший идентификатор плюс один.
+     */
+    void clear(int capacity) {
+        if (capacity > next.length) {
+            next = new int[capacity];
+            previous = new int[capacity];
+            cells = new long[capacity];
+            points = new double[2 * capacity];
+            present = new boolean[capacity];
+            // Вдвое больше корзин, чем точек, чтобы списки оставались короткими
+            buckets = new int[Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1) << 1];
+            bucketMask = buckets.length - 1;
+        }
+        Arrays.fill(buckets, NONE);
+        Arrays.fill(present, false);
+        size = 0;
+    }
+
+    /**
+     * Добавляет точку или перемещает уже добавленную.
+     *
+     * @param id Идентификатор точки.
+     * @param x  Координата X.
+     * @param y  Координата Y.
+     */
+    void update(int id, double x, double y) {
+        long key = cellKey(cell(x), cell(y));
+        points[2 * id] = x;
+        points[2 * id + 1] = y;
+        if (present[id]) {
+            if (cells[id] == key) {
+                return;
+            }
+            unlink(id);
+        } else {
+            present[id] = true;
+            size++;
+        }
+        cells[id] = key;
+        link(id);
+    }
+
+    /**
+     * Удаляет точку, если она есть в индексе.
+     *
+     * @param id Идентификатор точки.
+     */
+    void remove(int id) {
+        if (present[id]) {
+            unlink(id);
+            present[id] = false;
+            size--;
+        }
+    }
+
+    /**
+     * Проверяет, есть ли точка в индексе.
+     *
+     * @param id Идентификатор точки.
+     * @return true, если точка добавлена.
+     */
+    boolean contains(int id) {
+        return id < present.length && present[id];
+    }
+
+    /**
+     * Возвращает количество точек в индексе.
+     *
+     * @return Количество точек.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Находит точки внутри прямоугольника, включая границы.
+     *
+     * @param minX Левая граница.
+     * @param minY Верхняя граница.
+     * @param maxX Правая граница.
+     * @param maxY Нижняя граница.
+     * @param out  Массив для идентификаторов найденных точек; должен вмещать все точки индекса.
+     * @return Количество найденных точек.
+     */
+    int queryRect(double minX, double minY, double maxX, double maxY, int[] out) {
+        int minCellX = cell(minX);
+        int minCellY = cell(minY);
+        int maxCellX = cell(maxX);
+        int maxCellY = cell(maxY);
+        int count = 0;
+        if (coversTable(minCellX, minCellY, maxCellX, maxCellY)) {
+            for (int id = 0; id < present.length; id++) {
+                if (present[id] && inRect(id, minX, minY, maxX, maxY)) {
+                    out[count++] = id;
+                }
+            }
+            return count;
+        }
+        for (int cy = minCellY; cy <= maxCellY; cy++) {
+            for (int cx = minCellX; cx <= maxCellX; cx++) {
+                long key = cellKey(cx, cy);
+                for (int id = buckets[bucket(key)]; id != NONE; id = next[id]) {
+                    // В корзине бывают точки других ячеек; каждая точка проверяется только в своей
+                    if (cells[id] == key && inRect(id, minX, minY, maxX, maxY)) {
+                        out[count++] = id;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Находит точки внутри круга, включая границу. Если найденных точек больше,
+     * чем помещается в массив, лишние отбрасываются.
+     *
+     * @param x      Координата X центра.
+     * @param y      Координата Y центра.
+     * @param radius Радиус.
+     * @param out    Массив для идентификаторов найденных точек.
+     * @return Количество найденных точек, не больше длины массива.
+     */
+    int queryRadius(double x, double y, double radius, int[] out) {
+        int minCellX = cell(x - radius);
+        int minCellY = cell(y - radius);
+        int maxCellX = cell(x + radius);
+        int maxCellY = cell(y + radius);
+        double radiusSquared = radius * radius;
+        int count = 0;
+        if (coversTable(minCellX, minCellY, maxCellX, maxCellY)) {
+            for (int id = 0; id < present.length && count < out.length; id++) {
+                if (present[id] && distanceSquared(id, x, y) <= radiusSquared) {
+                    out[count++] = id;
+                }
+            }
+            return count;
+        }
+        for (int cy = minCellY; cy <= maxCellY; cy++) {
+            for (int cx = minCellX; cx <= maxCellX; cx++) {
+                long key = cellKey(cx, cy);
+                for (int id = buckets[bucket(key)]; id != NONE; id = next[id]) {
+                    if (cells[id] == key && distanceSquared(id, x, y) <= radiusSquared) {
+                        if (count == out.length) {
+                            return count;
+                        }
+                        out[count++] = id;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Находит ближайшую к указанной точку индекса. Ячейки просматриваются кольцами
+     * от ячейки запроса, пока кольцо не окажется дальше лучшей найденной точки.
+     *
+     * @param x           Координата X.
+     * @param y           Координата Y.
+     * @param maxDistance Наибольшее расстояние до искомой точки.
+     * @return Идентификатор ближайшей точки или {@link #NONE}, если в пределах расстояния точек нет.
+     */
+    int nearest(double x, double y, double maxDistance) {
+        int best = NONE;
+        double bestDistanceSquared = maxDistance * maxDistance;
+        int centerX = cell(x);
+        int centerY = cell(y);
+        long rings = (long) Math.ceil(maxDistance / cellSize);
+        if (coversTable((long) centerX - rings, (long) centerY - rings, (long) centerX + rings, (long) centerY + rings)) {
+            for (int id = 0; id < present.length; id++) {
+                if (present[id]) {
+                    double distanceSquared = distanceSquared(id, x, y);
+                    if (distanceSquared <= bestDistanceSquared) {
+                        best = id;
+                        bestDistanceSquared = distanceSquared;
+                    }
+                }
+            }
+            return best;
+        }
+        for (int ring = 0; ring <= rings; ring++) {
+            // Любая точка кольца не ближе (ring - 1) ячеек от точки запроса
+            double ringDistance = (ring - 1) * cellSize;
+            if (ring > 1 && ringDistance * ringDistance > bestDistanceSquared) {
+                break;
+            }
+            for (int cy = centerY - ring; cy <= centerY + ring; cy++) {
+                boolean edgeRow = cy == centerY - ring || cy == centerY + ring;
+                // Во внутренних строках кольца только две крайние ячейки
+                int step = edgeRow || ring == 0 ? 1 : 2 * ring;
+                for (int cx = centerX - ring; cx <= centerX + ring; cx += step) {
+                    long key = cellKey(cx, cy);
+                    for (int id = buckets[bucket(key)]; id != NONE; id = next[id]) {
+                        if (cells[id] == key) {
+                            double distanceSquared = distanceSquared(id, x, y);
+                            if (distanceSquared <= bestDistanceSquared) {
+                                best = id;
+                                bestDistanceSquared = distanceSquared;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Проверяет, покрывает ли прямоугольник ячеек больше ячеек, чем корзин в таблице:
+     * тогда дешевле проверить все точки подряд.
+     */
+    private boolean coversTable(long minCellX, long minCellY, long maxCellX, long maxCellY) {
+        return (maxCellX - minCellX + 1) * (maxCellY - minCellY + 1) > buckets.length;
+    }
+
+    /**
+     * Вставляет точку в начало списка ее корзины.
+     */
+    private void link(int id) {
+        int bucket = bucket(cells[id]);
+        int head = buckets[bucket];
+        next[id] = head;
+        previous[id] = NONE;
+        if (head != NONE) {
+            previous[head] = id;
+        }
+        buckets[bucket] = id;
+    }
+
+    /**
+     * Исключает точку из списка ее корзины.
+     */
+    private void unlink(int id) {
+        int before = previous[id];
+        int after = next[id];
+        if (before == NONE) {
+            buckets[bucket(cells[id])] = after;
+        } else {
+            next[before] = after;
+        }
+        if (after != NONE) {
+            previous[after] = before;
+        }
+    }
+
+    /**
+     * Проверяет, лежит ли точка внутри прямоугольника.
+     */
+    private boolean inRect(int id, double minX, double minY, double maxX, double maxY) {
+        double x = points[2 * id];
+        double y = points[2 * id + 1];
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    /**
+     * Вычисляет квадрат расстояния от точки индекса до указанной.
+     */
+    private double distanceSquared(int id, double x, double y) {
+        double dx = points[2 * id] - x;
+        double dy = points[2 * id + 1] - y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Вычисляет номер ячейки по координате.
+     */
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    /**
+     * Упаковывает номера ячейки по X и Y в один ключ.
+     */
+    private static long cellKey(int cx, int cy) {
+        return (long) cx << 32 | cy & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Вычисляет корзину ячейки.
+     */
+    private int bucket(long key) {
+        int cx = (int) (key >>> 32);
+        int cy = (int) key;
+        return (cx * 0x9E3779B1 ^ cy * 0x85EBCA77) & bucketMask;
+    }
+}
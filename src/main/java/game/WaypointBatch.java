@@ -0,0 +1,141 @@
+package game;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Пакет изменений маршрутов для многих роботов.
+ * Команды накапливаются в вызывающем потоке и группируются по роботам; {@link #submit()}
+ * передает каждому роботу все его команды одним массивом, поэтому поток симуляции
+ * забирает их из почтового ящика одной неблокирующей операцией на робота,
+ * а не на каждую точку. Команды одного робота применяются в порядке добавления.
+ * Экземпляр не потокобезопасен и после {@link #submit()} пуст и готов к новому пакету.
+ */
+public final class WaypointBatch {
+    // Команды кодируются тройками (код, X, Y)
+    static final int APPEND = 0;
+    static final int REPLACE = 1;
+    static final int CLEAR = 2;
+    static final int LOOP = 3;
+
+    /**
+     * Команды одного робота.
+     */
+    private static final class Commands {
+        int[] codes = new int[3 * 4];
+        int size;
+
+        void add(int code, int x, int y) {
+            if (size + 3 > codes.length) {
+                codes = Arrays.copyOf(codes, codes.length * 2);
+            }
+            codes[size++] = code;
+            codes[size++] = x;
+            codes[size++] = y;
+        }
+    }
+
+    private final Map<RobotModel, Commands> commands = new IdentityHashMap<>();
+    private int size;
+
+    /**
+     * Добавляет точку в конец маршрута робота.
+     *
+     * @param robot Робот.
+     * @param x     Координата X точки.
+     * @param y     Координата Y точки.
+     */
+    public void append(RobotModel robot, int x, int y) {
+        add(robot, APPEND, x, y);
+    }
+
+    /**
+     * Добавляет точки в конец маршрута робота.
+     *
+     * @param robot  Робот.
+     * @param points Координаты точек парами X, Y.
+     */
+    public void append(RobotModel robot, int[] points) {
+        checkPairs(points);
+        for (int i = 0; i < points.length; i += 2) {
+            add(robot, APPEND, points[i], points[i + 1]);
+        }
+    }
+
+    /**
+     * Заменяет маршрут робота: первая точка сразу становится целью, остальные встают в очередь.
+     *
+     * @param robot  Робот.
+     * @param points Координаты точек парами X, Y; пустой массив только очищает очередь.
+     */
+    public void replace(RobotModel robot, int[] points) {
+        checkPairs(points);
+        if (points.length == 0) {
+            add(robot, CLEAR, 0, 0);
+            return;
+        }
+        add(robot, REPLACE, points[0], points[1]);
+        for (int i = 2; i < points.length; i += 2) {
+            add(robot, APPEND, points[i], points[i + 1]);
+        }
+    }
+
+    /**
+     * Очищает очередь точек робота; текущую цель робот доезжает.
+     *
+     * @param robot Робот.
+     */
+    public void clear(RobotModel robot) {
+        add(robot, CLEAR, 0, 0);
+    }
+
+    /**
+     * Включает или выключает повтор маршрута: достигнутая точка возвращается в конец очереди.
+     *
+     * @param robot Робот.
+     * @param loop  true - повторять маршрут.
+     */
+    public void loop(RobotModel robot, boolean loop) {
+        add(robot, LOOP, loop ? 1 : 0, 0);
+    }
+
+    /**
+     * Возвращает количество накопленных команд.
+     *
+     * @return Количество команд.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Передает накопленные команды роботам и очищает пакет.
+     * Может вызываться из любого потока, владеющего пакетом.
+     */
+    public void submit() {
+        for (Map.Entry<RobotModel, Commands> entry : commands.entrySet()) {
+            Commands robotCommands = entry.getValue();
+            entry.getKey().submitWaypointCommands(Arrays.copyOf(robotCommands.codes, robotCommands.size));
+        }
+        commands.clear();
+        size = 0;
+    }
+
+    /**
+     * Добавляет команду в список команд робота.
+     */
+    private void add(RobotModel robot, int code, int x, int y) {
+        commands.computeIfAbsent(robot, key -> new Commands()).add(code, x, y);
+        size++;
+    }
+
+    /**
+     * Проверяет, что массив содержит пары координат.
+     */
+    private static void checkPairs(int[] points) {
+        if (points.length % 2 != 0) {
+            throw new IllegalArgumentException("points must hold X, Y pairs: length " + points.length);
+        }
+    }
+}
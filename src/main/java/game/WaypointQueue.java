@@ -0,0 +1,134 @@
+package game;
+
+/**
+ * Ограниченная очередь точек маршрута робота: кольцевой буфер целых координат,
+ * упакованных в long. Буфер растет удвоением до заданной вместимости, поэтому
+ * роботы без маршрута почти не занимают памяти. Не потокобезопасна: принадлежит
+ * потоку симуляции.
+ */
+final class WaypointQueue {
+    /**
+     * Признак пустой очереди в результате {@link #poll()}.
+     */
+    static final long EMPTY = Long.MIN_VALUE;
+
+    private final int capacity;
+    private long[] points = new long[0];
+    private int head;
+    private int size;
+
+    /**
+     * Конструктор класса WaypointQueue.
+     *
+     * @param capacity Наибольшее количество точек.
+     */
+    WaypointQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Добавляет точку в конец очереди.
+     *
+     * @param x Координата X.
+     * @param y Координата Y.
+     * @return false, если очередь заполнена и точка отброшена.
+     */
+    boolean offer(int x, int y) {
+        if (size == capacity) {
+            return false;
+        }
+        if (size == points.length) {
+            grow();
+        }
+        points[(head + size) % points.length] = pack(x, y);
+        size++;
+        return true;
+    }
+
+    /**
+     * Извлекает первую точку очереди.
+     *
+     * @return Упакованная точка (X в старших 32 битах) или {@link #EMPTY}.
+     */
+    long poll() {
+        if (size == 0) {
+            return EMPTY;
+        }
+        long point = points[head];
+        head = (head + 1) % points.length;
+        size--;
+        return point;
+    }
+
+    /**
+     * Удаляет все точки.
+     */
+    void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Возвращает количество точек в очереди.
+     *
+     * @return Количество точек.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Проверяет, пуста ли очередь.
+     *
+     * @return true, если точек нет.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Упаковывает координаты точки в long.
+     *
+     * @param x Координата X.
+     * @param y Координата Y.
+     * @return Упакованная точка.
+     */
+    static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Извлекает координату X из упакованной точки.
+     *
+     * @param point Упакованная точка.
+     * @return Координата X.
+     */
+    static int unpackX(long point) {
+        return (int) (point >> 32);
+    }
+
+    /**
+     * Извлекает координату Y из упакованной точки.
+     *
+     * @param point Упакованная точка.
+     * @return Координата Y.
+     */
+    static int unpackY(long point) {
+        return (int) point;
+    }
+
+    /**
+     * Увеличивает буфер вдвое, не больше вместимости, разворачивая кольцо с начала массива.
+     */
+    private void grow() {
+        long[] grown = new long[Math.min(capacity, Math.max(8, points.length * 2))];
+        for (int i = 0; i < size; i++) {
+            grown[i] = points[(head + i) % points.length];
+        }
+        points = grown;
+        head = 0;
+    }
+}
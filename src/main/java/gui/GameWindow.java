@@ -1,12 +1,14 @@
 package gui;
 
 import game.GameVisualizer;
+import game.ObstacleMap;
 import game.RobotModel;
 import locale.LocaleManager;
 
 import javax.swing.JInternalFrame;
 import javax.swing.JPanel;
 import java.awt.BorderLayout;
+import java.util.List;
 import java.util.ResourceBundle;
 
 /**
@@ -14,17 +16,30 @@ import java.util.ResourceBundle;
  */
 public class GameWindow extends JInternalFrame {
     private final GameVisualizer m_visualizer;
-    private final RobotModel robotModel;
     private final ResourceBundle resources;
 
     /**
      * Конструктор класса GameWindow.
      * Создает окно игры с визуализатором игры.
+     *
+     * @param robotModel  Модель робота.
+     * @param obstacleMap Набор препятствий, которые показывает и пополняет визуализатор.
      */
-    public GameWindow(RobotModel robotModel) {
+    public GameWindow(RobotModel robotModel, ObstacleMap obstacleMap) {
+        this(List.of(robotModel), obstacleMap);
+    }
+
+    /**
+     * Конструктор класса GameWindow.
+     * Создает окно игры с визуализатором нескольких роботов.
+     *
+     * @param robotModels Модели роботов; сначала выбран первый.
+     * @param obstacleMap Набор препятствий, которые показывает и пополняет визуализатор.
+     */
+    public GameWindow(List<RobotModel> robotModels, ObstacleMap obstacleMap) {
         super();
-        this.robotModel = robotModel;
-        m_visualizer = new GameVisualizer(this.robotModel);
+        m_visualizer = new GameVisualizer(robotModels);
+        m_visualizer.setObstacleMap(obstacleMap);
         resources = LocaleManager.getCurrentResource(
                 LocaleManager.getCurrentLanguage());
         // Получаем ресурсы для текущего языка
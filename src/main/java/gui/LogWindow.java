@@ -1,23 +1,55 @@
 package gui;
 
 import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Dimension;
 import java.awt.EventQueue;
-import java.awt.TextArea;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseEvent;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.swing.AbstractListModel;
+import javax.swing.DefaultListCellRenderer;
 import javax.swing.JInternalFrame;
+import javax.swing.JList;
 import javax.swing.JPanel;
+import javax.swing.JScrollBar;
+import javax.swing.JScrollPane;
 
 import log.LogChangeListener;
 import log.LogEntry;
+import log.LogHistory;
+import log.LogLevel;
 import log.LogWindowSource;
 import locale.LocaleManager;
 
 /**
  * Окно протокола работы приложения.
+ * <p>
+ * Протокол показывается списком над моделью, которая читает записи прямо из источника
+ * по номерам, поэтому форматируются и рисуются только видимые строки. Изменения
+ * протокола объединяются: пока обновление не выполнено в потоке событий, новые
+ * оповещения не ставят новых задач. Обновление сообщает списку только о вытесненных
+ * и добавленных строках. Если протокол был прокручен до конца, он следует за новыми
+ * записями; иначе положение прокрутки сохраняется относительно показанных записей.
+ * Если к источнику подключена история, список охватывает и ее: записи, вытесненные
+ * из очереди источника, читаются из истории страницами, и в памяти держится одна страница.
  */
 public class LogWindow extends JInternalFrame implements LogChangeListener {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSSSSS");
+
     private final LogWindowSource m_logSource;
-    private final TextArea m_logContent;
+    private final LogListModel m_logModel;
+    private final JList<LogEntry> m_logContent;
+    private final JScrollPane m_scrollPane;
+    private final AtomicBoolean m_updatePending = new AtomicBoolean();
+    private boolean m_followTail = true;
 
     /**
      * Конструктор класса LogWindow.
@@ -29,14 +61,39 @@ public class LogWindow extends JInternalFrame implements LogChangeListener {
         super(LocaleManager.getCurrentResource(LocaleManager.getCurrentLanguage()).getString("log_window_title"),
                 true, true, true, true);
         m_logSource = logSource;
-        m_logSource.registerListener(this);
-        m_logContent = new TextArea("");
-        m_logContent.setSize(200, 500);
+        m_logModel = new LogListModel(logSource);
+        m_logContent = new JList<>(m_logModel) {
+            @Override
+            public String getToolTipText(MouseEvent event) {
+                int index = locationToIndex(event.getPoint());
+                LogEntry entry = index >= 0 ? getModel().getElementAt(index) : null;
+                return entry != null ? describe(entry) : null;
+            }
+        };
+        LogEntryRenderer renderer = new LogEntryRenderer();
+        m_logContent.setCellRenderer(renderer);
+        // Постоянные размеры строк избавляют список от измерения всех строк при каждом
+        // изменении; ширина строки равна ширине окна, запись целиком видна в подсказке
+        m_logContent.setFixedCellHeight(renderer.getListCellRendererComponent(m_logContent,
+                new LogEntry(LogLevel.Debug, " "), 0, false, false).getPreferredSize().height);
+        m_logContent.setFixedCellWidth(1);
+        m_scrollPane = new JScrollPane(m_logContent);
+        m_scrollPane.setPreferredSize(new Dimension(200, 500));
+        // До первой раскладки прокрутить к концу нельзя: это делается, когда окно получает размер
+        m_scrollPane.getViewport().addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                if (m_followTail) {
+                    scrollToTail();
+                }
+            }
+        });
 
         JPanel panel = new JPanel(new BorderLayout());
-        panel.add(m_logContent, BorderLayout.CENTER);
+        panel.add(m_scrollPane, BorderLayout.CENTER);
         getContentPane().add(panel);
         pack();
+        m_logSource.registerListener(this);
         updateLogContent();
     }
 
@@ -44,12 +101,32 @@ public class LogWindow extends JInternalFrame implements LogChangeListener {
      * Обновляет содержимое протокола.
      */
     private void updateLogContent() {
-        StringBuilder content = new StringBuilder();
-        for (LogEntry entry : m_logSource.all()) {
-            content.append(entry.getMessage()).append("\n");
+        m_updatePending.set(false);
+        JScrollBar scrollBar = m_scrollPane.getVerticalScrollBar();
+        int rowHeight = m_logContent.getFixedCellHeight();
+        if (m_scrollPane.getViewport().getHeight() > 0) {
+            m_followTail = scrollBar.getValue() + scrollBar.getVisibleAmount()
+                    >= scrollBar.getMaximum() - rowHeight / 2;
+        }
+        int removed = m_logModel.update();
+        if (removed == 0 && !m_followTail) {
+            return;
+        }
+        // Размер списка нужен сразу, а не после отложенной перекладки
+        m_scrollPane.validate();
+        if (m_followTail) {
+            scrollToTail();
+        } else {
+            scrollBar.setValue(Math.max(0, scrollBar.getValue() - removed * rowHeight));
         }
-        m_logContent.setText(content.toString());
-        m_logContent.invalidate();
+    }
+
+    /**
+     * Прокручивает протокол к последней записи.
+     */
+    private void scrollToTail() {
+        JScrollBar scrollBar = m_scrollPane.getVerticalScrollBar();
+        scrollBar.setValue(scrollBar.getMaximum() - scrollBar.getVisibleAmount());
     }
 
     /**
@@ -57,10 +134,144 @@ public class LogWindow extends JInternalFrame implements LogChangeListener {
      * Обновляет содержимое протокола работы приложения на графическом интерфейсе.
      * Данный метод вызывается асинхронно на главном потоке событий (EDT) с помощью
      * метода {@link EventQueue#invokeLater(Runnable)}, чтобы обеспечить безопасность
-     * работы с графическим интерфейсом Swing.
+     * работы с графическим интерфейсом Swing. Если обновление уже запланировано,
+     * новое не ставится.
      */
     @Override
     public void onLogChanged() {
-        EventQueue.invokeLater(this::updateLogContent);
+        if (m_updatePending.compareAndSet(false, true)) {
+            EventQueue.invokeLater(this::updateLogContent);
+        }
+    }
+
+    /**
+     * Закрывает окно и отписывает его от источника протокола.
+     */
+    @Override
+    public void dispose() {
+        m_logSource.unregisterListener(this);
+        super.dispose();
+    }
+
+    /**
+     * Описывает запись целиком для подсказки: время, поток, уровень, сообщение и поля.
+     */
+    private static String describe(LogEntry entry) {
+        StringBuilder text = new StringBuilder();
+        if (entry.getTimestamp() != 0) {
+            Instant instant = Instant.ofEpochSecond(0, entry.getTimestamp());
+            text.append(TIME_FORMAT.format(LocalTime.ofInstant(instant, ZoneId.systemDefault()))).append(' ');
+        }
+        if (!entry.getThreadName().isEmpty()) {
+            text.append('[').append(entry.getThreadName()).append("] ");
+        }
+        text.append(entry.getLevel()).append(": ").append(entry.getMessage());
+        entry.getFields().forEach((key, value) -> text.append(' ').append(key).append('=').append(value));
+        return text.toString();
+    }
+
+    /**
+     * Модель списка над окном номеров записей источника и его истории [first, end).
+     * Изменяется только в потоке событий.
+     */
+    private static final class LogListModel extends AbstractListModel<LogEntry> {
+        // Количество записей истории, читаемых за одно обращение
+        private static final int PAGE_SIZE = 256;
+        // Предел строк, при котором высота списка в пикселях помещается в int
+        private static final long MAX_ROWS = 10_000_000;
+
+        private final LogWindowSource m_logSource;
+        private long m_first;
+        private long m_end;
+        private List<LogEntry> m_page = List.of();
+
+        LogListModel(LogWindowSource logSource) {
+            m_logSource = logSource;
+        }
+
+        @Override
+        public int getSize() {
+            return (int) (m_end - m_first);
+        }
+
+        @Override
+        public LogEntry getElementAt(int index) {
+            long sequence = m_first + index;
+            LogEntry entry = m_logSource.get(sequence);
+            return entry != null ? entry : fromHistory(sequence);
+        }
+
+        /**
+         * Возвращает запись из истории, подгружая страницу, если запись не в текущей.
+         */
+        private LogEntry fromHistory(long sequence) {
+            LogHistory history = m_logSource.getHistory();
+            if (history == null) {
+                return null;
+            }
+            LogEntry entry = fromPage(sequence);
+            if (entry == null) {
+                m_page = history.range(sequence - sequence % PAGE_SIZE, PAGE_SIZE);
+                entry = fromPage(sequence);
+            }
+            return entry;
+        }
+
+        /**
+         * Возвращает запись из текущей страницы истории.
+         */
+        private LogEntry fromPage(long sequence) {
+            if (m_page.isEmpty()) {
+                return null;
+            }
+            long index = sequence - m_page.get(0).getSequence();
+            if (index < 0 || index >= m_page.size()) {
+                return null;
+            }
+            LogEntry entry = m_page.get((int) index);
+            return entry.getSequence() == sequence ? entry : null;
+        }
+
+        /**
+         * Сдвигает окно к текущему состоянию источника и сообщает списку
+         * о вытесненных и добавленных строках.
+         *
+         * @return Количество строк, удаленных из начала списка.
+         */
+        int update() {
+            long end = m_logSource.getEndSequence();
+            long first = m_logSource.getFirstSequence();
+            LogHistory history = m_logSource.getHistory();
+            if (history != null) {
+                first = Math.max(Math.min(first, history.getFirstSequence()), end - MAX_ROWS);
+            }
+            int removed = (int) (Math.min(first, m_end) - m_first);
+            if (removed > 0) {
+                m_first += removed;
+                fireIntervalRemoved(this, 0, removed - 1);
+            }
+            if (m_end < first) {
+                m_first = first;
+                m_end = first;
+            }
+            if (end > m_end) {
+                int from = getSize();
+                m_end = end;
+                fireIntervalAdded(this, from, getSize() - 1);
+            }
+            return Math.max(removed, 0);
+        }
+    }
+
+    /**
+     * Отрисовка строки протокола: текст сообщения.
+     */
+    private static final class LogEntryRenderer extends DefaultListCellRenderer {
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            String message = value instanceof LogEntry entry ? entry.getMessage() : "";
+            return super.getListCellRendererComponent(list, message, index, isSelected, cellHasFocus);
+        }
     }
 }
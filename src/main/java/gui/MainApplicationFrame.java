@@ -4,9 +4,19 @@ import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import javax.swing.*;
+import game.InputJournal;
+import game.ObstacleMap;
+import game.PathPlanner;
+import game.RobotFleet;
+import game.RobotGroup;
 import game.RobotModel;
+import game.SimulationScheduler;
 import log.Logger;
 import state.StateManager;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ResourceBundle;
 import locale.LocaleManager;
 
@@ -14,12 +24,39 @@ import locale.LocaleManager;
  * Главное окно приложения, содержащее в себе рабочую область и панель меню.
  */
 public class MainApplicationFrame extends JFrame {
+    /**
+     * Системное свойство с количеством роботов на поле.
+     */
+    public static final String ROBOT_COUNT_PROPERTY = "robots.count";
+
+    /**
+     * Системное свойство, выключающее объезд роботами друг друга значением {@code false}.
+     * Журнал входных воздействий воспроизводит роботов независимо, поэтому запись нескольких
+     * роботов сверяется при воспроизведении бит в бит только с выключенным объездом.
+     */
+    public static final String AVOIDANCE_PROPERTY = "robots.avoidance";
+
+    /**
+     * Количество роботов в ряду при начальной расстановке.
+     */
+    private static final int ROBOTS_PER_ROW = 10;
+
+    /**
+     * Расстояние между роботами при начальной расстановке.
+     */
+    private static final double ROBOT_SPACING = 60;
+
     private final JDesktopPane desktopPane = new JDesktopPane();
     private LogWindow logWindow;
     private GameWindow gameWindow;
     private RobotCoordinatesWindow robotCoordinatesWindow;
     private final StateManager stateManager;
     private final RobotModel robotModel;
+    private final List<RobotModel> robotModels;
+    private final ObstacleMap obstacleMap = new ObstacleMap();
+    private final PathPlanner pathPlanner = new PathPlanner(obstacleMap);
+    private final SimulationScheduler simulationScheduler;
+    private InputJournal inputJournal;
     private final LocaleManager localeManager;
     private ResourceBundle bundle;
 
@@ -43,9 +80,15 @@ public class MainApplicationFrame extends JFrame {
         logWindow = createLogWindow(); // Создаем logWindow
         addWindow(logWindow);
 
-        robotModel = new RobotModel(100, 100);
+        robotModels = createRobotModels(Math.max(1, Integer.getInteger(ROBOT_COUNT_PROPERTY, 1)));
+        robotModel = robotModels.get(0);
+        simulationScheduler = new SimulationScheduler(SimulationScheduler.DEFAULT_STEPS_PER_SECOND);
+        simulationScheduler.register(new RobotGroup(robotModels,
+                !"false".equalsIgnoreCase(System.getProperty(AVOIDANCE_PROPERTY))));
+        inputJournal = openInputJournal();
+        simulationScheduler.start();
 
-        gameWindow = new GameWindow(robotModel); // Создаем gameWindow
+        gameWindow = new GameWindow(robotModels, obstacleMap); // Создаем gameWindow
         gameWindow.setSize(400, 400);
         addWindow(gameWindow);
 
@@ -93,6 +136,67 @@ public class MainApplicationFrame extends JFrame {
         frame.setVisible(true);
     }
 
+    /**
+     * Создает роботов одного парка, расставленных рядами, и подключает к ним планировщик путей.
+     *
+     * @param count Количество роботов.
+     * @return Модели роботов.
+     */
+    private List<RobotModel> createRobotModels(int count) {
+        RobotFleet fleet = new RobotFleet(count);
+        List<RobotModel> models = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = fleet.add(100 + (i % ROBOTS_PER_ROW) * ROBOT_SPACING,
+                    100 + (i / ROBOTS_PER_ROW) * ROBOT_SPACING);
+            RobotModel model = new RobotModel(fleet, index);
+            model.setPathPlanner(pathPlanner);
+            models.add(model);
+        }
+        return models;
+    }
+
+    /**
+     * Начинает запись журнала входных воздействий, если задано системное свойство
+     * {@value InputJournal#JOURNAL_PROPERTY}.
+     *
+     * @return Журнал или null, если запись не нужна или файл не удалось создать.
+     */
+    private InputJournal openInputJournal() {
+        String file = System.getProperty(InputJournal.JOURNAL_PROPERTY);
+        if (file == null) {
+            return null;
+        }
+        try {
+            InputJournal journal = InputJournal.record(Path.of(file),
+                    SimulationScheduler.DEFAULT_STEPS_PER_SECOND, robotModels);
+            Logger.debug("Запись журнала входных воздействий: " + file);
+            return journal;
+        } catch (IOException e) {
+            Logger.error("Не удалось начать запись журнала " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Закрывает главное окно и останавливает часы симуляции, планировщик путей
+     * и запись журнала.
+     */
+    @Override
+    public void dispose() {
+        simulationScheduler.stop();
+        pathPlanner.close();
+        if (inputJournal != null) {
+            try {
+                inputJournal.close();
+            } catch (IOException e) {
+                Logger.error("Не удалось закрыть журнал входных воздействий: " + e.getMessage());
+            }
+            inputJournal = null;
+        }
+        Logger.shutdown();
+        super.dispose();
+    }
+
     /**
      * Метод для подтверждения выхода
      */
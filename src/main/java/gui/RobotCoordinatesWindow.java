@@ -1,21 +1,30 @@
 package gui;
 
 import game.RobotModel;
+import game.RobotSnapshot;
+import game.SimulationEventBus;
 import locale.LocaleManager;
 
 import javax.swing.*;
 import java.awt.*;
 import java.text.DecimalFormat;
-import java.util.Observable;
-import java.util.Observer;
 import java.util.ResourceBundle;
 
 /**
  * Окно для отображения текущих координат робота.
  */
-public class RobotCoordinatesWindow extends JInternalFrame implements Observer {
+public class RobotCoordinatesWindow extends JInternalFrame {
+    /**
+     * Максимальная частота обновления надписи с координатами.
+     */
+    private static final double UPDATE_RATE = 10;
+
+    private final RobotModel robotModel;
+    private final DecimalFormat decimalFormat = new DecimalFormat("#.###");
+    private final RobotSnapshot snapshot = new RobotSnapshot();
     private final JLabel coordinatesLabel;
     private final ResourceBundle resources;
+    private SimulationEventBus<RobotModel>.Subscription subscription;
 
     /**
      * Конструктор класса RobotCoordinatesWindow.
@@ -24,7 +33,7 @@ public class RobotCoordinatesWindow extends JInternalFrame implements Observer {
      * @param robotModel Модель робота, которую необходимо отслеживать.
      */
     public RobotCoordinatesWindow(RobotModel robotModel) {
-        robotModel.addObserver(this);
+        this.robotModel = robotModel;
         resources = LocaleManager.getCurrentResource(
                 LocaleManager.getCurrentLanguage()
         );
@@ -43,19 +52,40 @@ public class RobotCoordinatesWindow extends JInternalFrame implements Observer {
     }
 
     /**
-     * Обновляет отображаемые координаты робота при изменении состояния модели.
-     *
-     * @param o   Наблюдаемый объект.
-     * @param arg Аргументы изменения состояния (не используется).
+     * Подписывается на события модели, когда окно становится отображаемым.
      */
     @Override
-    public void update(Observable o, Object arg) {
-        if (o instanceof RobotModel model) {
-            DecimalFormat decimalFormat = new DecimalFormat("#.###");
-            String x = decimalFormat.format(model.getPositionX());
-            String y = decimalFormat.format(model.getPositionY());
-            coordinatesLabel.setText(resources.getString("coordinates_label_x") + x +
-                    ", " + resources.getString("coordinates_label_y") + y);
+    public void addNotify() {
+        super.addNotify();
+        if (subscription == null) {
+            subscription = robotModel.getEventBus().subscribe(this::update, EventQueue::invokeLater, UPDATE_RATE);
+            update(robotModel);
         }
     }
+
+    /**
+     * Отменяет подписку на события модели, когда окно убирается с экрана.
+     */
+    @Override
+    public void removeNotify() {
+        if (subscription != null) {
+            subscription.cancel();
+            subscription = null;
+        }
+        super.removeNotify();
+    }
+
+    /**
+     * Обновляет отображаемые координаты робота при изменении состояния модели.
+     * Вызывается в потоке событий Swing не чаще {@link #UPDATE_RATE} раз в секунду.
+     *
+     * @param model Модель робота, состояние которой изменилось.
+     */
+    private void update(RobotModel model) {
+        model.readSnapshot(snapshot);
+        String x = decimalFormat.format(snapshot.getPositionX());
+        String y = decimalFormat.format(snapshot.getPositionY());
+        coordinatesLabel.setText(resources.getString("coordinates_label_x") + x +
+                ", " + resources.getString("coordinates_label_y") + y);
+    }
 }
@@ -0,0 +1,262 @@
+package log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Асинхронная доставка сообщений в источник протоколирования.
+ * <p>
+ * Писатели кладут записи в ограниченную неблокирующую очередь {@link LogQueue},
+ * а один фоновый поток забирает их пачками, складывает в источник и оповещает
+ * слушателей один раз на пачку. Для писателя протоколирование стоит одного добавления
+ * в очередь; фоновый поток будится, только если он уснул на пустой очереди.
+ * Поведение при переполнении задается {@link OverflowPolicy}.
+ * <p>
+ * Если к источнику подключена история, записи дописываются в нее здесь же, в порядке
+ * номеров: номера выдаются и история пишется только под замком доставки источника
+ * ({@link LogWindowSource#getDeliveryLock()}), который фоновый поток берет один раз
+ * на пачку. Поэтому писатели не ждут журнала, а сообщения строятся из шаблонов
+ * в фоновом потоке. Ошибка слушателя или истории не останавливает фоновый поток:
+ * она печатается, и доставка продолжается со следующей записи.
+ */
+public final class AsyncLogDispatcher implements AutoCloseable {
+    /**
+     * Поведение при переполнении очереди.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Писатель ждет, пока в очереди освободится место.
+         */
+        BLOCK,
+        /**
+         * Из очереди отбрасывается самое старое сообщение.
+         */
+        DROP_OLDEST,
+        /**
+         * Отбрасывается новое сообщение.
+         */
+        DROP
+    }
+
+    /**
+     * Наибольшее количество сообщений, после которого слушатели оповещаются,
+     * даже если очередь еще не пуста.
+     */
+    static final int MAX_BATCH = 1024;
+
+    private final LogWindowSource m_logSource;
+    private final LogQueue m_queue;
+    private final OverflowPolicy m_policy;
+    private final AtomicLong m_dropped = new AtomicLong();
+    private final Thread m_thread;
+    private volatile boolean m_sleeping;
+    private volatile boolean m_closed;
+
+    /**
+     * Конструктор класса AsyncLogDispatcher. Запускает фоновый поток доставки.
+     *
+     * @param logSource Источник протоколирования.
+     * @param policy    Поведение при переполнении очереди.
+     * @param capacity  Вместимость очереди; округляется вверх до степени двойки.
+     */
+    public AsyncLogDispatcher(LogWindowSource logSource, OverflowPolicy policy, int capacity) {
+        m_logSource = logSource;
+        m_policy = policy;
+        m_queue = new LogQueue(capacity);
+        m_thread = new Thread(this::run, "log-dispatcher");
+        m_thread.setDaemon(true);
+        m_thread.start();
+    }
+
+    /**
+     * Ставит сообщение в очередь доставки.
+     *
+     * @param logLevel   Уровень протоколирования.
+     * @param strMessage Сообщение для протоколирования.
+     */
+    public void log(LogLevel logLevel, String strMessage) {
+        if (m_logSource.isEnabled(logLevel)) {
+            log(new LogEntry(logLevel, strMessage));
+        }
+    }
+
+    /**
+     * Ставит запись в очередь доставки.
+     *
+     * @param entry Запись, еще не добавленная ни в один источник.
+     */
+    public void log(LogEntry entry) {
+        // Запись из самого потока доставки (например, от слушателя) не должна
+        // ждать места в очереди, которую этот поток и разбирает
+        if (m_closed || Thread.currentThread() == m_thread) {
+            deliverNow(entry);
+            return;
+        }
+        if (!m_queue.offer(entry)) {
+            overflow(entry);
+        }
+        if (m_sleeping) {
+            LockSupport.unpark(m_thread);
+        }
+        if (m_closed) {
+            // Очередь могла быть уже разобрана при закрытии
+            drain();
+        }
+    }
+
+    /**
+     * Возвращает количество сообщений, отброшенных при переполнении очереди.
+     *
+     * @return Количество отброшенных сообщений.
+     */
+    public long getDroppedCount() {
+        return m_dropped.get();
+    }
+
+    /**
+     * Возвращает поведение при переполнении очереди.
+     *
+     * @return Поведение при переполнении.
+     */
+    public OverflowPolicy getPolicy() {
+        return m_policy;
+    }
+
+    /**
+     * Возвращает вместимость очереди.
+     *
+     * @return Вместимость очереди.
+     */
+    public int getCapacity() {
+        return m_queue.capacity();
+    }
+
+    /**
+     * Останавливает фоновый поток и доставляет оставшиеся сообщения в вызывающем потоке.
+     * Сообщения, пришедшие после закрытия, доставляются писателями напрямую.
+     */
+    @Override
+    public void close() {
+        if (m_closed) {
+            return;
+        }
+        m_closed = true;
+        LockSupport.unpark(m_thread);
+        boolean interrupted = false;
+        while (m_thread.isAlive()) {
+            try {
+                m_thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        drain();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Обрабатывает переполнение очереди согласно политике.
+     */
+    private void overflow(LogEntry entry) {
+        switch (m_policy) {
+            case BLOCK -> {
+                while (!m_queue.offer(entry)) {
+                    if (m_closed) {
+                        deliverNow(entry);
+                        return;
+                    }
+                    LockSupport.unpark(m_thread);
+                    Thread.onSpinWait();
+                    Thread.yield();
+                }
+            }
+            case DROP_OLDEST -> {
+                while (!m_queue.offer(entry)) {
+                    if (m_queue.poll() != null) {
+                        m_dropped.incrementAndGet();
+                    }
+                }
+            }
+            case DROP -> m_dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Цикл фонового потока: доставляет пачки сообщений и засыпает на пустой очереди.
+     */
+    private void run() {
+        while (!m_closed) {
+            try {
+                if (deliverBatch()) {
+                    continue;
+                }
+            } catch (RuntimeException e) {
+                // Запись, на которой произошла ошибка, теряется; остальные остаются в очереди
+                e.printStackTrace();
+                continue;
+            }
+            m_sleeping = true;
+            // Повторная проверка после объявления сна: писатель, добавивший сообщение
+            // до нее, увидит флаг и разбудит поток
+            if (m_queue.isEmpty() && !m_closed) {
+                LockSupport.park(this);
+            }
+            m_sleeping = false;
+        }
+    }
+
+    /**
+     * Доставляет пачку сообщений и оповещает слушателей.
+     *
+     * @return true, если хотя бы одно сообщение было доставлено.
+     */
+    private boolean deliverBatch() {
+        int count = 0;
+        synchronized (m_logSource.getDeliveryLock()) {
+            LogEntry entry;
+            while (count < MAX_BATCH && (entry = m_queue.poll()) != null) {
+                deliver(entry);
+                count++;
+            }
+        }
+        if (count > 0) {
+            m_logSource.notifyListeners();
+        }
+        return count > 0;
+    }
+
+    /**
+     * Доставляет запись мимо очереди и оповещает слушателей.
+     */
+    private void deliverNow(LogEntry entry) {
+        if (!m_logSource.isEnabled(entry.getLevel())) {
+            return;
+        }
+        synchronized (m_logSource.getDeliveryLock()) {
+            deliver(entry);
+        }
+        m_logSource.notifyListeners();
+    }
+
+    /**
+     * Добавляет запись в источник и его историю. Вызывается под замком доставки.
+     */
+    private void deliver(LogEntry entry) {
+        m_logSource.store(entry);
+        LogHistory history = m_logSource.getHistory();
+        if (history != null) {
+            history.append(entry);
+        }
+    }
+
+    /**
+     * Доставляет все сообщения очереди.
+     */
+    private void drain() {
+        while (deliverBatch()) {
+            // Пачки доставляются до опустошения очереди
+        }
+    }
+}
@@ -1,24 +1,212 @@
 package log;
 
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Запись протокола: уровень, сообщение, время создания в наносекундах от начала эпохи,
+ * имя потока-автора и необязательные поля ключ-значение.
+ * <p>
+ * Сообщение может задаваться шаблоном с параметрами {@code {}} или поставщиком строки;
+ * тогда оно строится только при первом обращении к {@link #getMessage()} - при показе
+ * или записи в журнал - и запоминается. Параметры и поставщик вызываются позже, чем
+ * создана запись, поэтому передавать в них изменяемые объекты не следует.
+ */
 public class LogEntry
 {
-    private LogLevel m_logLevel;
-    private String m_strMessage;
-    
+    static final Object[] NO_FIELDS = new Object[0];
+
+    private long m_lSequence;
+    private final LogLevel m_logLevel;
+    private final long m_lTimestamp;
+    private final String m_strThreadName;
+    private final Object[] m_fields;
+    private final String m_strFormat;
+    private final Object[] m_arguments;
+    private final Supplier<String> m_messageSupplier;
+    private volatile String m_strMessage;
+
     public LogEntry(LogLevel logLevel, String strMessage)
     {
+        this(logLevel, strMessage, null, null, null, NO_FIELDS);
+    }
+
+    /**
+     * Создает запись от имени текущего потока в текущий момент.
+     * Задается ровно одно из сообщения, шаблона или поставщика.
+     *
+     * @param logLevel        Уровень протоколирования.
+     * @param strMessage      Готовое сообщение.
+     * @param strFormat       Шаблон сообщения с параметрами {@code {}}.
+     * @param arguments       Параметры шаблона.
+     * @param messageSupplier Поставщик сообщения.
+     * @param fields          Поля парами ключ, значение.
+     */
+    LogEntry(LogLevel logLevel, String strMessage, String strFormat, Object[] arguments,
+             Supplier<String> messageSupplier, Object[] fields)
+    {
+        Instant now = Instant.now();
+        m_lSequence = -1;
+        m_logLevel = logLevel;
+        m_lTimestamp = now.getEpochSecond() * 1_000_000_000L + now.getNano();
+        m_strThreadName = Thread.currentThread().getName();
+        m_fields = fields;
+        m_strFormat = strFormat;
+        m_arguments = arguments;
+        m_messageSupplier = messageSupplier;
         m_strMessage = strMessage;
+    }
+
+    /**
+     * Восстанавливает запись, прочитанную из журнала.
+     *
+     * @param lSequence     Порядковый номер записи.
+     * @param logLevel      Уровень протоколирования.
+     * @param lTimestamp    Время создания в наносекундах от начала эпохи.
+     * @param strThreadName Имя потока-автора.
+     * @param strMessage    Сообщение.
+     * @param fields        Поля парами ключ, значение.
+     */
+    LogEntry(long lSequence, LogLevel logLevel, long lTimestamp, String strThreadName, String strMessage,
+             Object[] fields)
+    {
+        m_lSequence = lSequence;
         m_logLevel = logLevel;
+        m_lTimestamp = lTimestamp;
+        m_strThreadName = strThreadName;
+        m_fields = fields;
+        m_strFormat = null;
+        m_arguments = null;
+        m_messageSupplier = null;
+        m_strMessage = strMessage;
     }
-    
+
     public String getMessage()
     {
-        return m_strMessage;
+        String strMessage = m_strMessage;
+        if (strMessage == null)
+        {
+            strMessage = buildMessage();
+            m_strMessage = strMessage;
+        }
+        return strMessage;
     }
-    
+
     public LogLevel getLevel()
     {
         return m_logLevel;
     }
-}
 
+    /**
+     * Возвращает порядковый номер записи в источнике протоколирования.
+     *
+     * @return Номер записи; -1, если запись еще не добавлена в источник.
+     */
+    public long getSequence()
+    {
+        return m_lSequence;
+    }
+
+    /**
+     * Возвращает время создания записи.
+     *
+     * @return Наносекунды от начала эпохи.
+     */
+    public long getTimestamp()
+    {
+        return m_lTimestamp;
+    }
+
+    /**
+     * Возвращает имя потока, создавшего запись.
+     *
+     * @return Имя потока.
+     */
+    public String getThreadName()
+    {
+        return m_strThreadName;
+    }
+
+    /**
+     * Возвращает поля записи в порядке добавления.
+     *
+     * @return Неизменяемое отображение ключей в значения.
+     */
+    public Map<String, Object> getFields()
+    {
+        if (m_fields.length == 0)
+        {
+            return Map.of();
+        }
+        Map<String, Object> fields = new LinkedHashMap<>();
+        for (int i = 0; i < m_fields.length; i += 2)
+        {
+            fields.put((String) m_fields[i], m_fields[i + 1]);
+        }
+        return Collections.unmodifiableMap(fields);
+    }
+
+    /**
+     * Присваивает записи номер. Вызывается источником до публикации записи.
+     */
+    void setSequence(long lSequence)
+    {
+        m_lSequence = lSequence;
+    }
+
+    /**
+     * Возвращает поля парами ключ, значение без копирования.
+     */
+    Object[] fieldPairs()
+    {
+        return m_fields;
+    }
+
+    /**
+     * Строит сообщение из шаблона или поставщика.
+     */
+    private String buildMessage()
+    {
+        try
+        {
+            if (m_messageSupplier != null)
+            {
+                return String.valueOf(m_messageSupplier.get());
+            }
+            return format(m_strFormat, m_arguments);
+        }
+        catch (RuntimeException e)
+        {
+            return m_strFormat != null ? "[" + e + "] " + m_strFormat : "[" + e + "]";
+        }
+    }
+
+    /**
+     * Подставляет параметры вместо {@code {}} по порядку. Лишние параметры
+     * отбрасываются, заполнители без параметров остаются как есть.
+     *
+     * @param strFormat Шаблон.
+     * @param arguments Параметры.
+     * @return Сообщение.
+     */
+    static String format(String strFormat, Object[] arguments)
+    {
+        if (strFormat == null)
+        {
+            return "null";
+        }
+        StringBuilder message = new StringBuilder(strFormat.length() + 16 * arguments.length);
+        int from = 0;
+        int argument = 0;
+        int placeholder;
+        while (argument < arguments.length && (placeholder = strFormat.indexOf("{}", from)) >= 0)
+        {
+            message.append(strFormat, from, placeholder).append(arguments[argument++]);
+            from = placeholder + 2;
+        }
+        return message.append(strFormat, from, strFormat.length()).toString();
+    }
+}
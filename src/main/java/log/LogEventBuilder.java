@@ -0,0 +1,80 @@
+package log;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Построитель записи протокола с полями ключ-значение, см. {@link Logger#at(LogLevel)}.
+ * Построитель для отключенного уровня общий и ничего не делает, поэтому цепочка вызовов
+ * на нем не выделяет памяти. Экземпляр не потокобезопасен и используется для одной записи.
+ */
+public final class LogEventBuilder {
+    static final LogEventBuilder DISABLED = new LogEventBuilder(null);
+
+    private final LogLevel m_logLevel;
+    private Object[] m_fields = LogEntry.NO_FIELDS;
+    private int m_iFieldCount;
+
+    LogEventBuilder(LogLevel logLevel) {
+        m_logLevel = logLevel;
+    }
+
+    /**
+     * Добавляет поле записи.
+     *
+     * @param key   Ключ.
+     * @param value Значение.
+     * @return Этот построитель.
+     */
+    public LogEventBuilder field(String key, Object value) {
+        if (m_logLevel != null) {
+            if (m_iFieldCount == m_fields.length) {
+                m_fields = Arrays.copyOf(m_fields, Math.max(8, m_fields.length * 2));
+            }
+            m_fields[m_iFieldCount++] = key;
+            m_fields[m_iFieldCount++] = value;
+        }
+        return this;
+    }
+
+    /**
+     * Протоколирует готовое сообщение.
+     *
+     * @param strMessage Сообщение.
+     */
+    public void log(String strMessage) {
+        if (m_logLevel != null) {
+            Logger.log(new LogEntry(m_logLevel, strMessage, null, null, null, fields()));
+        }
+    }
+
+    /**
+     * Протоколирует сообщение по шаблону.
+     *
+     * @param strFormat Шаблон сообщения с заполнителями {@code {}}.
+     * @param arguments Параметры.
+     */
+    public void log(String strFormat, Object... arguments) {
+        if (m_logLevel != null) {
+            Logger.log(new LogEntry(m_logLevel, null, strFormat, arguments, null, fields()));
+        }
+    }
+
+    /**
+     * Протоколирует сообщение, построенное поставщиком.
+     *
+     * @param messageSupplier Поставщик сообщения.
+     */
+    public void log(Supplier<String> messageSupplier) {
+        if (m_logLevel != null) {
+            Logger.log(new LogEntry(m_logLevel, null, null, null, messageSupplier, fields()));
+        }
+    }
+
+    /**
+     * Возвращает поля парами ключ, значение точного размера.
+     */
+    private Object[] fields() {
+        return m_iFieldCount == m_fields.length ? m_fields : Arrays.copyOf(m_fields, m_iFieldCount);
+    }
+}
@@ -0,0 +1,39 @@
+package log;
+
+import java.util.List;
+
+/**
+ * Хранилище истории протокола за пределами очереди источника.
+ * Записи адресуются теми же порядковыми номерами, что и в {@link LogWindowSource}.
+ */
+public interface LogHistory {
+    /**
+     * Добавляет запись. Номера записей возрастают; пропуск номеров допустим.
+     *
+     * @param entry Запись протокола.
+     */
+    void append(LogEntry entry);
+
+    /**
+     * Возвращает номер самой старой хранимой записи.
+     *
+     * @return Номер первой записи; равен {@link #getEndSequence()}, если история пуста.
+     */
+    long getFirstSequence();
+
+    /**
+     * Возвращает номер, следующий за последней записью.
+     *
+     * @return Номер следующей записи.
+     */
+    long getEndSequence();
+
+    /**
+     * Читает записи подряд, начиная с указанного номера.
+     *
+     * @param fromSequence Номер первой записи; более старые записи пропускаются.
+     * @param count        Наибольшее количество записей.
+     * @return Записи в порядке номеров.
+     */
+    List<LogEntry> range(long fromSequence, int count);
+}
@@ -0,0 +1,548 @@
+package log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Долговременный журнал протокола на диске.
+ * <p>
+ * Журнал - каталог файлов-сегментов, которые только дописываются. Сегмент заранее
+ * отображается в память на всю длину, и записи копируются прямо в отображение, без
+ * системных вызовов на каждую запись. Сегмент начинается заголовком (сигнатура, версия,
+ * номер первой записи, время создания), за ним идут записи: длина тела, CRC32 тела
+ * и тело - номер, уровень, время создания записи в наносекундах, имя потока, поля
+ * ключ-значение и текст сообщения. Строки хранятся в UTF-8 с длиной впереди, значения
+ * полей - в строковом виде; сообщение занимает остаток тела. Сегменты первой версии,
+ * без времени, потока и полей, читаются. Длина записывается последней, поэтому нулевая
+ * длина означает конец данных.
+ * <p>
+ * Новый сегмент начинается, когда запись не помещается в текущий или текущий старше
+ * заданного срока. Старые сегменты удаляются, если общий объем или возраст журнала
+ * превышает пределы хранения. Для каждого сегмента в памяти хранится разреженный
+ * индекс - смещение каждой {@value #INDEX_INTERVAL}-й записи, - поэтому чтение
+ * диапазона находит начало за время двоичного поиска и короткого прохода.
+ * <p>
+ * При открытии индекс строится проходом по сегментам. Последний сегмент проверяется
+ * по CRC: оборванная при аварийном завершении запись и все, что за ней, отбрасываются,
+ * и запись продолжается с последней целой записи. Последний сегмент без заголовка -
+ * короче заголовка или начинающийся нулями - остался от прерванного создания
+ * сегмента и удаляется; заголовок нового сегмента сразу сбрасывается на диск.
+ */
+public final class LogJournal implements LogHistory, Closeable {
+    /**
+     * Размер сегмента по умолчанию.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 16 << 20;
+
+    /**
+     * Срок, после которого начинается новый сегмент, по умолчанию.
+     */
+    public static final long DEFAULT_ROLL_MILLIS = 60 * 60 * 1000L;
+
+    /**
+     * Предельный объем журнала по умолчанию.
+     */
+    public static final long DEFAULT_RETENTION_BYTES = 1L << 30;
+
+    /**
+     * Предельный возраст записей журнала по умолчанию.
+     */
+    public static final long DEFAULT_RETENTION_MILLIS = 7 * 24 * 60 * 60 * 1000L;
+
+    static final int MAGIC = 0x524C4F47;
+    static final int VERSION = 2;
+    static final int INDEX_INTERVAL = 64;
+
+    private static final String SUFFIX = ".log";
+    private static final int HEADER_SIZE = 4 + 2 + 8 + 8;
+    // Длина и CRC32 тела
+    private static final int RECORD_HEADER_SIZE = 4 + 4;
+    // Номер и уровень записи
+    private static final int BODY_HEADER_SIZE = 8 + 1;
+    // Время, длина имени потока и количество полей записи второй версии
+    private static final int BODY_FIELDS_SIZE = 8 + 4 + 4;
+
+    /**
+     * Сегмент журнала.
+     */
+    private static final class Segment {
+        final Path m_file;
+        final long m_baseSequence;
+        final long m_createdMillis;
+        final int m_version;
+        final MappedByteBuffer m_buffer;
+        long m_endSequence;
+        int m_endOffset;
+        int[] m_index = new int[16];
+
+        Segment(Path file, long baseSequence, long createdMillis, int version, MappedByteBuffer buffer) {
+            m_file = file;
+            m_baseSequence = baseSequence;
+            m_createdMillis = createdMillis;
+            m_version = version;
+            m_buffer = buffer;
+            m_endSequence = baseSequence;
+            m_endOffset = HEADER_SIZE;
+        }
+
+        /**
+         * Учитывает запись, дописанную по смещению {@code m_endOffset}.
+         */
+        void added(int recordSize) {
+            long ordinal = m_endSequence - m_baseSequence;
+            if (ordinal % INDEX_INTERVAL == 0) {
+                int slot = (int) (ordinal / INDEX_INTERVAL);
+                if (slot == m_index.length) {
+                    m_index = Arrays.copyOf(m_index, slot * 2);
+                }
+                m_index[slot] = m_endOffset;
+            }
+            m_endOffset += recordSize;
+            m_endSequence++;
+        }
+
+        /**
+         * Находит смещение записи с номером из сегмента.
+         */
+        int offsetOf(long sequence) {
+            long ordinal = sequence - m_baseSequence;
+            int offset = m_index[(int) (ordinal / INDEX_INTERVAL)];
+            for (long skip = ordinal % INDEX_INTERVAL; skip > 0; skip--) {
+                offset += RECORD_HEADER_SIZE + m_buffer.getInt(offset);
+            }
+            return offset;
+        }
+
+        int capacity() {
+            return m_buffer.capacity();
+        }
+    }
+
+    private final Path m_directory;
+    private final int m_segmentSize;
+    private final long m_rollMillis;
+    private final long m_retentionBytes;
+    private final long m_retentionMillis;
+    private final List<Segment> m_segments = new ArrayList<>();
+    private final CRC32 m_crc = new CRC32();
+    private long m_endSequence;
+    private boolean m_failed;
+    private boolean m_closed;
+
+    private LogJournal(Path directory, int segmentSize, long rollMillis, long retentionBytes,
+                       long retentionMillis) {
+        m_directory = directory;
+        m_segmentSize = segmentSize;
+        m_rollMillis = rollMillis;
+        m_retentionBytes = retentionBytes;
+        m_retentionMillis = retentionMillis;
+    }
+
+    /**
+     * Открывает журнал с параметрами по умолчанию.
+     *
+     * @param directory Каталог журнала; создается, если его нет.
+     * @return Журнал.
+     * @throws IOException Если каталог или сегменты не читаются.
+     */
+    public static LogJournal open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_ROLL_MILLIS,
+                DEFAULT_RETENTION_BYTES, DEFAULT_RETENTION_MILLIS);
+    }
+
+    /**
+     * Открывает журнал и восстанавливает его конец после аварийного завершения.
+     *
+     * @param directory       Каталог журнала; создается, если его нет.
+     * @param segmentSize     Размер сегмента в байтах.
+     * @param rollMillis      Срок, после которого начинается новый сегмент.
+     * @param retentionBytes  Предельный объем журнала.
+     * @param retentionMillis Предельный возраст записей.
+     * @return Журнал.
+     * @throws IOException Если каталог или сегменты не читаются.
+     */
+    public static LogJournal open(Path directory, int segmentSize, long rollMillis, long retentionBytes,
+                                  long retentionMillis) throws IOException {
+        if (segmentSize < HEADER_SIZE + RECORD_HEADER_SIZE + BODY_HEADER_SIZE) {
+            throw new IllegalArgumentException("segment size too small: " + segmentSize);
+        }
+        Files.createDirectories(directory);
+        LogJournal journal = new LogJournal(directory, segmentSize, rollMillis, retentionBytes, retentionMillis);
+        journal.recover();
+        return journal;
+    }
+
+    /**
+     * Дописывает запись в журнал. Номер записи не может быть меньше
+     * {@link #getEndSequence()}; при пропуске номеров начинается новый сегмент.
+     *
+     * @param entry Запись протокола.
+     */
+    @Override
+    public synchronized void append(LogEntry entry) {
+        if (m_closed || m_failed) {
+            return;
+        }
+        long sequence = entry.getSequence();
+        if (sequence < m_endSequence) {
+            throw new IllegalArgumentException("sequence " + sequence + " is behind journal end " + m_endSequence);
+        }
+        byte[] thread = utf8(entry.getThreadName());
+        Object[] fieldPairs = entry.fieldPairs();
+        byte[][] fields = new byte[fieldPairs.length][];
+        int fieldsSize = 0;
+        for (int i = 0; i < fieldPairs.length; i++) {
+            fields[i] = utf8(String.valueOf(fieldPairs[i]));
+            fieldsSize += 4 + fields[i].length;
+        }
+        int maxBody = m_segmentSize - HEADER_SIZE - RECORD_HEADER_SIZE;
+        int fixedSize = BODY_HEADER_SIZE + BODY_FIELDS_SIZE + thread.length + fieldsSize;
+        if (fixedSize > maxBody) {
+            // Поля, не помещающиеся в пустой сегмент, не записываются
+            fields = new byte[0][];
+            fixedSize -= fieldsSize;
+        }
+        byte[] message = utf8(entry.getMessage());
+        // Сообщение, не помещающееся в пустой сегмент, обрезается
+        if (fixedSize + message.length > maxBody) {
+            message = Arrays.copyOf(message, Math.max(0, maxBody - fixedSize));
+        }
+        int bodySize = fixedSize + message.length;
+        int recordSize = RECORD_HEADER_SIZE + bodySize;
+        Segment segment = m_segments.isEmpty() ? null : m_segments.get(m_segments.size() - 1);
+        if (segment == null || sequence != m_endSequence || segment.m_version != VERSION
+                || segment.m_endOffset + recordSize > segment.capacity()
+                || System.currentTimeMillis() - segment.m_createdMillis >= m_rollMillis) {
+            try {
+                segment = roll(sequence);
+            } catch (IOException e) {
+                fail(e);
+                return;
+            }
+        }
+        MappedByteBuffer buffer = segment.m_buffer;
+        int offset = segment.m_endOffset;
+        int body = offset + RECORD_HEADER_SIZE;
+        buffer.putLong(body, sequence);
+        buffer.put(body + 8, (byte) entry.getLevel().ordinal());
+        int position = body + BODY_HEADER_SIZE;
+        buffer.putLong(position, entry.getTimestamp());
+        position = putString(buffer, position + 8, thread);
+        buffer.putInt(position, fields.length / 2);
+        position += 4;
+        for (byte[] field : fields) {
+            position = putString(buffer, position, field);
+        }
+        buffer.put(position, message);
+        m_crc.reset();
+        m_crc.update(buffer.slice(body, bodySize));
+        buffer.putInt(offset + 4, (int) m_crc.getValue());
+        buffer.putInt(offset, bodySize);
+        segment.added(recordSize);
+        m_endSequence = sequence + 1;
+    }
+
+    @Override
+    public synchronized long getFirstSequence() {
+        return m_segments.isEmpty() ? m_endSequence : m_segments.get(0).m_baseSequence;
+    }
+
+    @Override
+    public synchronized long getEndSequence() {
+        return m_endSequence;
+    }
+
+    @Override
+    public synchronized List<LogEntry> range(long fromSequence, int count) {
+        List<LogEntry> entries = new ArrayList<>(Math.min(Math.max(count, 0), 1024));
+        long sequence = Math.max(fromSequence, getFirstSequence());
+        for (int i = findSegment(sequence); i < m_segments.size() && entries.size() < count; i++) {
+            Segment segment = m_segments.get(i);
+            if (sequence >= segment.m_endSequence) {
+                continue;
+            }
+            sequence = Math.max(sequence, segment.m_baseSequence);
+            int offset = segment.offsetOf(sequence);
+            while (sequence < segment.m_endSequence && entries.size() < count) {
+                entries.add(read(segment, offset));
+                offset += RECORD_HEADER_SIZE + segment.m_buffer.getInt(offset);
+                sequence++;
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Сбрасывает записанные данные текущего сегмента на диск.
+     */
+    public synchronized void flush() {
+        if (!m_segments.isEmpty() && !m_closed) {
+            m_segments.get(m_segments.size() - 1).m_buffer.force();
+        }
+    }
+
+    /**
+     * Сбрасывает данные на диск и прекращает запись. Чтение остается доступным.
+     */
+    @Override
+    public synchronized void close() {
+        flush();
+        m_closed = true;
+    }
+
+    /**
+     * Начинает новый сегмент с записи с указанным номером.
+     */
+    private Segment roll(long sequence) throws IOException {
+        if (!m_segments.isEmpty()) {
+            Segment current = m_segments.get(m_segments.size() - 1);
+            if (current.m_endSequence == current.m_baseSequence) {
+                // Пустой сегмент не хранится, а заменяется новым
+                m_segments.remove(m_segments.size() - 1);
+                Files.deleteIfExists(current.m_file);
+            } else {
+                current.m_buffer.force();
+            }
+        }
+        long now = System.currentTimeMillis();
+        Path file = m_directory.resolve(String.format("%020d", sequence) + SUFFIX);
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, m_segmentSize);
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putShort(4, (short) VERSION);
+        buffer.putLong(6, sequence);
+        buffer.putLong(14, now);
+        // Без заголовка на диске сегмент после сбоя не опознать
+        buffer.force(0, HEADER_SIZE);
+        Segment segment = new Segment(file, sequence, now, VERSION, buffer);
+        m_segments.add(segment);
+        m_endSequence = sequence;
+        retain(now);
+        return segment;
+    }
+
+    /**
+     * Удаляет старые сегменты сверх пределов объема и возраста. Текущий сегмент остается.
+     */
+    private void retain(long now) {
+        long total = 0;
+        for (Segment segment : m_segments) {
+            total += segment.capacity();
+        }
+        while (m_segments.size() > 1) {
+            Segment oldest = m_segments.get(0);
+            // Сегмент перестал пополняться, когда был создан следующий
+            long sealedMillis = m_segments.get(1).m_createdMillis;
+            if (total <= m_retentionBytes && now - sealedMillis <= m_retentionMillis) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(oldest.m_file);
+            } catch (IOException e) {
+                // Файл удалится при следующем открытии журнала
+            }
+            total -= oldest.capacity();
+            m_segments.remove(0);
+        }
+    }
+
+    /**
+     * Открывает сегменты каталога, строит индексы и находит конец данных.
+     */
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(m_directory, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort(null);
+        for (int i = 0; i < files.size(); i++) {
+            boolean last = i == files.size() - 1;
+            Path file = files.get(i);
+            MappedByteBuffer buffer = null;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("segment too large: " + file);
+                }
+                if (!last || hasHeader(channel)) {
+                    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                            last ? Math.max(size, m_segmentSize) : size);
+                }
+            }
+            if (buffer == null) {
+                // Создание сегмента прервалось до записи заголовка на диск
+                Files.delete(file);
+                continue;
+            }
+            int version = buffer.getShort(4);
+            if (buffer.getInt(0) != MAGIC || version < 1 || version > VERSION) {
+                throw new IOException("not a log journal segment: " + file);
+            }
+            long baseSequence = buffer.getLong(6);
+            if (!m_segments.isEmpty() && baseSequence < m_endSequence) {
+                throw new IOException("segment overlaps previous one: " + file);
+            }
+            Segment segment = new Segment(file, baseSequence, buffer.getLong(14), version, buffer);
+            scan(segment, last);
+            m_segments.add(segment);
+            m_endSequence = segment.m_endSequence;
+        }
+        retain(System.currentTimeMillis());
+    }
+
+    /**
+     * Проверяет, что файл начинается сигнатурой сегмента, а не нулями или обрывом.
+     * Проверяются только нули: чужой файл с другой сигнатурой не удаляется, а
+     * отвергается при открытии.
+     */
+    private static boolean hasHeader(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            return false;
+        }
+        ByteBuffer magic = ByteBuffer.allocate(4);
+        while (magic.hasRemaining() && channel.read(magic, magic.position()) > 0) {
+            // Сигнатура читается целиком
+        }
+        return magic.hasRemaining() || magic.getInt(0) != 0;
+    }
+
+    /**
+     * Проходит записи сегмента и строит индекс. В последнем сегменте проверяется CRC,
+     * а данные после последней целой записи стираются.
+     */
+    private void scan(Segment segment, boolean verify) {
+        MappedByteBuffer buffer = segment.m_buffer;
+        int offset = segment.m_endOffset;
+        while (offset + RECORD_HEADER_SIZE + BODY_HEADER_SIZE <= buffer.capacity()) {
+            int bodySize = buffer.getInt(offset);
+            int body = offset + RECORD_HEADER_SIZE;
+            if (bodySize < BODY_HEADER_SIZE || bodySize > buffer.capacity() - body
+                    || buffer.getLong(body) != segment.m_endSequence) {
+                break;
+            }
+            if (verify) {
+                m_crc.reset();
+                m_crc.update(buffer.slice(body, bodySize));
+                if ((int) m_crc.getValue() != buffer.getInt(offset + 4)) {
+                    break;
+                }
+            }
+            segment.added(RECORD_HEADER_SIZE + bodySize);
+            offset = segment.m_endOffset;
+        }
+        if (verify) {
+            // Оборванная запись стирается, чтобы ее остаток не прочитался за новыми записями
+            int dirtyEnd = segment.m_endOffset;
+            for (int i = segment.m_endOffset; i < buffer.capacity(); i++) {
+                if (buffer.get(i) != 0) {
+                    dirtyEnd = i + 1;
+                }
+            }
+            for (int i = segment.m_endOffset; i < dirtyEnd; i++) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Находит индекс сегмента, содержащего номер, или первого сегмента после него.
+     */
+    private int findSegment(long sequence) {
+        int low = 0;
+        int high = m_segments.size() - 1;
+        int found = 0;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (m_segments.get(middle).m_baseSequence <= sequence) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Читает запись по смещению.
+     */
+    private static LogEntry read(Segment segment, int offset) {
+        MappedByteBuffer buffer = segment.m_buffer;
+        int bodySize = buffer.getInt(offset);
+        int body = offset + RECORD_HEADER_SIZE;
+        int bodyEnd = body + bodySize;
+        long sequence = buffer.getLong(body);
+        LogLevel[] levels = LogLevel.values();
+        int level = buffer.get(body + 8);
+        LogLevel logLevel = level >= 0 && level < levels.length ? levels[level] : LogLevel.Info;
+        int position = body + BODY_HEADER_SIZE;
+        long timestamp = 0;
+        String thread = "";
+        Object[] fields = LogEntry.NO_FIELDS;
+        if (segment.m_version >= 2) {
+            timestamp = buffer.getLong(position);
+            position += 8;
+            thread = getString(buffer, position);
+            position += 4 + buffer.getInt(position);
+            int fieldCount = buffer.getInt(position);
+            position += 4;
+            fields = new Object[2 * fieldCount];
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = getString(buffer, position);
+                position += 4 + buffer.getInt(position);
+            }
+        }
+        byte[] message = new byte[bodyEnd - position];
+        buffer.get(position, message);
+        return new LogEntry(sequence, logLevel, timestamp, thread, new String(message, StandardCharsets.UTF_8), fields);
+    }
+
+    /**
+     * Записывает строку с длиной впереди.
+     *
+     * @return Смещение за строкой.
+     */
+    private static int putString(MappedByteBuffer buffer, int position, byte[] value) {
+        buffer.putInt(position, value.length);
+        buffer.put(position + 4, value);
+        return position + 4 + value.length;
+    }
+
+    /**
+     * Читает строку с длиной впереди.
+     */
+    private static String getString(MappedByteBuffer buffer, int position) {
+        byte[] value = new byte[buffer.getInt(position)];
+        buffer.get(position + 4, value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Прекращает запись после ошибки ввода-вывода.
+     */
+    private void fail(IOException e) {
+        m_failed = true;
+        Logger.error("Запись журнала протокола прекращена: " + e.getMessage());
+    }
+}
@@ -0,0 +1,113 @@
+package log;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограниченная неблокирующая очередь записей протокола для многих писателей
+ * и многих читателей. Ячейки выделяются заранее; каждая хранит номер, по которому
+ * писатель узнает, что ячейка свободна, а читатель - что она заполнена, поэтому
+ * добавление и извлечение не выделяют памяти и не берут блокировок.
+ */
+final class LogQueue {
+    /**
+     * Ячейка очереди.
+     */
+    private static final class Cell {
+        volatile long m_sequence;
+        LogEntry m_entry;
+    }
+
+    private final Cell[] m_cells;
+    private final int m_mask;
+    private final AtomicLong m_head = new AtomicLong();
+    private final AtomicLong m_tail = new AtomicLong();
+
+    /**
+     * Конструктор класса LogQueue.
+     *
+     * @param capacity Вместимость; округляется вверх до степени двойки.
+     */
+    LogQueue(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be in 1..2^30: " + capacity);
+        }
+        int length = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        m_cells = new Cell[length];
+        for (int i = 0; i < length; i++) {
+            m_cells[i] = new Cell();
+            m_cells[i].m_sequence = i;
+        }
+        m_mask = length - 1;
+    }
+
+    /**
+     * Добавляет запись в конец очереди.
+     *
+     * @param entry Запись протокола.
+     * @return false, если очередь заполнена.
+     */
+    boolean offer(LogEntry entry) {
+        long position = m_tail.get();
+        while (true) {
+            Cell cell = m_cells[(int) (position & m_mask)];
+            long difference = cell.m_sequence - position;
+            if (difference == 0) {
+                if (m_tail.compareAndSet(position, position + 1)) {
+                    cell.m_entry = entry;
+                    cell.m_sequence = position + 1;
+                    return true;
+                }
+                position = m_tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = m_tail.get();
+            }
+        }
+    }
+
+    /**
+     * Извлекает первую запись очереди.
+     *
+     * @return Запись или null, если очередь пуста.
+     */
+    LogEntry poll() {
+        long position = m_head.get();
+        while (true) {
+            Cell cell = m_cells[(int) (position & m_mask)];
+            long difference = cell.m_sequence - (position + 1);
+            if (difference == 0) {
+                if (m_head.compareAndSet(position, position + 1)) {
+                    LogEntry entry = cell.m_entry;
+                    cell.m_entry = null;
+                    cell.m_sequence = position + m_mask + 1;
+                    return entry;
+                }
+                position = m_head.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = m_head.get();
+            }
+        }
+    }
+
+    /**
+     * Проверяет, пуста ли очередь.
+     *
+     * @return true, если опубликованных записей нет.
+     */
+    boolean isEmpty() {
+        long position = m_head.get();
+        return m_cells[(int) (position & m_mask)].m_sequence != position + 1;
+    }
+
+    /**
+     * Возвращает вместимость очереди.
+     *
+     * @return Вместимость.
+     */
+    int capacity() {
+        return m_cells.length;
+    }
+}
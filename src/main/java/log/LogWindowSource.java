@@ -1,17 +1,33 @@
 package log;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Класс LogWindowSource представляет источник протоколирования,
  * который хранит и управляет сообщениями лога.
+ * <p>
+ * Сообщения хранятся в заранее выделенном кольцевом буфере. Каждая запись получает
+ * возрастающий порядковый номер и кладется в ячейку с индексом номер по модулю длины
+ * очереди, вытесняя самую старую запись. Номер выдается атомарным счетчиком, а запись
+ * публикуется сравнением с обменом ячейки, поэтому запись из многих потоков не проходит
+ * через общий монитор. Диапазоны возвращаются представлениями над окном номеров:
+ * при обходе пропускаются записи, которые за это время были вытеснены или еще
+ * не опубликованы писателем.
  */
 public class LogWindowSource {
     private final int m_iQueueLength;
-    private final LinkedList<LogEntry> m_messages;
+    private final AtomicReferenceArray<LogEntry> m_messages;
+    private final AtomicLong m_nextSequence;
     private final List<LogChangeListener> m_listeners;
+    private final Object m_deliveryLock = new Object();
+    private volatile LogHistory m_history;
+    private volatile long m_baseSequence;
+    private volatile LogLevel m_minimumLevel = LogLevel.Trace;
 
     /**
      * Конструктор для создания объекта LogWindowSource с указанным размером очереди.
@@ -19,9 +35,13 @@ public class LogWindowSource {
      * @param iQueueLength Размер очереди протоколирования.
      */
     public LogWindowSource(int iQueueLength) {
+        if (iQueueLength <= 0) {
+            throw new IllegalArgumentException("queue length must be positive: " + iQueueLength);
+        }
         m_iQueueLength = iQueueLength;
-        m_messages = new LinkedList<>();
-        m_listeners = new ArrayList<>();
+        m_messages = new AtomicReferenceArray<>(iQueueLength);
+        m_nextSequence = new AtomicLong();
+        m_listeners = new CopyOnWriteArrayList<>();
     }
 
     /**
@@ -29,7 +49,7 @@ public class LogWindowSource {
      *
      * @param listener Слушатель изменений протокола.
      */
-    public synchronized void registerListener(LogChangeListener listener) {
+    public void registerListener(LogChangeListener listener) {
         m_listeners.add(listener);
     }
 
@@ -38,7 +58,7 @@ public class LogWindowSource {
      *
      * @param listener Слушатель изменений протокола.
      */
-    public synchronized void unregisterListener(LogChangeListener listener) {
+    public void unregisterListener(LogChangeListener listener) {
         m_listeners.remove(listener);
     }
 
@@ -48,16 +68,85 @@ public class LogWindowSource {
      * @param logLevel   Уровень протоколирования.
      * @param strMessage Сообщение для протоколирования.
      */
-    public synchronized void append(LogLevel logLevel, String strMessage) {
-        LogEntry entry = new LogEntry(logLevel, strMessage);
-        if (size() >= m_iQueueLength) {
-            m_messages.removeFirst();
+    public void append(LogLevel logLevel, String strMessage) {
+        if (isEnabled(logLevel)) {
+            append(new LogEntry(logLevel, strMessage));
         }
-        m_messages.addLast(entry);
-        notifyListeners();
     }
 
-    private void notifyListeners() {
+    /**
+     * Добавляет запись в лог. Запись уровня ниже минимального не добавляется.
+     *
+     * @param entry Запись, еще не добавленная ни в один источник.
+     */
+    public void append(LogEntry entry) {
+        if (isEnabled(entry.getLevel())) {
+            store(entry);
+            notifyListeners();
+        }
+    }
+
+    /**
+     * Проверяет, добавляются ли записи указанного уровня.
+     *
+     * @param logLevel Уровень протоколирования.
+     * @return true, если уровень не ниже минимального.
+     */
+    public boolean isEnabled(LogLevel logLevel) {
+        return logLevel.level() >= m_minimumLevel.level();
+    }
+
+    /**
+     * Задает минимальный уровень добавляемых записей.
+     *
+     * @param logLevel Минимальный уровень протоколирования.
+     */
+    public void setMinimumLevel(LogLevel logLevel) {
+        m_minimumLevel = logLevel;
+    }
+
+    /**
+     * Возвращает минимальный уровень добавляемых записей.
+     *
+     * @return Минимальный уровень протоколирования.
+     */
+    public LogLevel getMinimumLevel() {
+        return m_minimumLevel;
+    }
+
+    /**
+     * Присваивает записи номер и добавляет ее, не оповещая слушателей. Используется
+     * при пакетной доставке сообщений, после которой слушатели оповещаются один раз.
+     *
+     * @param entry Запись протокола.
+     */
+    void store(LogEntry entry) {
+        long sequence = m_nextSequence.getAndIncrement();
+        entry.setSequence(sequence);
+        int slot = slot(sequence);
+        // Писатель, обогнавший нас на круг, мог уже занять ячейку более новой записью
+        LogEntry current = m_messages.get(slot);
+        while ((current == null || current.getSequence() < sequence)
+                && !m_messages.compareAndSet(slot, current, entry)) {
+            current = m_messages.get(slot);
+        }
+    }
+
+    /**
+     * Возвращает замок доставки в историю. Он общий для всех {@link AsyncLogDispatcher}
+     * источника, поэтому записи попадают в историю в порядке номеров, даже пока прежняя
+     * доставка дорабатывает после замены на новую.
+     *
+     * @return Замок доставки.
+     */
+    Object getDeliveryLock() {
+        return m_deliveryLock;
+    }
+
+    /**
+     * Оповещает слушателей об изменении протокола.
+     */
+    void notifyListeners() {
         for (LogChangeListener listener : m_listeners) {
             listener.onLogChanged();
         }
@@ -68,28 +157,155 @@ public class LogWindowSource {
      *
      * @return Размер лога.
      */
-    public synchronized int size() {
-        return m_messages.size();
+    public int size() {
+        long end = m_nextSequence.get();
+        return (int) (end - firstSequence(end));
+    }
+
+    /**
+     * Подключает историю протокола: номера записей продолжаются с конца истории,
+     * а записи, вытесненные из очереди, читаются из нее. Сам источник в историю
+     * не пишет, чтобы не упорядочивать писателей общим монитором: записи дописывает
+     * {@link AsyncLogDispatcher} из своего потока. Подключается до начала протоколирования.
+     *
+     * @param history История протокола или null.
+     */
+    public void setHistory(LogHistory history) {
+        if (history != null && history.getEndSequence() > m_nextSequence.get()) {
+            m_nextSequence.set(history.getEndSequence());
+            m_baseSequence = history.getEndSequence();
+        }
+        m_history = history;
+    }
+
+    /**
+     * Возвращает историю протокола.
+     *
+     * @return История протокола или null, если она не подключена.
+     */
+    public LogHistory getHistory() {
+        return m_history;
+    }
+
+    /**
+     * Возвращает размер очереди протоколирования.
+     *
+     * @return Наибольшее количество хранимых записей.
+     */
+    public int getQueueLength() {
+        return m_iQueueLength;
+    }
+
+    /**
+     * Возвращает номер самой старой хранимой записи.
+     *
+     * @return Номер первой записи очереди.
+     */
+    public long getFirstSequence() {
+        return firstSequence(m_nextSequence.get());
+    }
+
+    /**
+     * Возвращает номер, который получит следующая запись.
+     *
+     * @return Количество записей, добавленных за все время.
+     */
+    public long getEndSequence() {
+        return m_nextSequence.get();
+    }
+
+    /**
+     * Возвращает запись по ее номеру.
+     *
+     * @param sequence Номер записи.
+     * @return Запись или null, если она уже вытеснена или еще не опубликована.
+     */
+    public LogEntry get(long sequence) {
+        if (sequence < 0) {
+            return null;
+        }
+        LogEntry entry = m_messages.get(slot(sequence));
+        return entry != null && entry.getSequence() == sequence ? entry : null;
     }
 
     /**
      * Возвращает итерируемую коллекцию сообщений лога в указанном диапазоне.
+     * Коллекция - представление над буфером, а не копия.
      *
      * @param startFrom Индекс начала диапазона.
      * @param count     Количество сообщений.
      * @return Коллекция сообщений в указанном диапазоне.
      */
-    public synchronized Iterable<LogEntry> range(int startFrom, int count) {
-        int toIndex = Math.min(startFrom + count, m_messages.size());
-        return new ArrayList<>(m_messages.subList(startFrom, toIndex));
+    public Iterable<LogEntry> range(int startFrom, int count) {
+        if (startFrom < 0 || count < 0) {
+            throw new IndexOutOfBoundsException("range " + startFrom + ", " + count);
+        }
+        long end = m_nextSequence.get();
+        long first = firstSequence(end) + startFrom;
+        return new Range(first, Math.min(end, first + count));
     }
 
     /**
      * Возвращает итерируемую коллекцию всех сообщений лога.
+     * Коллекция - представление над буфером, а не копия.
      *
      * @return Коллекция всех сообщений лога.
      */
-    public synchronized Iterable<LogEntry> all() {
-        return List.copyOf(m_messages);
+    public Iterable<LogEntry> all() {
+        long end = m_nextSequence.get();
+        return new Range(firstSequence(end), end);
+    }
+
+    /**
+     * Возвращает номер самой старой записи очереди при заданном конце.
+     */
+    private long firstSequence(long end) {
+        return Math.max(m_baseSequence, end - m_iQueueLength);
+    }
+
+    /**
+     * Возвращает индекс ячейки буфера для номера записи.
+     */
+    private int slot(long sequence) {
+        return (int) (sequence % m_iQueueLength);
+    }
+
+    /**
+     * Представление записей с номерами из полуинтервала [first, end).
+     */
+    private final class Range implements Iterable<LogEntry> {
+        private final long m_first;
+        private final long m_end;
+
+        Range(long first, long end) {
+            m_first = first;
+            m_end = end;
+        }
+
+        @Override
+        public Iterator<LogEntry> iterator() {
+            return new Iterator<>() {
+                private long m_sequence = m_first;
+                private LogEntry m_next;
+
+                @Override
+                public boolean hasNext() {
+                    while (m_next == null && m_sequence < m_end) {
+                        m_next = get(m_sequence++);
+                    }
+                    return m_next != null;
+                }
+
+                @Override
+                public LogEntry next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    LogEntry entry = m_next;
+                    m_next = null;
+                    return entry;
+                }
+            };
+        }
     }
 }
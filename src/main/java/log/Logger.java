@@ -1,16 +1,104 @@
 package log;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.function.Supplier;
+
 /**
  * Класс Logger предоставляет методы удобства для протоколирования отладочных и ошибочных
  * сообщений.
+ * <p>
+ * По умолчанию сообщения добавляются в источник в вызывающем потоке. Асинхронная
+ * доставка включается методом {@link #enableAsync} или системным свойством
+ * {@value #ASYNC_PROPERTY} со значением block, drop_oldest или drop; вместимость
+ * очереди задается свойством {@value #QUEUE_PROPERTY}. Свойство {@value #JOURNAL_PROPERTY}
+ * с путем каталога подключает к источнику долговременный журнал {@link LogJournal}.
+ * Журнал пишется потоком асинхронной доставки, поэтому с ним доставка включается
+ * всегда; если политика не задана, используется {@link AsyncLogDispatcher.OverflowPolicy#BLOCK}.
+ * <p>
+ * Записи уровня ниже минимального ({@link #setMinimumLevel}, свойство
+ * {@value #LEVEL_PROPERTY}) отбрасываются до создания записи. Варианты с шаблоном
+ * {@code {}} и поставщиком строки откладывают построение сообщения до его показа
+ * или записи в журнал, поэтому на отключенном уровне вызов ничего не выделяет, если
+ * параметры уже объекты, а лямбда не захватывает переменных. Поля ключ-значение
+ * добавляются через {@link #at(LogLevel)}.
  */
 public final class Logger {
+    /**
+     * Системное свойство с политикой переполнения асинхронной очереди.
+     */
+    public static final String ASYNC_PROPERTY = "robots.log.async";
+
+    /**
+     * Системное свойство с вместимостью асинхронной очереди.
+     */
+    public static final String QUEUE_PROPERTY = "robots.log.queue";
+
+    /**
+     * Системное свойство с каталогом журнала протокола.
+     */
+    public static final String JOURNAL_PROPERTY = "robots.log.journal";
+
+    /**
+     * Системное свойство с минимальным уровнем протоколирования.
+     */
+    public static final String LEVEL_PROPERTY = "robots.log.level";
+
+    /**
+     * Вместимость асинхронной очереди по умолчанию.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
 
     private static final LogWindowSource defaultLogSource;
+    private static volatile AsyncLogDispatcher asyncDispatcher;
+    private static LogJournal journal;
 
     static {
         defaultLogSource = new LogWindowSource(5);
         // Устанавливаем количество отображаемых логов
+        String level = System.getProperty(LEVEL_PROPERTY);
+        String levelError = null;
+        if (level != null && !level.isBlank()) {
+            levelError = "Неизвестный уровень протоколирования: " + level;
+            for (LogLevel logLevel : LogLevel.values()) {
+                if (logLevel.name().equalsIgnoreCase(level.trim())) {
+                    defaultLogSource.setMinimumLevel(logLevel);
+                    levelError = null;
+                }
+            }
+        }
+        String journalDirectory = System.getProperty(JOURNAL_PROPERTY);
+        String journalError = null;
+        if (journalDirectory != null && !journalDirectory.isBlank()) {
+            try {
+                journal = LogJournal.open(Path.of(journalDirectory));
+                defaultLogSource.setHistory(journal);
+            } catch (IOException | RuntimeException e) {
+                journalError = "Журнал протокола не открыт: " + e.getMessage();
+            }
+        }
+        String policy = System.getProperty(ASYNC_PROPERTY);
+        if ((policy != null && !policy.isBlank()) || journal != null) {
+            try {
+                enableAsync(policy != null && !policy.isBlank()
+                                ? AsyncLogDispatcher.OverflowPolicy.valueOf(policy.trim().toUpperCase(Locale.ROOT))
+                                : AsyncLogDispatcher.OverflowPolicy.BLOCK,
+                        Integer.getInteger(QUEUE_PROPERTY, DEFAULT_QUEUE_CAPACITY));
+            } catch (IllegalArgumentException e) {
+                if (journal != null) {
+                    // Без доставки журнал не пополняется
+                    enableAsync(AsyncLogDispatcher.OverflowPolicy.BLOCK, DEFAULT_QUEUE_CAPACITY);
+                }
+                error("Асинхронное протоколирование не включено: " + e.getMessage());
+            }
+        }
+        if (journalError != null) {
+            error(journalError);
+        }
+        if (levelError != null) {
+            error(levelError);
+        }
     }
 
     private Logger() {
@@ -22,7 +110,57 @@ public final class Logger {
      * @param strMessage Отладочное сообщение для протоколирования.
      */
     public static void debug(String strMessage) {
-        defaultLogSource.append(LogLevel.Debug, strMessage);
+        if (isEnabled(LogLevel.Debug)) {
+            log(new LogEntry(LogLevel.Debug, strMessage));
+        }
+    }
+
+    /**
+     * Протоколирует отладочное сообщение по шаблону с одним параметром.
+     *
+     * @param strFormat Шаблон сообщения с заполнителем {@code {}}.
+     * @param argument  Параметр.
+     */
+    public static void debug(String strFormat, Object argument) {
+        if (isEnabled(LogLevel.Debug)) {
+            log(new LogEntry(LogLevel.Debug, null, strFormat, new Object[]{argument}, null, LogEntry.NO_FIELDS));
+        }
+    }
+
+    /**
+     * Протоколирует отладочное сообщение по шаблону с двумя параметрами.
+     *
+     * @param strFormat Шаблон сообщения с заполнителями {@code {}}.
+     * @param first     Первый параметр.
+     * @param second    Второй параметр.
+     */
+    public static void debug(String strFormat, Object first, Object second) {
+        if (isEnabled(LogLevel.Debug)) {
+            log(new LogEntry(LogLevel.Debug, null, strFormat, new Object[]{first, second}, null, LogEntry.NO_FIELDS));
+        }
+    }
+
+    /**
+     * Протоколирует отладочное сообщение по шаблону.
+     *
+     * @param strFormat Шаблон сообщения с заполнителями {@code {}}.
+     * @param arguments Параметры.
+     */
+    public static void debug(String strFormat, Object... arguments) {
+        if (isEnabled(LogLevel.Debug)) {
+            log(new LogEntry(LogLevel.Debug, null, strFormat, arguments, null, LogEntry.NO_FIELDS));
+        }
+    }
+
+    /**
+     * Протоколирует отладочное сообщение, построенное поставщиком.
+     *
+     * @param messageSupplier Поставщик сообщения.
+     */
+    public static void debug(Supplier<String> messageSupplier) {
+        if (isEnabled(LogLevel.Debug)) {
+            log(new LogEntry(LogLevel.Debug, null, null, null, messageSupplier, LogEntry.NO_FIELDS));
+        }
     }
 
     /**
@@ -31,7 +169,87 @@ public final class Logger {
      * @param strMessage Сообщение об ошибке для протоколирования.
      */
     public static void error(String strMessage) {
-        defaultLogSource.append(LogLevel.Error, strMessage);
+        if (isEnabled(LogLevel.Error)) {
+            log(new LogEntry(LogLevel.Error, strMessage));
+        }
+    }
+
+    /**
+     * Протоколирует сообщение об ошибке по шаблону с одним параметром.
+     *
+     * @param strFormat Шаблон сообщения с заполнителем {@code {}}.
+     * @param argument  Параметр.
+     */
+    public static void error(String strFormat, Object argument) {
+        if (isEnabled(LogLevel.Error)) {
+            log(new LogEntry(LogLevel.Error, null, strFormat, new Object[]{argument}, null, LogEntry.NO_FIELDS));
+        }
+    }
+
+    /**
+     * Протоколирует сообщение об ошибке по шаблону с двумя параметрами.
+     *
+     * @param strFormat Шаблон сообщения с заполнителями {@code {}}.
+     * @param first     Первый параметр.
+     * @param second    Второй параметр.
+     */
+    public static void error(String strFormat, Object first, Object second) {
+        if (isEnabled(LogLevel.Error)) {
+            log(new LogEntry(LogLevel.Error, null, strFormat, new Object[]{first, second}, null, LogEntry.NO_FIELDS));
+        }
+    }
+
+    /**
+     * Протоколирует сообщение об ошибке по шаблону.
+     *
+     * @param strFormat Шаблон сообщения с заполнителями {@code {}}.
+     * @param arguments Параметры.
+     */
+    public static void error(String strFormat, Object... arguments) {
+        if (isEnabled(LogLevel.Error)) {
+            log(new LogEntry(LogLevel.Error, null, strFormat, arguments, null, LogEntry.NO_FIELDS));
+        }
+    }
+
+    /**
+     * Протоколирует сообщение об ошибке, построенное поставщиком.
+     *
+     * @param messageSupplier Поставщик сообщения.
+     */
+    public static void error(Supplier<String> messageSupplier) {
+        if (isEnabled(LogLevel.Error)) {
+            log(new LogEntry(LogLevel.Error, null, null, null, messageSupplier, LogEntry.NO_FIELDS));
+        }
+    }
+
+    /**
+     * Начинает запись с полями ключ-значение. На отключенном уровне возвращает
+     * общий построитель, который ничего не делает.
+     *
+     * @param logLevel Уровень протоколирования.
+     * @return Построитель записи.
+     */
+    public static LogEventBuilder at(LogLevel logLevel) {
+        return isEnabled(logLevel) ? new LogEventBuilder(logLevel) : LogEventBuilder.DISABLED;
+    }
+
+    /**
+     * Проверяет, протоколируются ли сообщения указанного уровня.
+     *
+     * @param logLevel Уровень протоколирования.
+     * @return true, если уровень не ниже минимального.
+     */
+    public static boolean isEnabled(LogLevel logLevel) {
+        return defaultLogSource.isEnabled(logLevel);
+    }
+
+    /**
+     * Задает минимальный уровень протоколирования.
+     *
+     * @param logLevel Минимальный уровень.
+     */
+    public static void setMinimumLevel(LogLevel logLevel) {
+        defaultLogSource.setMinimumLevel(logLevel);
     }
 
     /**
@@ -42,4 +260,65 @@ public final class Logger {
     public static LogWindowSource getDefaultLogSource() {
         return defaultLogSource;
     }
+
+    /**
+     * Включает асинхронную доставку сообщений. Если она уже включена, прежняя очередь
+     * сначала доставляется и закрывается, и только затем публикуется новая, чтобы записи
+     * не обгоняли друг друга по пути в журнал.
+     *
+     * @param policy   Поведение при переполнении очереди.
+     * @param capacity Вместимость очереди.
+     */
+    public static synchronized void enableAsync(AsyncLogDispatcher.OverflowPolicy policy, int capacity) {
+        AsyncLogDispatcher previous = asyncDispatcher;
+        if (previous != null) {
+            // Писатели, пришедшие во время закрытия, доставляют записи сами
+            previous.close();
+        }
+        asyncDispatcher = new AsyncLogDispatcher(defaultLogSource, policy, capacity);
+    }
+
+    /**
+     * Выключает асинхронную доставку: оставшиеся сообщения доставляются в вызывающем потоке.
+     * Последующие сообщения в журнал протокола не записываются.
+     */
+    public static synchronized void disableAsync() {
+        AsyncLogDispatcher previous = asyncDispatcher;
+        asyncDispatcher = null;
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Доставляет сообщения из асинхронной очереди и закрывает журнал протокола.
+     * Вызывается при завершении приложения.
+     */
+    public static synchronized void shutdown() {
+        disableAsync();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Возвращает асинхронную доставку сообщений.
+     *
+     * @return Доставка или null, если сообщения добавляются в вызывающем потоке.
+     */
+    public static AsyncLogDispatcher getAsyncDispatcher() {
+        return asyncDispatcher;
+    }
+
+    /**
+     * Передает запись в очередь доставки или прямо в источник.
+     */
+    static void log(LogEntry entry) {
+        AsyncLogDispatcher dispatcher = asyncDispatcher;
+        if (dispatcher != null) {
+            dispatcher.log(entry);
+        } else {
+            defaultLogSource.append(entry);
+        }
+    }
 }
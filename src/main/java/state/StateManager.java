@@ -70,10 +70,8 @@ public class StateManager implements WindowState {
         state.put("robotCoordinatesWindowHeight", Integer.toString(robotCoordinatesWindow.getHeight()));
         state.put("robotCoordinatesWindowIsIcon", Boolean.toString(robotCoordinatesWindow.isIcon()));
 
-
-        String configFilePath = System.getProperty("user.home") + File.separator + "state.dat";
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(configFilePath))) {
-            oos.writeObject(state);
+        try {
+            writeState(state, getStateFile());
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -84,10 +82,9 @@ public class StateManager implements WindowState {
      */
     @Override
     public void restoreState() {
-        String configFilePath = System.getProperty("user.home") + File.separator + "state.dat";
         Map<String, String> state = null;
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(configFilePath))) {
-            state = (Map<String, String>) ois.readObject();
+        try {
+            state = readState(getStateFile());
         } catch (IOException | ClassNotFoundException e) {
             System.out.println("Config is not found");
             e.printStackTrace();
@@ -153,4 +150,41 @@ public class StateManager implements WindowState {
             }
         }
     }
+
+    /**
+     * Возвращает файл, в котором хранится состояние окон.
+     *
+     * @return Файл состояния в домашнем каталоге пользователя.
+     */
+    public static File getStateFile() {
+        return new File(System.getProperty("user.home"), "state.dat");
+    }
+
+    /**
+     * Записывает состояние окон в файл.
+     *
+     * @param state Состояние окон: имя параметра и его значение.
+     * @param file  Файл состояния.
+     * @throws IOException Если файл не удалось записать.
+     */
+    public static void writeState(Map<String, String> state, File file) throws IOException {
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file))) {
+            oos.writeObject(state);
+        }
+    }
+
+    /**
+     * Читает состояние окон из файла.
+     *
+     * @param file Файл состояния.
+     * @return Состояние окон: имя параметра и его значение.
+     * @throws IOException            Если файл не удалось прочитать.
+     * @throws ClassNotFoundException Если файл содержит объект неизвестного класса.
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, String> readState(File file) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
+            return (Map<String, String>) ois.readObject();
+        }
+    }
 }
@@ -0,0 +1,77 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Сверяет количество соприкосновений {@link CollisionAvoidance} с полным перебором пар.
+ */
+class CollisionAvoidanceTest {
+    private static final int STEPS = 20;
+
+    @Test
+    void countsEveryPairInCrowd() {
+        // Сорок роботов в одной точке: каждый видит больше MAX_NEIGHBORS соседей
+        RobotFleet fleet = new RobotFleet(40);
+        for (int i = 0; i < 40; i++) {
+            fleet.add(10, 10);
+        }
+        CollisionAvoidance avoidance = new CollisionAvoidance(fleet);
+        avoidance.step();
+        assertEquals(40 * 39 / 2, avoidance.getContacts());
+    }
+
+    @Test
+    void matchesBruteForceOnRandomFleets() {
+        Random random = new Random(20240601);
+        for (int scenario = 0; scenario < 5; scenario++) {
+            int size = 300 + random.nextInt(700);
+            double side = Math.sqrt(size) * (10 + scenario * 5);
+            RobotFleet fleet = new RobotFleet(size);
+            for (int i = 0; i < size; i++) {
+                int index = fleet.add(random.nextDouble() * side - side / 2, random.nextDouble() * side - side / 2);
+                fleet.setPosition(index, fleet.getPositionX(index), fleet.getPositionY(index),
+                        random.nextDouble() * 2 * Math.PI);
+                // Каждый третий робот стоит
+                if (i % 3 != 0) {
+                    fleet.setTargetPosition(index, random.nextInt((int) side) - (int) side / 2,
+                            random.nextInt((int) side) - (int) side / 2);
+                }
+            }
+            CollisionAvoidance avoidance = new CollisionAvoidance(fleet);
+            int[] neighbors = new int[CollisionAvoidance.NEIGHBOR_BUFFER_SIZE];
+            for (int step = 0; step < STEPS; step++) {
+                avoidance.updateIndex();
+                long contacts = avoidance.sense(0, size, neighbors);
+                assertEquals(bruteForceContacts(fleet), contacts, "scenario " + scenario + ", step " + step);
+                fleet.step();
+            }
+        }
+    }
+
+    /**
+     * Проверяет все пары роботов парка.
+     */
+    private static long bruteForceContacts(RobotFleet fleet) {
+        int size = fleet.size();
+        double[] cosines = new double[size];
+        double[] sines = new double[size];
+        for (int i = 0; i < size; i++) {
+            cosines[i] = Math.cos(fleet.getDirection(i));
+            sines[i] = Math.sin(fleet.getDirection(i));
+        }
+        long contacts = 0;
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                if (CollisionAvoidance.capsulesOverlap(fleet.getPositionX(i), fleet.getPositionY(i),
+                        cosines[i], sines[i], fleet.getPositionX(j), fleet.getPositionY(j), cosines[j], sines[j])) {
+                    contacts++;
+                }
+            }
+        }
+        return contacts;
+    }
+}
@@ -0,0 +1,77 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Проверяет, что траектории с {@link MathBackend#FAST} не отходят от эталонных
+ * {@link MathBackend#EXACT} дальше пределов, объявленных в {@link MathBackend}.
+ */
+class MathBackendDriftTest {
+    private static final int RANDOM_SCENARIOS = 200;
+    private static final int TARGETS_PER_SCENARIO = 20;
+
+    @Test
+    void exactBackendHasNoDrift() {
+        HeadlessSimulation.Drift drift = measure(fixedScenario(), MathBackend.EXACT);
+        assertEquals(0, drift.maxPositionError());
+        assertEquals(0, drift.maxDirectionError());
+        assertEquals(0, drift.stepDifference());
+    }
+
+    @Test
+    void fastBackendStaysWithinBoundsOnFixedScenario() {
+        assertWithinBounds(fixedScenario(), "fixed");
+    }
+
+    @Test
+    void fastBackendStaysWithinBoundsOnRandomScenarios() {
+        Random random = new Random(20240517);
+        for (int i = 0; i < RANDOM_SCENARIOS; i++) {
+            List<int[]> targets = new ArrayList<>(TARGETS_PER_SCENARIO);
+            for (int k = 0; k < TARGETS_PER_SCENARIO; k++) {
+                targets.add(new int[]{random.nextInt(2001) - 1000, random.nextInt(2001) - 1000});
+            }
+            HeadlessSimulation.Scenario scenario = new HeadlessSimulation.Scenario(
+                    random.nextDouble() * 2000 - 1000, random.nextDouble() * 2000 - 1000, targets);
+            assertWithinBounds(scenario, "random #" + i);
+        }
+    }
+
+    /**
+     * Сценарий с прямыми подходами, разворотами на месте, целями рядом с роботом
+     * и целями по осям, где угол до цели близок к границам приведения.
+     */
+    private static HeadlessSimulation.Scenario fixedScenario() {
+        return new HeadlessSimulation.Scenario(100, 100, List.of(
+                new int[]{150, 100}, new int[]{150, 300}, new int[]{-200, 300}, new int[]{-200, -400},
+                new int[]{151, 101}, new int[]{150, 100}, new int[]{1000, 100}, new int[]{-1000, 100},
+                new int[]{-1000, 99}, new int[]{0, 0}, new int[]{0, 1}, new int[]{700, -700}));
+    }
+
+    private static void assertWithinBounds(HeadlessSimulation.Scenario scenario, String name) {
+        HeadlessSimulation.Drift drift = measure(scenario, MathBackend.FAST);
+        // Запас на округление, как в HeadlessSimulation.isWithinBounds
+        double tolerance = 1e-9;
+        long maxStepDifference = Math.max(1,
+                (long) Math.ceil(MathBackend.MAX_STEP_DRIFT_PER_TARGET * scenario.targets().size()));
+        assertTrue(drift.comparedSteps() > 0, name + ": no steps compared");
+        assertTrue(drift.maxPositionError() <= MathBackend.MAX_POSITION_DRIFT + tolerance,
+                name + ": position drift " + drift.maxPositionError());
+        assertTrue(drift.maxDirectionError() <= MathBackend.MAX_DIRECTION_DRIFT + tolerance,
+                name + ": direction drift " + drift.maxDirectionError());
+        assertTrue(drift.stepDifference() <= maxStepDifference,
+                name + ": step difference " + drift.stepDifference());
+    }
+
+    private static HeadlessSimulation.Drift measure(HeadlessSimulation.Scenario scenario, MathBackend math) {
+        return new HeadlessSimulation(scenario, HeadlessSimulation.DEFAULT_MAX_STEPS_PER_TARGET,
+                SimulationScheduler.DEFAULT_STEPS_PER_SECOND, true, math).measureDrift();
+    }
+}